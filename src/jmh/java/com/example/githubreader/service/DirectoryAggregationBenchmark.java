@@ -0,0 +1,87 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.AdmissionConfig;
+import com.example.githubreader.config.BatchConfig;
+import com.example.githubreader.config.DirectoryConfig;
+import com.example.githubreader.config.GithubConfig;
+import com.example.githubreader.config.ProfilingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Объединение локальной директории в единый файл ({@link DirectoryContentService#saveAllContentsToFile})
+ * на синтетическом дереве. Форма дерева задается параметрами: {@code depth} уровней по {@code fanout}
+ * поддиректорий, {@code filesPerDir} файлов размером {@code fileBytes} в каждой директории.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DirectoryAggregationBenchmark {
+
+    @Param({"3"})
+    public int depth;
+
+    @Param({"4"})
+    public int fanout;
+
+    @Param({"20"})
+    public int filesPerDir;
+
+    @Param({"2048"})
+    public int fileBytes;
+
+    @Param({"32"})
+    public int maxConcurrency;
+
+    private Path root;
+    private Path outputFile;
+    private DirectoryContentService service;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("jmh-tree");
+        SyntheticTree.writeTree(root.resolve("repo"), depth, fanout, filesPerDir, fileBytes);
+        outputFile = root.resolve("all_contents.txt");
+
+        GithubConfig githubConfig = new GithubConfig();
+        githubConfig.setIncludePatterns(SyntheticTree.INCLUDE_PATTERNS);
+        githubConfig.setExcludePatterns(SyntheticTree.EXCLUDE_PATTERNS);
+        BatchConfig batchConfig = new BatchConfig();
+        batchConfig.setMaxConcurrency(maxConcurrency);
+        FetchBudget fetchBudget = new FetchBudget(batchConfig);
+        service = new DirectoryContentService(new DirectoryConfig(), githubConfig, fetchBudget,
+                new FetchMetrics(new SimpleMeterRegistry(), fetchBudget), new JobProfiler(new ProfilingConfig()),
+                new AdmissionController(new AdmissionConfig(), new SimpleMeterRegistry()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        service.shutdown();
+        SyntheticTree.delete(root);
+    }
+
+    @Benchmark
+    public long aggregate() throws IOException {
+        service.saveAllContentsToFile(root.resolve("repo").toString(), outputFile);
+        return Files.size(outputFile);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.githubreader.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Формирование блоков {@code File: ...} ({@link ContentWriter#fileBlock}) и их объединение
+ * в содержимое единого файла ({@link ContentWriter#join}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileBlockFormattingBenchmark {
+
+    @Param({"1000", "10000"})
+    public int fileCount;
+
+    @Param({"512", "8192"})
+    public int fileBytes;
+
+    private List<String> paths;
+    private String content;
+    private List<String> blocks;
+
+    @Setup
+    public void setUp() {
+        paths = SyntheticTree.paths(fileCount);
+        content = SyntheticTree.content(fileBytes);
+        blocks = formatBlocks();
+    }
+
+    @Benchmark
+    public List<String> format() {
+        return formatBlocks();
+    }
+
+    @Benchmark
+    public String join() {
+        return ContentWriter.join(blocks);
+    }
+
+    @Benchmark
+    public String formatAndJoin() {
+        return ContentWriter.join(formatBlocks());
+    }
+
+    private List<String> formatBlocks() {
+        List<String> result = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            result.add(ContentWriter.fileBlock(path, content));
+        }
+        return result;
+    }
+}
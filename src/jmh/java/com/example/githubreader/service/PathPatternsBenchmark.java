@@ -0,0 +1,50 @@
+package com.example.githubreader.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка набора путей по include/exclude шаблонам из application.yml ({@link PathPatterns}).
+ * Время — на весь набор из {@code pathCount} путей.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathPatternsBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int pathCount;
+
+    private List<String> paths;
+
+    @Setup
+    public void setUp() {
+        paths = SyntheticTree.paths(pathCount);
+    }
+
+    @Benchmark
+    public int matchAll() {
+        int matched = 0;
+        for (String path : paths) {
+            if (PathPatterns.matches(path, SyntheticTree.INCLUDE_PATTERNS, SyntheticTree.EXCLUDE_PATTERNS)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.githubreader.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Генератор синтетических деревьев репозитория для бенчмарков.
+ * Пути и содержимое детерминированы (фиксированный seed), чтобы результаты разных прогонов были сравнимы.
+ */
+final class SyntheticTree {
+
+    /** Шаблоны включения из application.yml. */
+    static final List<String> INCLUDE_PATTERNS = List.of(
+            "**/*.txt", "**/*.xml", "*.xml", "**/*.java", "**/*.jte", "**/*.yaml", "*.yaml",
+            "**/*.yml", "*.yml", "**/*.graphqls", "**/*.properties");
+
+    /** Шаблоны исключения из application.yml. */
+    static final List<String> EXCLUDE_PATTERNS = List.of(
+            ".mvn/**", ".idea/**", ".gigaide/**", "target/**", ".gitignore", ".gitattributes", "mvnw", "mvnw.cmd");
+
+    private static final String[] ROOTS = {
+            "src/main/java/com/acme", "src/test/java/com/acme", "src/main/resources", "target/classes/com/acme",
+            ".idea", "docs", ".mvn/wrapper", "modules/core/src/main/java/com/acme"};
+    private static final String[] EXTENSIONS = {
+            ".java", ".java", ".java", ".class", ".xml", ".yml", ".properties", ".md", ".txt", ".png", ".jte"};
+    private static final String[] ROOT_FILES = {"pom.xml", "mvnw", "mvnw.cmd", ".gitignore", "README.md", "application.yaml"};
+
+    private SyntheticTree() {
+    }
+
+    /**
+     * Генерирует пути к файлам, похожие на пути в Java-репозитории: исходники, ресурсы, артефакты сборки,
+     * служебные директории IDE и файлы в корне.
+     *
+     * @param count Число путей.
+     * @return Относительные пути через "/".
+     */
+    static List<String> paths(int count) {
+        Random random = new Random(42);
+        List<String> paths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (i % 50 == 0) {
+                paths.add(ROOT_FILES[random.nextInt(ROOT_FILES.length)]);
+                continue;
+            }
+            StringBuilder path = new StringBuilder(ROOTS[random.nextInt(ROOTS.length)]);
+            int depth = 1 + random.nextInt(4);
+            for (int d = 0; d < depth; d++) {
+                path.append("/pkg").append(random.nextInt(20));
+            }
+            path.append("/File").append(i).append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]);
+            paths.add(path.toString());
+        }
+        return paths;
+    }
+
+    /**
+     * Генерирует текстовое содержимое файла заданного размера.
+     *
+     * @param bytes Размер в байтах (ASCII).
+     * @return Содержимое файла.
+     */
+    static String content(int bytes) {
+        StringBuilder content = new StringBuilder(bytes);
+        String line = "    private final String value = \"synthetic\"; // padding\n";
+        while (content.length() < bytes) {
+            content.append(line, 0, Math.min(line.length(), bytes - content.length()));
+        }
+        return content.toString();
+    }
+
+    /**
+     * Создает на диске дерево директорий: {@code fanout} поддиректорий на каждом из {@code depth} уровней
+     * и {@code filesPerDir} файлов в каждой директории, чередуя включаемые и исключаемые расширения.
+     *
+     * @param root Корневая директория.
+     * @param depth Глубина дерева.
+     * @param fanout Число поддиректорий в каждой директории.
+     * @param filesPerDir Число файлов в каждой директории.
+     * @param fileBytes Размер каждого файла.
+     * @return Число созданных файлов.
+     */
+    static int writeTree(Path root, int depth, int fanout, int filesPerDir, int fileBytes) throws IOException {
+        byte[] content = content(fileBytes).getBytes(StandardCharsets.UTF_8);
+        return writeLevel(root, depth, fanout, filesPerDir, content);
+    }
+
+    private static int writeLevel(Path dir, int depth, int fanout, int filesPerDir, byte[] content) throws IOException {
+        Files.createDirectories(dir);
+        int written = 0;
+        for (int i = 0; i < filesPerDir; i++) {
+            Files.write(dir.resolve("File" + i + EXTENSIONS[i % EXTENSIONS.length]), content);
+            written++;
+        }
+        if (depth > 0) {
+            for (int i = 0; i < fanout; i++) {
+                written += writeLevel(dir.resolve("pkg" + i), depth - 1, fanout, filesPerDir, content);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Рекурсивно удаляет директорию.
+     *
+     * @param root Корневая директория.
+     */
+    static void delete(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.githubreader;
 
+import com.example.githubreader.config.GithubRateLimitInterceptor;
+import com.example.githubreader.service.FetchMetrics;
+import com.example.githubreader.service.GithubTokenPool;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -13,7 +16,9 @@ public class GithubReaderApplication {
 	}
 
 	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
+	public RestTemplate restTemplate(FetchMetrics fetchMetrics, GithubTokenPool tokenPool) {
+		RestTemplate restTemplate = new RestTemplate();
+		restTemplate.getInterceptors().add(new GithubRateLimitInterceptor(fetchMetrics, tokenPool));
+		return restTemplate;
 	}
 }
@@ -0,0 +1,217 @@
+package com.example.githubreader;
+
+import com.example.githubreader.service.DirectoryContentService;
+import com.example.githubreader.service.GitRepositoryContentService;
+import com.example.githubreader.service.GithubContentService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Консольный режим для CI: сохраняет содержимое одного источника в единый файл и завершается.
+ * <p>
+ * Контекст поднимается без веб-сервера ({@link WebApplicationType#NONE}) и с ленивой инициализацией бинов,
+ * поэтому создаются только сервисы, нужные для выбранного источника.
+ * <pre>
+ * java -cp github-reader.jar com.example.githubreader.GithubReaderCli \
+ *     --source=directory --path=/projects/app --include=**&#47;*.java --output=out/app.txt
+ * </pre>
+ * Коды завершения: {@link #EXIT_OK}, {@link #EXIT_FAILED}, {@link #EXIT_USAGE}.
+ */
+@Slf4j
+public final class GithubReaderCli {
+
+    /** Содержимое сохранено. */
+    public static final int EXIT_OK = 0;
+    /** Источник не удалось прочитать или результат не удалось записать. */
+    public static final int EXIT_FAILED = 1;
+    /** Неверные аргументы командной строки. */
+    public static final int EXIT_USAGE = 2;
+
+    private static final Set<String> SOURCES = Set.of("github", "directory", "git");
+    private static final String USAGE = """
+            Usage: GithubReaderCli --source=github|directory|git --path=<repoUrl|directory|git repository>
+                                   [--ref=<branch|tag|sha>] [--include=<pattern,...>] [--exclude=<pattern,...>]
+                                   [--output=<file>] [--dedup] [--verbose] [--<spring.property>=<value> ...]
+            """;
+
+    private GithubReaderCli() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Разбирает аргументы, поднимает контекст без веб-сервера и сохраняет содержимое источника.
+     *
+     * @param args Аргументы командной строки.
+     * @param out Поток для итогового сообщения.
+     * @param err Поток для ошибок.
+     * @return Код завершения.
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(USAGE);
+            return EXIT_USAGE;
+        }
+
+        long started = System.nanoTime();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(GithubReaderApplication.class)
+                .web(WebApplicationType.NONE)
+                .lazyInitialization(true)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(options.springArguments())) {
+            Path output = export(context, options);
+            long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+            out.println("Saved " + options.source + " " + options.path
+                    + (output != null ? " to " + output : "") + " in " + elapsedMs + " ms");
+            return EXIT_OK;
+        } catch (Exception e) {
+            log.debug("CLI run failed", e);
+            err.println("Failed: " + rootMessage(e));
+            return EXIT_FAILED;
+        }
+    }
+
+    /**
+     * Сохраняет источник в единый файл.
+     *
+     * @return Путь к выходному файлу или null, если используется путь сервиса по умолчанию.
+     */
+    private static Path export(ConfigurableApplicationContext context, Options options) {
+        Path output = options.output != null ? Paths.get(options.output) : null;
+        switch (options.source) {
+            case "github" -> {
+                GithubContentService service = context.getBean(GithubContentService.class);
+                if (output != null) {
+                    service.saveAllContentsToSingleFile(options.path, options.ref, output);
+                } else {
+                    service.saveAllContentsToSingleFile(options.path, options.ref);
+                }
+            }
+            case "directory" -> context.getBean(DirectoryContentService.class).saveAllContentsToFile(options.path, output);
+            case "git" -> {
+                GitRepositoryContentService service = context.getBean(GitRepositoryContentService.class);
+                if (output != null) {
+                    service.saveAllContentsToFile(options.path, options.ref, output);
+                } else {
+                    service.saveAllContentsToFile(options.path, options.ref);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown source " + options.source);
+        }
+        return output;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root == e ? String.valueOf(e.getMessage()) : e.getMessage() + ": " + root.getMessage();
+    }
+
+    /**
+     * Аргументы командной строки.
+     */
+    static final class Options {
+        String source;
+        String path;
+        String ref;
+        String include;
+        String exclude;
+        String output;
+        boolean deduplicate;
+        boolean verbose;
+        final List<String> springProperties = new ArrayList<>();
+
+        /**
+         * @param args Аргументы вида {@code --name=value} и {@code --flag}.
+         * @return Разобранные аргументы.
+         * @throws IllegalArgumentException если аргументы неверны.
+         */
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+                int eq = arg.indexOf('=');
+                String name = arg.substring(2, eq > 0 ? eq : arg.length());
+                String value = eq > 0 ? arg.substring(eq + 1) : null;
+                switch (name) {
+                    case "source" -> options.source = required(name, value).toLowerCase();
+                    case "path" -> options.path = required(name, value);
+                    case "ref" -> options.ref = required(name, value);
+                    case "include" -> options.include = required(name, value);
+                    case "exclude" -> options.exclude = value != null ? value : "";
+                    case "output" -> options.output = required(name, value);
+                    case "dedup" -> options.deduplicate = true;
+                    case "verbose" -> options.verbose = true;
+                    default -> {
+                        if (!name.contains(".") || value == null) {
+                            throw new IllegalArgumentException("Unknown option: " + arg);
+                        }
+                        options.springProperties.add(arg);
+                    }
+                }
+            }
+            if (options.source == null || !SOURCES.contains(options.source)) {
+                throw new IllegalArgumentException("--source must be one of " + SOURCES);
+            }
+            if (options.path == null) {
+                throw new IllegalArgumentException("--path is required");
+            }
+            return options;
+        }
+
+        /**
+         * Переводит аргументы в свойства Spring: они имеют приоритет над application.yml.
+         */
+        String[] springArguments() {
+            Map<String, String> properties = new LinkedHashMap<>();
+            if (include != null) {
+                properties.put("github.includePatterns", include);
+            }
+            if (exclude != null) {
+                properties.put("github.excludePatterns", exclude);
+            }
+            if (deduplicate) {
+                properties.put("github.deduplicate", "true");
+            }
+            if (!verbose) {
+                properties.put("logging.level.root", "WARN");
+            }
+            properties.put("spring.jmx.enabled", "false");
+
+            List<String> arguments = new ArrayList<>();
+            properties.forEach((name, value) -> arguments.add("--" + name + "=" + value));
+            arguments.addAll(springProperties);
+            return arguments.toArray(String[]::new);
+        }
+
+        private static String required(String name, String value) {
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("--" + name + " requires a value");
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.githubreader.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Конфигурационный класс для допуска задач по оценке занимаемой памяти.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "admission")
+@Data
+public class AdmissionConfig {
+    /**
+     * Оценивать пиковую память задач и ограничивать их суммарным бюджетом кучи.
+     * Для репозитория GitHub оценка стоит одного запроса Git Trees API на коммит, для директории — обхода метаданных.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Бюджет кучи на все одновременные задачи в байтах (0 — доля heapFraction от максимального размера кучи).
+     */
+    private long budgetBytes = 0;
+
+    /**
+     * Доля максимального размера кучи, отводимая задачам, если budgetBytes не задан.
+     */
+    private double heapFraction = 0.5;
+
+    /**
+     * Байт памяти на байт исходного файла: блоки результата, их объединение и копия в кэше результатов.
+     */
+    private double memoryFactor = 3.0;
+
+    /**
+     * Максимальное число задач в очереди допуска; следующие задачи отклоняются сразу.
+     */
+    private int maxQueued = 16;
+
+    /**
+     * Максимальное ожидание в очереди допуска; по истечении задача отклоняется. Не задано или 0 — без ограничения.
+     */
+    private Duration maxWait = Duration.ofMinutes(2);
+}
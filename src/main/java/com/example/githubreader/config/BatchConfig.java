@@ -0,0 +1,28 @@
+package com.example.githubreader.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Конфигурационный класс для пакетной обработки и общего бюджета запросов.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "batch")
+@Data
+public class BatchConfig {
+    /**
+     * Максимальное число одновременных операций ввода-вывода (HTTP-запросов и чтений файлов) на все задачи.
+     */
+    private int maxConcurrency = 32;
+
+    /**
+     * Ограничение числа операций в секунду на все задачи (0 — без ограничения).
+     */
+    private double requestsPerSecond = 0;
+
+    /**
+     * Директория для результатов пакетной обработки.
+     */
+    private String outputDir = "output/batch";
+}
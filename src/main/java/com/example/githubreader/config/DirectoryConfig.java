@@ -15,4 +15,21 @@ public class DirectoryConfig {
      * Путь к директории по умолчанию.
      */
     private String defaultPath;
-}
\ No newline at end of file
+
+    /**
+     * Учитывать правила {@code .gitignore} (включая вложенные) и {@code .git/info/exclude} при обходе:
+     * игнорируемые файлы не читаются, игнорируемые директории не обходятся. Применяются вместе с include/exclude шаблонами.
+     */
+    private boolean respectGitignore = false;
+
+    /**
+     * Этапы конвейера: list — одновременные листинги директорий при обходе, fetch — одновременные чтения файлов.
+     * Запись в единый файл всегда выполняется одним обработчиком.
+     */
+    private PipelineSettings pipeline = new PipelineSettings();
+
+    /**
+     * Срок обхода директории и реакция на ошибки чтения отдельных файлов (fail-fast или best-effort).
+     */
+    private JobSettings job = new JobSettings();
+}
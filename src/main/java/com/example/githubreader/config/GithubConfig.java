@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -18,6 +19,22 @@ public class GithubConfig {
      */
     private String token;
 
+    /**
+     * Дополнительные токены GitHub API. Вместе с token образуют пул: каждый запрос получает токен с наибольшим
+     * остатком лимита, исчерпанный токен не используется до сброса лимита.
+     */
+    private List<String> tokens;
+
+    /**
+     * Максимальное ожидание сброса лимита, если исчерпаны все токены пула; дольше — запрос завершается ошибкой.
+     */
+    private Duration rateLimitWait = Duration.ofMinutes(1);
+
+    /**
+     * Базовый URL REST API GitHub (для GitHub Enterprise или локальной заглушки API).
+     */
+    private String apiUrl = "https://api.github.com";
+
     /**
      * Список шаблонов для включения репозиториев.
      */
@@ -32,4 +49,147 @@ public class GithubConfig {
      * Путь к файлу для сохранения содержимого одного файла.
      */
     private String singleFilePath = "output/all_contents.txt";
+
+    /**
+     * Записывать одинаковые файлы в единый файл только один раз (повторы заменяются ссылкой на первый путь).
+     */
+    private boolean deduplicate = false;
+
+    /**
+     * Способ скачивания файлов: по одному REST-запросу на файл или пакетами через GraphQL API.
+     */
+    private FetchMode fetchMode = FetchMode.REST;
+
+    /**
+     * Настройки пакетного скачивания через GraphQL API.
+     */
+    private Graphql graphql = new Graphql();
+
+    /**
+     * Настройки кэшей, привязанных к SHA коммита.
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * Настройки хеджирования скачивания файлов.
+     */
+    private Hedge hedge = new Hedge();
+
+    /**
+     * Этапы конвейера обхода через REST API: list — одновременные листинги директорий, filter, fetch — скачивание
+     * файлов, write — передача файлов приемникам (запись зеркала, сборка единого файла).
+     */
+    private PipelineSettings pipeline = new PipelineSettings();
+
+    /**
+     * Срок обхода репозитория и реакция на ошибки отдельных файлов и директорий (fail-fast или best-effort).
+     */
+    private JobSettings job = new JobSettings();
+
+    /**
+     * Способ скачивания содержимого файлов.
+     */
+    public enum FetchMode {
+        REST,
+        GRAPHQL
+    }
+
+    /**
+     * Настройки пакетного скачивания файлов через GraphQL API.
+     */
+    @Data
+    public static class Graphql {
+        /**
+         * URL GraphQL API.
+         */
+        private String url = "https://api.github.com/graphql";
+
+        /**
+         * Максимальное число файлов в одном запросе.
+         */
+        private int maxBatchFiles = 100;
+
+        /**
+         * Максимальный суммарный размер файлов в одном запросе (байт).
+         */
+        private long maxBatchBytes = 2_000_000;
+
+        /**
+         * Файлы больше этого размера (байт) скачиваются через REST.
+         */
+        private long maxBlobBytes = 512_000;
+
+        /**
+         * Число одновременно выполняемых GraphQL-запросов.
+         */
+        private int concurrentBatches = 4;
+    }
+
+    /**
+     * Настройки хеджирования: дублирующий запрос файла, если ответ задерживается дольше перцентиля недавних задержек.
+     */
+    @Data
+    public static class Hedge {
+        /**
+         * Включает хеджирование скачивания файлов.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Перцентиль недавних задержек (0..100), после которого отправляется дублирующий запрос.
+         */
+        private double percentile = 95;
+
+        /**
+         * Максимальная доля дублирующих запросов от общего числа запросов.
+         */
+        private double maxHedgeRatio = 0.05;
+
+        /**
+         * Минимальная задержка перед дублирующим запросом (мс).
+         */
+        private long minDelayMs = 20;
+
+        /**
+         * Число замеров, после которого начинается хеджирование.
+         */
+        private int minSamples = 50;
+
+        /**
+         * Число последних замеров, по которым оценивается перцентиль.
+         */
+        private int window = 1024;
+    }
+
+    /**
+     * Настройки кэширования листингов, содержимого файлов и готовых результатов.
+     */
+    @Data
+    public static class Cache {
+        /**
+         * Включает кэширование.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Максимальное число кэшируемых листингов директорий.
+         */
+        private int maxListings = 10_000;
+
+        /**
+         * Максимальный объем кэшируемых файлов (по SHA blob-объекта), в символах содержимого.
+         */
+        private long maxBlobBytes = 64L * 1024 * 1024;
+
+        /**
+         * Максимальный объем готовых результатов каждого вида (единые файлы, листинги, дельты, отдельные файлы),
+         * в символах содержимого. У каждого вида свой бюджет, поэтому небольшие результаты не вытесняют единые файлы.
+         */
+        private long maxResultBytes = 64L * 1024 * 1024;
+
+        /**
+         * Максимальное число кэшируемых статистик репозиториев.
+         */
+        private int maxStats = 256;
+    }
 }
\ No newline at end of file
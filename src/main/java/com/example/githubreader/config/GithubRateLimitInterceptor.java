@@ -0,0 +1,170 @@
+package com.example.githubreader.config;
+
+import com.example.githubreader.service.FetchMetrics;
+import com.example.githubreader.service.GithubTokenPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Перехватчик HTTP-запросов, который передает в метрики остаток лимита GitHub API
+ * и объем полученных данных. Объем считается по прочитанным байтам тела ответа и учитывается при закрытии
+ * ответа, поэтому ответы без Content-Length (chunked, сжатые) тоже попадают в метрику.
+ * <p>
+ * Если настроены токены, заголовок Authorization подставляется из {@link GithubTokenPool}: запрос получает токен
+ * с наибольшим запасом лимита, а ответ обновляет остаток и время сброса этого токена. Запрос, отклоненный
+ * из-за исчерпания лимита токена, повторяется с другим доступным токеном. Запросы к хостам вне API (скачивания
+ * raw-файлов) выполняются без пула и сохраняют заголовок Authorization, заданный вызывающим.
+ */
+@RequiredArgsConstructor
+public class GithubRateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final String RATE_LIMIT_REMAINING = "X-RateLimit-Remaining";
+
+    private final FetchMetrics fetchMetrics;
+    private final GithubTokenPool tokenPool;
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        ClientHttpResponse response = tokenPool.size() > 0 && tokenPool.isApiRequest(request.getURI())
+                ? executeWithPool(request, body, execution)
+                : execution.execute(request, body);
+        String remaining = response.getHeaders().getFirst(RATE_LIMIT_REMAINING);
+        if (remaining != null) {
+            try {
+                fetchMetrics.rateLimitRemaining(Long.parseLong(remaining.trim()));
+            } catch (NumberFormatException ignored) {
+                // Некорректный заголовок не должен ломать запрос
+            }
+        }
+        return new CountingResponse(response);
+    }
+
+    private ClientHttpResponse executeWithPool(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String resource = GithubTokenPool.resourceOf(request.getURI());
+        // Каждый токен пробуется не больше одного раза
+        for (int attempt = 1; ; attempt++) {
+            GithubTokenPool.Lease lease = tokenPool.acquire(resource);
+            request.getHeaders().setBearerAuth(lease.token());
+            ClientHttpResponse response;
+            try {
+                response = execution.execute(request, body);
+            } catch (IOException | RuntimeException e) {
+                lease.release();
+                throw e;
+            }
+            boolean limited = lease.complete(response.getStatusCode().value(), response.getHeaders());
+            if (!limited || attempt >= tokenPool.size() || !tokenPool.hasAvailable(resource)) {
+                return response;
+            }
+            response.close();
+        }
+    }
+
+    /**
+     * Ответ, считающий прочитанные байты тела.
+     */
+    private final class CountingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private CountingInputStream body;
+        private boolean closed;
+
+        private CountingResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new CountingInputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (!closed && body != null && body.count > 0) {
+                    fetchMetrics.bytesIn("github", body.count);
+                }
+                closed = true;
+            }
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+        private long marked;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        // Байты, прочитанные повторно после reset (проверка наличия тела), не учитываются дважды
+        @Override
+        public synchronized void mark(int readLimit) {
+            super.mark(readLimit);
+            marked = count;
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            super.reset();
+            count = marked;
+        }
+    }
+}
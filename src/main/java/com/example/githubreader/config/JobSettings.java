@@ -0,0 +1,30 @@
+package com.example.githubreader.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Срок выполнения и реакция задачи на ошибки отдельных файлов и директорий.
+ */
+@Data
+public class JobSettings {
+
+    /**
+     * Срок обхода источника; по истечении все этапы прерываются (вместе с их HTTP-запросами) и задача завершается ошибкой.
+     * Не задан — без срока.
+     */
+    private Duration timeout;
+
+    /**
+     * Реакция на ошибку файла или поддиректории.
+     */
+    private FailureMode failureMode = FailureMode.BEST_EFFORT;
+
+    public enum FailureMode {
+        /** Первая ошибка прерывает задачу, незавершенные запросы отменяются. */
+        FAIL_FAST,
+        /** Задача завершается с тем, что удалось получить; пропущенные пути перечисляются в результате и в логе. */
+        BEST_EFFORT
+    }
+}
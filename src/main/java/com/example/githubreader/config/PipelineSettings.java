@@ -0,0 +1,58 @@
+package com.example.githubreader.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Настройки этапов конвейера list → filter → fetch → format → write.
+ * Этапы соединены ограниченными очередями, поэтому число файлов в работе ограничено их размером, а не размером
+ * источника. Память задачи ограничена так же только при потоковой записи результата (зеркало, единый файл
+ * директории); единый файл и листинг GitHub возвращаются строкой и накапливаются целиком.
+ */
+@Data
+public class PipelineSettings {
+
+    /**
+     * Получение листингов (директорий, деревьев). Размер очереди не используется: это первый этап.
+     */
+    private Stage list = new Stage(8, 0);
+
+    /**
+     * Проверка путей по шаблонам и дедупликация по SHA из листинга.
+     */
+    private Stage filter = new Stage(1, 1024);
+
+    /**
+     * Скачивание (чтение) содержимого файлов.
+     */
+    private Stage fetch = new Stage(16, 256);
+
+    /**
+     * Формирование блоков {@code File: ...} (декодирование, дедупликация по содержимому).
+     */
+    private Stage format = new Stage(2, 256);
+
+    /**
+     * Запись результата.
+     */
+    private Stage write = new Stage(1, 256);
+
+    /**
+     * Настройки одного этапа.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stage {
+        /**
+         * Число параллельных обработчиков этапа.
+         */
+        private int parallelism;
+
+        /**
+         * Размер входной очереди этапа.
+         */
+        private int queueCapacity;
+    }
+}
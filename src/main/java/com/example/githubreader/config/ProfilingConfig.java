@@ -0,0 +1,28 @@
+package com.example.githubreader.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Конфигурационный класс для профилирования задач.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "profiling")
+@Data
+public class ProfilingConfig {
+    /**
+     * Формировать JSON-отчет с этапами и временем обработки каждого файла для каждой задачи.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Число самых медленных файлов в разделе slowest отчета.
+     */
+    private int topN = 10;
+
+    /**
+     * Число последних отчетов, доступных через /api/profiles.
+     */
+    private int maxReports = 50;
+}
@@ -0,0 +1,34 @@
+package com.example.githubreader.controller;
+
+import com.example.githubreader.model.BatchReport;
+import com.example.githubreader.model.ContentSourceRequest;
+import com.example.githubreader.service.BatchJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Контроллер для пакетной обработки нескольких источников.
+ */
+@RestController
+@RequestMapping("/api/batch")
+@RequiredArgsConstructor
+public class BatchController {
+
+    private final BatchJobService batchJobService;
+
+    /**
+     * Сохраняет содержимое каждого источника в отдельный файл под общим бюджетом запросов.
+     *
+     * @param sources Список источников: sourceType ("github" или "directory") и path.
+     * @return Отчет с результатом и пропускной способностью по каждому источнику.
+     */
+    @PostMapping("/save-all")
+    public BatchReport saveAll(@RequestBody List<ContentSourceRequest> sources) {
+        return batchJobService.runBatch(sources);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.githubreader.controller;
 
 import com.example.githubreader.model.ContentSourceRequest;
 import com.example.githubreader.service.DirectoryContentService;
+import com.example.githubreader.service.GitRepositoryContentService;
 import com.example.githubreader.service.GithubContentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -18,11 +19,14 @@ public class ContentFormController {
 
     private final GithubContentService githubContentService;
     private final DirectoryContentService directoryContentService;
+    private final GitRepositoryContentService gitRepositoryContentService;
 
     @Autowired
-    public ContentFormController(GithubContentService githubContentService, DirectoryContentService directoryContentService) {
+    public ContentFormController(GithubContentService githubContentService, DirectoryContentService directoryContentService,
+                                 GitRepositoryContentService gitRepositoryContentService) {
         this.githubContentService = githubContentService;
         this.directoryContentService = directoryContentService;
+        this.gitRepositoryContentService = gitRepositoryContentService;
     }
 
     /**
@@ -55,6 +59,8 @@ public class ContentFormController {
                 githubContentService.saveAllContentsToSingleFile(contentRequest.getPath());
             } else if ("directory".equalsIgnoreCase(contentRequest.getSourceType())) {
                 directoryContentService.saveAllContentsToFile(contentRequest.getPath());
+            } else if ("git".equalsIgnoreCase(contentRequest.getSourceType())) {
+                gitRepositoryContentService.saveAllContentsToFile(contentRequest.getPath(), contentRequest.getRef());
             } else {
                 throw new IllegalArgumentException("Invalid source type: " + contentRequest.getSourceType());
             }
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * Контроллер для работы с содержимым локальных директорий.
@@ -24,16 +25,18 @@ public class DirectoryController {
      * Считывает содержимое всех файлов из указанной директории и сохраняет в один файл.
      *
      * @param directoryPath Путь к директории (опционально, по умолчанию из конфигурации)
+     * @param paths Поддиректории, которыми ограничивается обход (опционально, по умолчанию вся директория)
      * @return Сообщение об успешном сохранении
      */
     @PostMapping("/save-all-to-file")
     public String saveDirectoryContentsToFile(
-            @RequestParam(required = false) String directoryPath
+            @RequestParam(required = false) String directoryPath,
+            @RequestParam(required = false) List<String> paths
     ) {
         String decodedPath = directoryPath != null
                 ? URLDecoder.decode(directoryPath, StandardCharsets.UTF_8)
                 : null;
-        directoryContentService.saveAllContentsToFile(decodedPath);
+        directoryContentService.saveAllContentsToFile(decodedPath, paths != null ? paths : List.of(), null);
         return "All directory contents saved successfully to file";
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.example.githubreader.controller;
+
+import com.example.githubreader.service.GitRepositoryContentService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Контроллер для работы с локальными git-репозиториями (рабочая копия, .git или bare-репозиторий).
+ */
+@RestController
+@RequestMapping("/api/git")
+@RequiredArgsConstructor
+public class GitController {
+
+    private final GitRepositoryContentService gitRepositoryContentService;
+
+    /**
+     * Сохраняет содержимое репозитория на указанной ревизии в один файл.
+     *
+     * @param gitPath Путь к рабочей копии, директории .git или bare-репозиторию
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию HEAD)
+     * @return Сообщение об успешном сохранении
+     */
+    @PostMapping("/save-all-to-file")
+    public String saveAllToFile(
+            @RequestParam String gitPath,
+            @RequestParam(required = false) String ref
+    ) {
+        gitRepositoryContentService.saveAllContentsToFile(URLDecoder.decode(gitPath, StandardCharsets.UTF_8), ref);
+        return "All git repository contents saved successfully to file";
+    }
+
+    /**
+     * Сохраняет файлы репозитория на указанной ревизии в выходную директорию.
+     *
+     * @param gitPath Путь к рабочей копии, директории .git или bare-репозиторию
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию HEAD)
+     * @return Сообщение об успешном сохранении
+     */
+    @PostMapping("/save-contents")
+    public String saveContents(
+            @RequestParam String gitPath,
+            @RequestParam(required = false) String ref
+    ) {
+        gitRepositoryContentService.saveRepositoryContents(URLDecoder.decode(gitPath, StandardCharsets.UTF_8), ref);
+        return "Git repository contents saved successfully to output directory";
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.githubreader.controller;
 
+import com.example.githubreader.model.RepositoryStats;
+import com.example.githubreader.model.TreePage;
 import com.example.githubreader.service.GithubContentService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Контроллер для работы с GitHub репозиториями.
@@ -21,40 +24,107 @@ public class GithubController {
      *
      * @param repoUrl URL репозитория.
      * @param filePath Путь к файлу в репозитории.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — ветка по умолчанию).
      * @return Содержимое файла.
      */
     @GetMapping("/content")
     public String getFileContent(
             @RequestParam String repoUrl,
-            @RequestParam String filePath
+            @RequestParam String filePath,
+            @RequestParam(required = false) String ref
     ) {
-        return githubContentService.getFileContent(repoUrl, filePath);
+        return githubContentService.getFileContent(repoUrl, filePath, ref);
     }
 
     /**
      * Получает список содержимого репозитория.
      *
      * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — ветка по умолчанию).
+     * @param paths Поддеревья, которыми ограничивается обход (опционально, по умолчанию весь репозиторий).
      * @return Список содержимого репозитория.
      */
     @GetMapping("/repo-contents")
     public List<String> getRepoContents(
-            @RequestParam String repoUrl
+            @RequestParam String repoUrl,
+            @RequestParam(required = false) String ref,
+            @RequestParam(required = false) List<String> paths
+    ) {
+        return githubContentService.getRepositoryContents(repoUrl, ref, orAll(paths));
+    }
+
+    /**
+     * Возвращает статистику репозитория по метаданным, без скачивания содержимого файлов.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — ветка по умолчанию).
+     * @param paths Поддеревья, которыми ограничивается подсчет (опционально, по умолчанию весь репозиторий).
+     * @param top Число самых больших файлов в ответе.
+     * @return Число и объем файлов, разбивка по расширениям и самые большие файлы.
+     */
+    @GetMapping("/stats")
+    public RepositoryStats getRepoStats(
+            @RequestParam String repoUrl,
+            @RequestParam(required = false) String ref,
+            @RequestParam(required = false) List<String> paths,
+            @RequestParam(defaultValue = "10") int top
     ) {
-        return githubContentService.getRepositoryContents(repoUrl);
+        return githubContentService.getRepositoryStats(repoUrl, ref, orAll(paths), top);
+    }
+
+    /**
+     * Возвращает один уровень дерева репозитория постранично, без скачивания содержимого файлов.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально; для повторных запросов лучше передавать commitSha из ответа).
+     * @param path Директория (опционально, по умолчанию — корень).
+     * @param cursor Курсор следующей страницы из предыдущего ответа (опционально).
+     * @param limit Размер страницы.
+     * @return Записи директории и курсор следующей страницы.
+     */
+    @GetMapping("/browse")
+    public TreePage browse(
+            @RequestParam String repoUrl,
+            @RequestParam(required = false) String ref,
+            @RequestParam(required = false) String path,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        return githubContentService.browseTree(repoUrl, ref, path, cursor, limit);
+    }
+
+    /**
+     * Возвращает единый файл только из файлов, измененных между двумя ревизиями, со статусом изменения.
+     *
+     * @param repoUrl URL репозитория.
+     * @param base Базовая ветка, тег или SHA коммита.
+     * @param head Ветка, тег или SHA коммита с изменениями (опционально, по умолчанию — ветка по умолчанию).
+     * @return Блоки {@code File: <путь> (<статус>)} с содержимым на ревизии head.
+     */
+    @GetMapping("/delta")
+    public String getDelta(
+            @RequestParam String repoUrl,
+            @RequestParam String base,
+            @RequestParam(required = false) String head
+    ) {
+        return githubContentService.getDeltaContents(repoUrl, base, head);
     }
 
     /**
      * Сохраняет содержимое репозитория в выходную директорию.
      *
      * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — ветка по умолчанию).
+     * @param paths Поддеревья, которыми ограничивается обход (опционально, по умолчанию весь репозиторий).
      * @return Сообщение об успешном сохранении.
      */
     @PostMapping("/save-contents")
     public String saveRepoContents(
-            @RequestParam String repoUrl
+            @RequestParam String repoUrl,
+            @RequestParam(required = false) String ref,
+            @RequestParam(required = false) List<String> paths
     ) {
-        githubContentService.saveRepositoryContents(repoUrl);
+        githubContentService.saveRepositoryContents(repoUrl, ref, orAll(paths));
         return "Contents saved successfully to output directory";
     }
 
@@ -62,13 +132,40 @@ public class GithubController {
      * Сохраняет все содержимое репозитория в один файл.
      *
      * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — ветка по умолчанию).
+     * @param paths Поддеревья, которыми ограничивается обход (опционально, по умолчанию весь репозиторий).
      * @return Сообщение об успешном сохранении.
      */
     @PostMapping("/save-all-to-single-file")
     public String saveAllToSingleFile(
-            @RequestParam String repoUrl
+            @RequestParam String repoUrl,
+            @RequestParam(required = false) String ref,
+            @RequestParam(required = false) List<String> paths
     ) {
-        githubContentService.saveAllContentsToSingleFile(repoUrl);
+        githubContentService.saveAllContentsToSingleFile(repoUrl, ref, orAll(paths));
         return "All contents saved successfully to single file";
     }
-}
\ No newline at end of file
+
+    /**
+     * Получает несколько результатов за один обход репозитория: каждый файл скачивается один раз.
+     *
+     * @param repoUrl URL репозитория.
+     * @param outputs Результаты: MIRROR, SINGLE_FILE, LISTING (через запятую).
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — ветка по умолчанию).
+     * @param paths Поддеревья, которыми ограничивается обход (опционально, по умолчанию весь репозиторий).
+     * @return Листинг, если запрошен LISTING, иначе пустой список.
+     */
+    @PostMapping("/export")
+    public List<String> export(
+            @RequestParam String repoUrl,
+            @RequestParam Set<GithubContentService.Output> outputs,
+            @RequestParam(required = false) String ref,
+            @RequestParam(required = false) List<String> paths
+    ) {
+        return githubContentService.exportRepositoryContents(repoUrl, ref, outputs, orAll(paths));
+    }
+
+    private static List<String> orAll(List<String> paths) {
+        return paths != null ? paths : List.of();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.githubreader.controller;
+
+import com.example.githubreader.service.OutputFileService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Контроллер для скачивания сгенерированных файлов из output/.
+ * <p>
+ * Ответ с телом {@link Resource} Spring MVC отдает потоком из файла, не загружая его в память; запросы Range
+ * обслуживаются через {@link org.springframework.core.io.support.ResourceRegion} (206 Partial Content),
+ * а If-None-Match / If-Modified-Since — ответом 304 по ETag и Last-Modified.
+ */
+@RestController
+@RequestMapping("/api/outputs")
+@RequiredArgsConstructor
+public class OutputController {
+
+    private final OutputFileService outputFileService;
+
+    /**
+     * Скачивает сгенерированный файл; поддерживает Range, условные запросы и предварительно сжатые варианты.
+     *
+     * @param path Путь к файлу относительно output/.
+     * @param acceptEncoding Заголовок Accept-Encoding: при наличии {@code <файл>.br} или {@code <файл>.gz} отдается сжатый вариант.
+     * @return Файл или 404, если файл не найден.
+     */
+    @GetMapping
+    public ResponseEntity<Resource> download(
+            @RequestParam String path,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return outputFileService.find(path, acceptEncoding)
+                .map(file -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                            .contentType(file.getMediaType())
+                            .eTag(file.getEtag())
+                            .lastModified(file.getLastModified())
+                            .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                            .header(HttpHeaders.CONTENT_DISPOSITION,
+                                    ContentDisposition.attachment().filename(file.getFileName()).build().toString());
+                    if (file.isHasVariants()) {
+                        response.varyBy(HttpHeaders.ACCEPT_ENCODING);
+                    }
+                    if (file.getEncoding() != null) {
+                        response.header(HttpHeaders.CONTENT_ENCODING, file.getEncoding());
+                    }
+                    return response.body(file.getResource());
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.githubreader.controller;
+
+import com.example.githubreader.model.JobProfileReport;
+import com.example.githubreader.service.JobProfiler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Контроллер для получения отчетов профилирования задач (при profiling.enabled=true).
+ */
+@RestController
+@RequestMapping("/api/profiles")
+@RequiredArgsConstructor
+public class ProfileController {
+
+    private final JobProfiler jobProfiler;
+
+    /**
+     * Возвращает идентификаторы последних профилированных задач, от старых к новым.
+     *
+     * @return Список идентификаторов задач.
+     */
+    @GetMapping
+    public List<String> listProfiles() {
+        return jobProfiler.reports().stream().map(JobProfileReport::getJobId).toList();
+    }
+
+    /**
+     * Возвращает отчет профилирования задачи.
+     *
+     * @param jobId Идентификатор задачи.
+     * @return Отчет или 404, если отчет не найден.
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<JobProfileReport> getProfile(@PathVariable String jobId) {
+        return ResponseEntity.of(jobProfiler.report(jobId));
+    }
+}
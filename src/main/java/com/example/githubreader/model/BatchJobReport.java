@@ -0,0 +1,20 @@
+package com.example.githubreader.model;
+
+import lombok.Value;
+
+/**
+ * Результат обработки одного источника в пакетной задаче.
+ */
+@Value
+public class BatchJobReport {
+    String sourceType;
+    String path;
+    boolean success;
+    String error;          // Сообщение об ошибке, если обработка не удалась
+    String outputFile;
+    long durationMs;
+    long requests;         // Число операций ввода-вывода (HTTP-запросов или чтений файлов)
+    long bytesWritten;
+    double requestsPerSecond;
+    double bytesPerSecond;
+}
@@ -0,0 +1,19 @@
+package com.example.githubreader.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Сводный результат пакетной обработки нескольких источников.
+ */
+@Value
+public class BatchReport {
+    List<BatchJobReport> jobs;
+    int failedJobs;
+    long durationMs;
+    long requests;
+    long bytesWritten;
+    double requestsPerSecond;
+    double bytesPerSecond;
+}
@@ -4,6 +4,7 @@ import lombok.Data;
 
 @Data
 public class ContentSourceRequest {
-    private String sourceType; // "github" или "directory"
-    private String path;       // repoUrl или directoryPath в зависимости от sourceType
+    private String sourceType; // "github", "directory" или "git"
+    private String path;       // repoUrl, directoryPath или путь к git-репозиторию в зависимости от sourceType
+    private String ref;        // Ветка, тег или SHA коммита для "github" и "git" (опционально)
 }
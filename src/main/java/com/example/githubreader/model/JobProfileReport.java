@@ -0,0 +1,49 @@
+package com.example.githubreader.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Отчет профилирования одной задачи: этапы и время обработки каждого файла.
+ */
+@Value
+public class JobProfileReport {
+    String jobId;
+    String source;         // github, directory или git
+    String operation;      // single-file или mirror
+    String target;         // URL репозитория или путь к источнику
+    String outputFile;
+    String startedAt;
+    double durationMs;
+    String status;         // ok или failed
+    String error;
+    List<PhaseTiming> phases;
+    List<FileTiming> files;
+    List<FileTiming> slowest;  // Самые медленные файлы по totalMs
+
+    /**
+     * Этап задачи на временной шкале (смещение от начала задачи).
+     */
+    @Value
+    public static class PhaseTiming {
+        String name;
+        double startMs;
+        double durationMs;
+    }
+
+    /**
+     * Время обработки одного файла.
+     */
+    @Value
+    public static class FileTiming {
+        String path;
+        long bytes;
+        double queueWaitMs;    // Ожидание разрешения общего бюджета запросов
+        double networkMs;      // Скачивание (для локальных источников — чтение)
+        double writeMs;
+        double totalMs;
+        int retries;
+        String status;         // ok, cached, HTTP <код> или error: <сообщение>
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.githubreader.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Статистика подходящих по шаблонам файлов репозитория, посчитанная только по метаданным дерева
+ * (без скачивания содержимого).
+ */
+@Value
+public class RepositoryStats {
+    String repoUrl;
+    String commitSha;
+    List<String> paths;        // Префиксы поддеревьев, пустой список — весь репозиторий
+    String source;             // tree — один запрос Git Trees API, contents — обход листингов (дерево обрезано GitHub)
+    long fileCount;
+    long totalBytes;
+    long excludedCount;        // Файлы, не прошедшие include/exclude шаблоны
+    List<ExtensionStats> extensions;   // По убыванию объема
+    List<FileSize> largestFiles;
+    List<String> missing;      // Директории, которые не удалось прочитать: статистика по ним неполная
+
+    /**
+     * Число и объем файлов одного расширения.
+     */
+    @Value
+    public static class ExtensionStats {
+        String extension;      // Без точки, в нижнем регистре; пустая строка — без расширения
+        long files;
+        long bytes;
+    }
+
+    /**
+     * Размер одного файла.
+     */
+    @Value
+    public static class FileSize {
+        String path;
+        long bytes;
+    }
+}
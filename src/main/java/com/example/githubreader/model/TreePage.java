@@ -0,0 +1,29 @@
+package com.example.githubreader.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Страница одного уровня дерева репозитория на коммите: директории, затем файлы, по имени.
+ */
+@Value
+public class TreePage {
+    String repoUrl;
+    String commitSha;          // Передается как ref в следующих запросах, чтобы не разрешать ветку повторно
+    String path;               // Директория, пустая строка — корень
+    List<TreeEntry> entries;
+    String nextCursor;         // null на последней странице
+
+    /**
+     * Запись директории.
+     */
+    @Value
+    public static class TreeEntry {
+        String name;
+        String path;
+        String type;           // file, dir, symlink, submodule
+        long size;             // Для директорий 0
+        String sha;
+    }
+}
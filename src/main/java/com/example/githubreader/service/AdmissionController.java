@@ -0,0 +1,234 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.AdmissionConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Допуск задач по оценке пиковой памяти: сумма оценок одновременно выполняемых задач не превышает бюджет кучи.
+ * <p>
+ * Задача, которая не помещается в свободный остаток бюджета, ждет в очереди; очередь обслуживается строго по порядку,
+ * поэтому большая задача не голодает из-за потока небольших. Задача отклоняется сразу, если ее оценка больше всего
+ * бюджета или очередь заполнена, и после {@code admission.maxWait} ожидания.
+ * <p>
+ * Метрики: {@code admission.queued} — задачи в очереди, {@code admission.reserved.bytes} — занятая часть бюджета,
+ * {@code admission.wait} — время ожидания допуска, {@code admission.rejected} — отклоненные задачи по причине.
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    private final boolean enabled;
+    private final long budgetBytes;
+    private final double memoryFactor;
+    private final int maxQueued;
+    private final long maxWaitNanos;
+    private final MeterRegistry registry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<Object> queue = new ArrayDeque<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    public AdmissionController(AdmissionConfig config, MeterRegistry registry) {
+        this.enabled = config.isEnabled();
+        this.budgetBytes = config.getBudgetBytes() > 0
+                ? config.getBudgetBytes()
+                : (long) (Runtime.getRuntime().maxMemory() * config.getHeapFraction());
+        this.memoryFactor = config.getMemoryFactor();
+        this.maxQueued = Math.max(0, config.getMaxQueued());
+        Duration maxWait = config.getMaxWait();
+        this.maxWaitNanos = maxWait != null && !maxWait.isZero() && !maxWait.isNegative() ? maxWait.toNanos() : 0;
+        this.registry = registry;
+        Gauge.builder("admission.queued", queued, AtomicInteger::get)
+                .description("Jobs waiting for a share of the heap budget")
+                .register(registry);
+        Gauge.builder("admission.reserved.bytes", reservedBytes, AtomicLong::get)
+                .description("Estimated peak memory of admitted jobs")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("admission.budget.bytes", this, controller -> controller.budgetBytes)
+                .description("Heap budget shared by all jobs")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * @return true, если задачи нужно оценивать и допускать; иначе {@link #admit} пропускает их сразу.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param sourceBytes Объем исходных файлов, одновременно находящихся в памяти задачи.
+     * @return Оценка пиковой памяти задачи.
+     */
+    public long estimate(long sourceBytes) {
+        return (long) (Math.max(0, sourceBytes) * memoryFactor);
+    }
+
+    /**
+     * Допускает задачу: резервирует ее оценку в бюджете, при нехватке ждет в очереди.
+     *
+     * @param source Источник: github или directory.
+     * @param target Репозиторий или директория задачи (для сообщений).
+     * @param estimatedBytes Оценка пиковой памяти задачи.
+     * @return Допуск, который нужно закрыть по завершении задачи.
+     * @throws RejectedException если задача не помещается в бюджет, очередь заполнена или ожидание истекло.
+     */
+    public Permit admit(String source, String target, long estimatedBytes) {
+        if (!enabled) {
+            return new Permit(0);
+        }
+        long bytes = Math.max(0, estimatedBytes);
+        if (bytes > budgetBytes) {
+            throw reject(source, "too_large", "Job " + target + " needs about " + megabytes(bytes)
+                    + " MB of heap, the budget is " + megabytes(budgetBytes) + " MB");
+        }
+
+        long started = System.nanoTime();
+        lock.lock();
+        try {
+            if (queue.isEmpty() && reservedBytes.get() + bytes <= budgetBytes) {
+                return reserve(source, bytes, started);
+            }
+            if (queue.size() >= maxQueued) {
+                throw reject(source, "queue_full", "Admission queue is full (" + maxQueued + " jobs), rejected " + target);
+            }
+            Object ticket = new Object();
+            queue.addLast(ticket);
+            queued.incrementAndGet();
+            log.debug("Job {} ({} MB) queued for admission behind {} jobs", target, megabytes(bytes), queue.size() - 1);
+            try {
+                while (queue.peekFirst() != ticket || reservedBytes.get() + bytes > budgetBytes) {
+                    if (maxWaitNanos == 0) {
+                        changed.await();
+                        continue;
+                    }
+                    long remaining = maxWaitNanos - (System.nanoTime() - started);
+                    if (remaining <= 0) {
+                        throw reject(source, "timeout", "Job " + target + " was not admitted within "
+                                + Duration.ofNanos(maxWaitNanos));
+                    }
+                    changed.awaitNanos(remaining);
+                }
+                return reserve(source, bytes, started);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for admission", e);
+            } finally {
+                queue.remove(ticket);
+                queued.decrementAndGet();
+                // Следующая задача очереди могла уже поместиться в остаток бюджета
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Максимальное число задач в очереди допуска.
+     */
+    public int maxQueued() {
+        return maxQueued;
+    }
+
+    /**
+     * @return Число задач в очереди допуска.
+     */
+    public int queued() {
+        return queued.get();
+    }
+
+    /**
+     * @return Занятая допущенными задачами часть бюджета.
+     */
+    public long reservedBytes() {
+        return reservedBytes.get();
+    }
+
+    private Permit reserve(String source, long bytes, long started) {
+        reservedBytes.addAndGet(bytes);
+        Timer.builder("admission.wait")
+                .description("Time a job waited for a share of the heap budget")
+                .tag("source", source)
+                .register(registry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return new Permit(bytes);
+    }
+
+    private void release(long bytes) {
+        if (bytes == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            reservedBytes.addAndGet(-bytes);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RejectedException reject(String source, String reason, String message) {
+        Counter.builder("admission.rejected")
+                .tag("source", source)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+        log.warn(message);
+        return new RejectedException(message);
+    }
+
+    private static long megabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+
+    /**
+     * Допуск задачи; закрытие возвращает ее оценку в бюджет.
+     */
+    public final class Permit implements AutoCloseable {
+        private final long bytes;
+        private boolean released;
+
+        private Permit(long bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(bytes);
+            }
+        }
+    }
+
+    /**
+     * Задача отклонена: не помещается в бюджет кучи сейчас или в принципе.
+     */
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public static final class RejectedException extends RuntimeException {
+        RejectedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.BatchConfig;
+import com.example.githubreader.model.BatchJobReport;
+import com.example.githubreader.model.BatchReport;
+import com.example.githubreader.model.ContentSourceRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис пакетной обработки нескольких репозиториев и директорий.
+ * <p>
+ * Все источники обрабатываются одновременно, но их операции ввода-вывода проходят через общий
+ * {@link FetchBudget}, который ограничивает суммарный параллелизм и частоту запросов
+ * и распределяет их между источниками поровну. При включенном допуске задач ({@link AdmissionController})
+ * одновременно выполняется не больше {@code admission.maxQueued} источников: остальные ждут своей очереди в пакете,
+ * а не отклоняются из-за заполненной очереди допуска.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchJobService {
+
+    private final GithubContentService githubContentService;
+    private final DirectoryContentService directoryContentService;
+    private final GitRepositoryContentService gitRepositoryContentService;
+    private final FetchBudget fetchBudget;
+    private final BatchConfig batchConfig;
+    private final AdmissionController admissionController;
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong batchSequence = new AtomicLong();
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    /**
+     * Сохраняет содержимое каждого источника в отдельный файл в директории batch.outputDir.
+     *
+     * @param sources Список источников (GitHub репозитории и локальные директории).
+     * @return Отчет с результатом и пропускной способностью по каждому источнику и в целом.
+     */
+    public BatchReport runBatch(List<ContentSourceRequest> sources) {
+        long start = System.nanoTime();
+        // Номер пакета делает ключи задач уникальными между одновременными пакетами с одинаковыми источниками
+        long batchId = batchSequence.incrementAndGet();
+        List<Future<BatchJobReport>> futures = new ArrayList<>();
+        Semaphore slots = new Semaphore(admissionController.isEnabled()
+                ? Math.max(1, admissionController.maxQueued())
+                : Math.max(1, sources.size()));
+        for (int i = 0; i < sources.size(); i++) {
+            ContentSourceRequest source = sources.get(i);
+            String jobKey = batchId + ":" + i + ":" + source.getPath();
+            Path outputPath = Paths.get(batchConfig.getOutputDir(), i + "_" + outputName(source) + ".txt");
+            futures.add(executorService.submit(() -> {
+                slots.acquire();
+                try {
+                    return runJob(jobKey, source, outputPath);
+                } finally {
+                    slots.release();
+                }
+            }));
+        }
+
+        List<BatchJobReport> jobs = new ArrayList<>();
+        try {
+            for (Future<BatchJobReport> future : futures) {
+                jobs.add(future.get());
+            }
+        } catch (Exception e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Batch processing was interrupted", e);
+        }
+
+        long durationMs = elapsedMs(start);
+        long requests = jobs.stream().mapToLong(BatchJobReport::getRequests).sum();
+        long bytesWritten = jobs.stream().mapToLong(BatchJobReport::getBytesWritten).sum();
+        int failedJobs = (int) jobs.stream().filter(job -> !job.isSuccess()).count();
+        log.info("Batch of {} sources finished in {} ms ({} failed, {} requests)", jobs.size(), durationMs, failedJobs, requests);
+        return new BatchReport(jobs, failedJobs, durationMs, requests, bytesWritten,
+                perSecond(requests, durationMs), perSecond(bytesWritten, durationMs));
+    }
+
+    /**
+     * Обрабатывает один источник в рамках своей задачи бюджета.
+     */
+    private BatchJobReport runJob(String jobKey, ContentSourceRequest source, Path outputPath) {
+        long start = System.nanoTime();
+        String error = null;
+        long requests;
+        FetchBudget.JobScope scope = fetchBudget.openJob(jobKey);
+        try {
+            if ("github".equalsIgnoreCase(source.getSourceType())) {
+                githubContentService.saveAllContentsToSingleFile(source.getPath(), source.getRef(), outputPath);
+            } else if ("directory".equalsIgnoreCase(source.getSourceType())) {
+                directoryContentService.saveAllContentsToFile(source.getPath(), outputPath);
+            } else if ("git".equalsIgnoreCase(source.getSourceType())) {
+                gitRepositoryContentService.saveAllContentsToFile(source.getPath(), source.getRef(), outputPath);
+            } else {
+                throw new IllegalArgumentException("Invalid source type: " + source.getSourceType());
+            }
+        } catch (Exception e) {
+            log.error("Batch job {} failed: {}", jobKey, e.getMessage());
+            error = e.getMessage();
+        } finally {
+            requests = scope.requests();
+            scope.close();
+        }
+
+        long durationMs = elapsedMs(start);
+        long bytesWritten = error == null ? fileSize(outputPath) : 0;
+        return new BatchJobReport(source.getSourceType(), source.getPath(), error == null, error,
+                error == null ? outputPath.toString() : null, durationMs, requests, bytesWritten,
+                perSecond(requests, durationMs), perSecond(bytesWritten, durationMs));
+    }
+
+    /**
+     * Формирует безопасное имя выходного файла для источника.
+     */
+    private static String outputName(ContentSourceRequest source) {
+        String path = source.getPath() != null ? source.getPath() : "default";
+        if (path.endsWith(".git")) {
+            path = path.substring(0, path.length() - 4);
+        }
+        path = path.replace("https://github.com/", "").replaceAll("[/\\\\:]+$", "");
+        if (!"github".equalsIgnoreCase(source.getSourceType())) {
+            path = Paths.get(path).getFileName() != null ? Paths.get(path).getFileName().toString() : path;
+        }
+        return path.replaceAll("[^A-Za-z0-9._-]+", "_");
+    }
+
+    private static long fileSize(Path path) {
+        try {
+            return Files.size(path);
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static double perSecond(long count, long durationMs) {
+        return count * 1000.0 / Math.max(1, durationMs);
+    }
+}
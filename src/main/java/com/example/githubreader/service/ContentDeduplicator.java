@@ -0,0 +1,73 @@
+package com.example.githubreader.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отслеживает содержимое, уже записанное в единый файл, чтобы одинаковые файлы
+ * попадали в него только один раз.
+ * <p>
+ * Ключом служит git blob SHA-1: его можно взять прямо из листинга GitHub (поле {@code sha})
+ * и пропустить скачивание, а для локальных файлов — посчитать по содержимому.
+ */
+class ContentDeduplicator {
+
+    private final Map<String, String> firstPathBySha = new ConcurrentHashMap<>();
+
+    /**
+     * Регистрирует файл по известному SHA.
+     *
+     * @param sha  git blob SHA файла.
+     * @param path Путь к файлу.
+     * @return Путь первого файла с таким же SHA или null, если файл встретился впервые.
+     */
+    String register(String sha, String path) {
+        if (sha == null) {
+            return null;
+        }
+        String firstPath = firstPathBySha.putIfAbsent(sha, path);
+        return path.equals(firstPath) ? null : firstPath;
+    }
+
+    /**
+     * Отменяет регистрацию, если содержимое первого файла получить не удалось.
+     *
+     * @param sha  git blob SHA файла.
+     * @param path Путь к файлу.
+     */
+    void forget(String sha, String path) {
+        if (sha != null) {
+            firstPathBySha.remove(sha, path);
+        }
+    }
+
+    /**
+     * Формирует короткую ссылку на первое вхождение вместо повторного содержимого.
+     *
+     * @param firstPath Путь первого файла.
+     * @return Текст ссылки.
+     */
+    static String backReference(String firstPath) {
+        return "[duplicate of " + firstPath + "]";
+    }
+
+    /**
+     * Считает git blob SHA-1 содержимого (тот же хеш, что GitHub отдает в листинге).
+     *
+     * @param content Содержимое файла.
+     * @return SHA в шестнадцатеричном виде.
+     */
+    static String blobSha(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(("blob " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.githubreader.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Приемник файлов одного обхода репозитория. Обход скачивает каждый подходящий файл один раз
+ * и передает его всем приемникам, поэтому зеркало, единый файл и листинг получаются за один проход.
+ * <p>
+ * Методы вызываются параллельно из разных потоков обхода.
+ */
+@FunctionalInterface
+interface ContentSink {
+
+    /**
+     * Вызывается до скачивания файла.
+     *
+     * @param path Путь к файлу в репозитории.
+     * @param sha git blob SHA из листинга (может быть null).
+     * @return false, если содержимое файла этому приемнику не нужно (например, это дубликат).
+     */
+    default boolean needsContent(String path, String sha) {
+        return true;
+    }
+
+    /**
+     * Принимает скачанный файл.
+     *
+     * @param path Путь к файлу в репозитории.
+     * @param sha git blob SHA из листинга (может быть null).
+     * @param content Содержимое файла.
+     */
+    void accept(String path, String sha, String content);
+
+    /**
+     * Вызывается, если файл, нужный приемнику, скачать не удалось.
+     *
+     * @param path Путь к файлу в репозитории.
+     * @param sha git blob SHA из листинга (может быть null).
+     */
+    default void failed(String path, String sha) {
+    }
+
+    /**
+     * @return true, если приемник держит содержимое всех файлов в памяти до конца обхода (учитывается при допуске задачи).
+     */
+    default boolean retainsContent() {
+        return false;
+    }
+
+    /**
+     * Вызывается после обхода в режиме best-effort, если часть путей получить не удалось.
+     *
+     * @param missing Пропущенные файлы и директории (с завершающим "/").
+     */
+    default void incomplete(List<String> missing) {
+    }
+
+    /**
+     * Единый файл с блоками {@code File: <путь>}; при дедупликации повторы заменяются ссылкой на первое вхождение.
+     * <p>
+     * Дубликаты по SHA из листинга не скачиваются, а ссылки на них разрешаются при сборке результата: ссылка
+     * ставится после блоков с содержимым и только на принятую копию. Если ни одну копию получить не удалось,
+     * дубликаты попадают в список пропущенных путей.
+     */
+    final class Aggregate implements ContentSink {
+
+        private final List<String> contents = new ArrayList<>();
+        private final ContentDeduplicator deduplicator;
+        /** Путь принятой копии по SHA. */
+        private final Map<String, String> acceptedBySha = new HashMap<>();
+        /** Дубликаты, которые не скачивались: путь → SHA. */
+        private final Map<String, String> duplicates = new LinkedHashMap<>();
+        private final List<String> missing = new ArrayList<>();
+
+        /**
+         * @param deduplicator Дедупликатор содержимого или null, если дедупликация выключена.
+         */
+        Aggregate(ContentDeduplicator deduplicator) {
+            this.deduplicator = deduplicator;
+        }
+
+        @Override
+        public boolean retainsContent() {
+            return true;
+        }
+
+        @Override
+        public boolean needsContent(String path, String sha) {
+            if (deduplicator != null && deduplicator.register(sha, path) != null) {
+                synchronized (contents) {
+                    duplicates.put(path, sha);
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void accept(String path, String sha, String content) {
+            if (deduplicator == null) {
+                add(path, content);
+                return;
+            }
+            String blobSha = sha != null ? sha : ContentDeduplicator.blobSha(content.getBytes(StandardCharsets.UTF_8));
+            synchronized (contents) {
+                // Без SHA из листинга дубликат распознается только по содержимому, уже после скачивания;
+                // ссылка ставится, только если копия уже принята
+                String firstPath = acceptedBySha.putIfAbsent(blobSha, path);
+                if (firstPath != null) {
+                    add(path, ContentDeduplicator.backReference(firstPath));
+                } else {
+                    if (sha == null) {
+                        deduplicator.register(blobSha, path);
+                    }
+                    add(path, content);
+                }
+            }
+        }
+
+        @Override
+        public void failed(String path, String sha) {
+            if (deduplicator != null) {
+                deduplicator.forget(sha, path);
+            }
+        }
+
+        @Override
+        public void incomplete(List<String> missing) {
+            synchronized (contents) {
+                this.missing.addAll(missing);
+            }
+        }
+
+        void add(String path, String content) {
+            synchronized (contents) {
+                contents.add("File: " + path + " \n" + content + "\n");
+            }
+        }
+
+        /**
+         * @return Содержимое единого файла.
+         */
+        String result() {
+            synchronized (contents) {
+                List<String> blocks = new ArrayList<>(contents);
+                Set<String> allMissing = new TreeSet<>(missing);
+                duplicates.forEach((path, sha) -> {
+                    String firstPath = acceptedBySha.get(sha);
+                    if (firstPath != null) {
+                        blocks.add("File: " + path + " \n" + ContentDeduplicator.backReference(firstPath) + "\n");
+                    } else {
+                        allMissing.add(path);
+                    }
+                });
+                if (!allMissing.isEmpty()) {
+                    blocks.add(ContentWriter.missingBlock(List.copyOf(allMissing)));
+                }
+                return ContentWriter.join(blocks);
+            }
+        }
+    }
+
+    /**
+     * HTML-листинг: блоки {@code File: <a href=...>} со ссылками на файлы на странице коммита.
+     */
+    final class Listing implements ContentSink {
+
+        private final List<String> contents = new ArrayList<>();
+        private final String blobBaseUrl;
+
+        /**
+         * @param blobBaseUrl Базовый URL для HTML-ссылок на файлы (с SHA коммита).
+         */
+        Listing(String blobBaseUrl) {
+            this.blobBaseUrl = blobBaseUrl;
+        }
+
+        @Override
+        public boolean retainsContent() {
+            return true;
+        }
+
+        @Override
+        public void accept(String path, String sha, String content) {
+            String fileLink = blobBaseUrl + "/" + path;
+            String formattedLine = "File: <a href=\"" + fileLink + "\">" + path + "</a> \n" + content + "\n";
+            synchronized (contents) {
+                contents.add(formattedLine);
+            }
+        }
+
+        @Override
+        public void incomplete(List<String> missing) {
+            synchronized (contents) {
+                contents.add(ContentWriter.missingBlock(missing));
+            }
+        }
+
+        /**
+         * @return Блоки листинга.
+         */
+        List<String> result() {
+            synchronized (contents) {
+                return List.copyOf(contents);
+            }
+        }
+    }
+}
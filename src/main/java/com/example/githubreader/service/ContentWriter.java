@@ -0,0 +1,80 @@
+package com.example.githubreader.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Общие операции записи результатов для всех источников: единый файл с блоками {@code File: ...}.
+ * Зеркало файлов в директории output/ пишет {@link MirrorWriter}.
+ */
+final class ContentWriter {
+
+    static final String OUTPUT_DIR = "output/";
+
+    private ContentWriter() {
+    }
+
+    /**
+     * Декодирует содержимое локального файла как UTF-8, отклоняя некорректные (например, бинарные) данные,
+     * так же как это делает {@link Files#readString(Path)}.
+     *
+     * @param bytes Содержимое файла.
+     * @return Текст файла.
+     * @throws CharacterCodingException если содержимое не является корректным UTF-8.
+     */
+    static String decodeUtf8(byte[] bytes) throws CharacterCodingException {
+        return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+    }
+
+    /**
+     * Формирует блок единого файла для одного файла источника.
+     *
+     * @param path Путь к файлу относительно корня источника.
+     * @param content Содержимое файла.
+     * @return Блок {@code File: <путь>} с содержимым.
+     */
+    static String fileBlock(String path, String content) {
+        return "File: " + path + "\n" + content + "\n";
+    }
+
+    /**
+     * Формирует завершающий блок неполного результата, чтобы пропуски были видны в самом файле.
+     *
+     * @param missing Пропущенные файлы и директории (с завершающим "/").
+     * @return Блок {@code Missing paths (N):} со списком путей.
+     */
+    static String missingBlock(List<String> missing) {
+        return "Missing paths (" + missing.size() + "):\n" + String.join("\n", missing) + "\n";
+    }
+
+    /**
+     * Объединяет блоки файлов в содержимое единого файла.
+     *
+     * @param contents Блоки {@code File: ...} отдельных файлов.
+     * @return Содержимое единого файла.
+     */
+    static String join(List<String> contents) {
+        return String.join("\n", contents);
+    }
+
+    /**
+     * Записывает единый файл, создавая родительские директории.
+     *
+     * @param filePath Путь к файлу.
+     * @param content Содержимое.
+     * @return Число записанных байт.
+     */
+    static long writeSingleFile(Path filePath, String content) throws IOException {
+        if (filePath.getParent() != null) {
+            Files.createDirectories(filePath.getParent());
+        }
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Files.write(filePath, bytes);
+        return bytes.length;
+    }
+}
@@ -3,32 +3,65 @@ package com.example.githubreader.service;
 
 import com.example.githubreader.config.DirectoryConfig;
 import com.example.githubreader.config.GithubConfig;
-import lombok.RequiredArgsConstructor;
+import com.example.githubreader.config.PipelineSettings;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
 
 /**
  * Сервис для работы с содержимым локальных директорий.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class DirectoryContentService {
 
     private final DirectoryConfig directoryConfig;
     private final GithubConfig githubConfig;  // Добавляем GithubConfig для паттернов
+    private final FetchBudget fetchBudget;
+    private final FetchMetrics fetchMetrics;
+    private final JobProfiler jobProfiler;
+    private final AdmissionController admissionController;
     private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    private final ParallelFileWalker fileWalker;
+    private final PipelineSettings pipeline;
+
+    private static final String SOURCE = "directory";
+    private static final String TEMP_SUFFIX = ".part";
+
+    public DirectoryContentService(DirectoryConfig directoryConfig, GithubConfig githubConfig, FetchBudget fetchBudget,
+                                   FetchMetrics fetchMetrics, JobProfiler jobProfiler,
+                                   AdmissionController admissionController) {
+        this.directoryConfig = directoryConfig;
+        this.githubConfig = githubConfig;
+        this.fetchBudget = fetchBudget;
+        this.fetchMetrics = fetchMetrics;
+        this.jobProfiler = jobProfiler;
+        this.admissionController = admissionController;
+        this.pipeline = directoryConfig.getPipeline() != null ? directoryConfig.getPipeline() : new PipelineSettings();
+        this.fileWalker = new ParallelFileWalker(Math.max(1, pipeline.getList().getParallelism()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fileWalker.shutdown();
+        executorService.shutdown();
+    }
 
     /**
      * Считывает содержимое всех файлов из директории и сохраняет в один файл.
@@ -36,60 +69,305 @@ public class DirectoryContentService {
      * @param directoryPath Путь к директории (опционально, если не указан — используется defaultPath)
      */
     public void saveAllContentsToFile(String directoryPath) {
+        saveAllContentsToFile(directoryPath, null);
+    }
+
+    /**
+     * Считывает содержимое всех файлов из директории и сохраняет в указанный файл.
+     *
+     * @param directoryPath Путь к директории (опционально, если не указан — используется defaultPath)
+     * @param outputPath Путь к выходному файлу (опционально, по умолчанию output/all_contents_from_&lt;имя директории&gt;.txt)
+     */
+    public void saveAllContentsToFile(String directoryPath, Path outputPath) {
+        saveAllContentsToFile(directoryPath, List.of(), outputPath);
+    }
+
+    /**
+     * Считывает содержимое файлов поддеревьев директории и сохраняет в указанный файл.
+     * Обход начинается с префиксов и не выходит за их пределы; пути в результате остаются относительными
+     * к самой директории.
+     *
+     * @param directoryPath Путь к директории (опционально, если не указан — используется defaultPath)
+     * @param paths Префиксы путей (поддиректории), пустой список — вся директория
+     * @param outputPath Путь к выходному файлу (опционально, по умолчанию output/all_contents_from_&lt;имя директории&gt;.txt)
+     */
+    public void saveAllContentsToFile(String directoryPath, List<String> paths, Path outputPath) {
+        List<String> prefixes = PathPrefixes.normalize(paths);
         String effectivePath = directoryPath != null ? directoryPath : directoryConfig.getDefaultPath();
         if (effectivePath == null) {
             throw new IllegalArgumentException("Directory path is not provided and defaultPath is not configured");
         }
 
-        try {
-            Path dirPath = Paths.get(effectivePath);
-            if (!Files.isDirectory(dirPath)) {
-                throw new IllegalArgumentException("Provided path is not a directory: " + effectivePath);
-            }
+        jobProfiler.run(SOURCE, "single-file", effectivePath, profile -> {
+            Timer.Sample job = Timer.start();
+            try {
+                Path dirPath = Paths.get(effectivePath);
+                if (!Files.isDirectory(dirPath)) {
+                    throw new IllegalArgumentException("Provided path is not a directory: " + effectivePath);
+                }
+                List<Path> roots = new ArrayList<>();
+                for (String prefix : prefixes) {
+                    Path root = dirPath.resolve(prefix);
+                    if (!Files.isDirectory(root)) {
+                        throw new IllegalArgumentException("Path prefix is not a directory: " + prefix);
+                    }
+                    roots.add(root);
+                }
+                if (roots.isEmpty()) {
+                    roots.add(dirPath);
+                }
+                Path effectiveOutputPath = outputPath != null ? outputPath : defaultOutputPath(dirPath);
+                profile.outputFile(effectiveOutputPath);
 
-            List<String> contents = new ArrayList<>();
-            List<Future<?>> futures = new ArrayList<>();
-
-            Files.walk(dirPath)
-                    .filter(Files::isRegularFile)
-                    .filter(this::matchesPatterns)  // Добавляем фильтр по паттернам
-                    .forEach(filePath -> {
-                        Future<?> future = executorService.submit(() -> {
-                            try {
-                                String content = Files.readString(filePath);
-                                String relativePath = dirPath.relativize(filePath).toString();
-                                String formattedContent = "File: " + relativePath + "\n" + content + "\n";
-                                synchronized (contents) {
-                                    contents.add(formattedContent);
-                                }
-                                log.debug("Processed file: {}", relativePath);
-                            } catch (IOException e) {
-                                log.error("Failed to read file {}: {}", filePath, e.getMessage());
-                            }
+                ContentDeduplicator deduplicator = githubConfig.isDeduplicate() ? new ContentDeduplicator() : null;
+                Path outputFile = effectiveOutputPath.toAbsolutePath().normalize();
+                Path parent = outputFile.getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                // Файл пишется во временный рядом с выходным и переносится атомарно: при ошибке прежний файл
+                // не затирается, а читатели не видят недописанный
+                Path temp = Files.createTempFile(parent, "." + outputFile.getFileName(), TEMP_SUFFIX);
+                Timer.Sample listing = Timer.start();
+                JobControl control = new JobControl(directoryConfig.getJob());
+                // Для оценки памяти директория обходится до допуска; найденные файлы затем передаются конвейеру,
+                // чтобы не обходить ее второй раз
+                List<Path> walked = admissionController.isEnabled() ? new ArrayList<>() : null;
+                // Нечитаемая вложенная директория учитывается задачей, как и нечитаемый файл
+                BiConsumer<Path, IOException> unreadable = (directory, e) ->
+                        control.failed(dirPath.relativize(directory).toString().replace('\\', '/') + "/", e.getMessage());
+                try {
+                    try (AdmissionController.Permit admitted = admissionController.admit(SOURCE, effectivePath,
+                            walked != null ? estimateMemory(roots, outputFile, walked, unreadable) : 0);
+                         JobProfiler.Scope phase = jobProfiler.phase("pipeline");
+                         Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                        // Единый файл пишется потоково одним обработчиком: в памяти только файлы из очередей этапов
+                        PipelineSettings.Stage write = new PipelineSettings.Stage(1, pipeline.getWrite().getQueueCapacity());
+                        BlockWriter blockWriter = new BlockWriter(writer, deduplicator);
+                        StagedPipeline stages = StagedPipeline.<Path>from(SOURCE, executorService, fetchMetrics, "list", emit -> {
+                                    if (walked != null) {
+                                        walked.forEach(emit::emit);
+                                        listing.stop(fetchMetrics.listing(SOURCE));
+                                        return;
+                                    }
+                                    for (Path root : roots) {
+                                        GitignoreMatcher ignore = directoryConfig.isRespectGitignore()
+                                                ? GitignoreMatcher.above(root) : null;
+                                        fileWalker.walk(root, ignore, emit::emit, unreadable);
+                                    }
+                                    listing.stop(fetchMetrics.listing(SOURCE));
+                                })
+                                .<Path>then("filter", pipeline.getFilter(), (filePath, emit) -> {
+                                    // Временный и выходной файлы создаются до окончания обхода и могут оказаться внутри директории
+                                    Path absolute = filePath.toAbsolutePath().normalize();
+                                    if (!absolute.equals(outputFile) && !absolute.equals(temp) && matchesPatterns(filePath)) {
+                                        emit.emit(filePath);
+                                    }
+                                })
+                                .<ReadFile>then("fetch", pipeline.getFetch(), (filePath, emit) -> {
+                                    String relativePath = dirPath.relativize(filePath).toString();
+                                    byte[] bytes = readFile(filePath, relativePath);
+                                    if (bytes != null) {
+                                        emit.emit(new ReadFile(relativePath, bytes));
+                                    } else {
+                                        control.failed(relativePath.replace('\\', '/'), "read failed");
+                                    }
+                                })
+                                .<FileBlock>then("format", pipeline.getFormat(),
+                                        (file, emit) -> {
+                                            FileBlock block = formatFile(file, deduplicator != null);
+                                            if (block != null) {
+                                                emit.emit(block);
+                                            }
+                                        })
+                                .then("write", write, blockWriter)
+                                .build();
+                        control.run(executorService, () -> {
+                            stages.run();
+                            return null;
                         });
-                        futures.add(future);
-                    });
+                        if (!control.missing().isEmpty()) {
+                            log.warn("Directory {} processed without {} files: {}", effectivePath,
+                                    control.missing().size(), control.missing());
+                            blockWriter.writeMissing(control.missing());
+                        }
+                    }
+                    Files.move(temp, outputFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
 
-            for (Future<?> future : futures) {
-                future.get();
-            }
+                job.stop(fetchMetrics.job(SOURCE, "single-file"));
 
-            String dirName = dirPath.getFileName().toString();
-            String outputFileName = "all_contents_from_" + dirName + ".txt";
-            Path outputPath = Paths.get("output", outputFileName);
+                log.info("Saved all directory contents to file: {}", effectiveOutputPath);
 
-            Files.createDirectories(outputPath.getParent());
-            String allContent = contents.stream().collect(Collectors.joining("\n"));
-            Files.writeString(outputPath, allContent);
+            } catch (AdmissionController.RejectedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("Failed to process directory {}: {}", effectivePath, e.getMessage());
+                throw new RuntimeException("Failed to save directory contents to file", e);
+            }
+        });
+    }
 
-            log.info("Saved all directory contents to file: {}", outputPath);
+    /**
+     * Оценивает пиковую память задачи по размерам файлов, не читая их. Единый файл пишется потоково, поэтому
+     * в памяти одновременно находятся только файлы в работе и в очередях этапов fetch → format → write:
+     * оценка строится по самым большим подходящим файлам в таком количестве.
+     * Шаблоны проверяются без учета в метриках: файлы учитываются один раз, на этапе filter.
+     *
+     * @param roots Начальные директории обхода.
+     * @param outputFile Выходной файл (не учитывается, если лежит внутри директории).
+     * @param walked Сюда добавляются все найденные при обходе файлы.
+     * @param onError Обработчик ошибки чтения вложенной директории.
+     * @return Оценка пиковой памяти задачи.
+     */
+    private long estimateMemory(List<Path> roots, Path outputFile, List<Path> walked,
+                                BiConsumer<Path, IOException> onError) throws IOException, InterruptedException {
+        int inFlight = pipeline.getFetch().getParallelism() + pipeline.getFormat().getParallelism()
+                + pipeline.getFormat().getQueueCapacity() + pipeline.getWrite().getQueueCapacity() + 1;
+        PriorityQueue<Long> largest = new PriorityQueue<>();
+        for (Path root : roots) {
+            GitignoreMatcher ignore = directoryConfig.isRespectGitignore() ? GitignoreMatcher.above(root) : null;
+            fileWalker.walk(root, ignore, filePath -> {
+                synchronized (walked) {
+                    walked.add(filePath);
+                }
+                if (filePath.toAbsolutePath().normalize().equals(outputFile) || !isIncluded(filePath)) {
+                    return;
+                }
+                long size;
+                try {
+                    size = Files.size(filePath);
+                } catch (IOException e) {
+                    return;
+                }
+                synchronized (largest) {
+                    largest.add(size);
+                    if (largest.size() > inFlight) {
+                        largest.poll();
+                    }
+                }
+            }, onError);
+        }
+        return admissionController.estimate(largest.stream().mapToLong(Long::longValue).sum());
+    }
 
+    /**
+     * Читает файл под разрешением общего бюджета.
+     *
+     * @param filePath Путь к файлу.
+     * @param relativePath Путь относительно обрабатываемой директории.
+     * @return Содержимое файла или null, если прочитать не удалось.
+     */
+    private byte[] readFile(Path filePath, String relativePath) {
+        try (JobProfiler.Scope fileScope = jobProfiler.file(relativePath)) {
+            byte[] bytes;
+            long queued = System.nanoTime();
+            try (FetchBudget.Permit ignored = fetchBudget.acquire()) {
+                jobProfiler.queueWait(System.nanoTime() - queued);
+                long started = System.nanoTime();
+                bytes = fetchMetrics.download(SOURCE).recordCallable(() -> Files.readAllBytes(filePath));
+                jobProfiler.network(System.nanoTime() - started, bytes.length);
+            }
+            fetchMetrics.bytesIn(SOURCE, bytes.length);
+            return bytes;
         } catch (Exception e) {
-            log.error("Failed to process directory {}: {}", effectivePath, e.getMessage());
-            throw new RuntimeException("Failed to save directory contents to file", e);
+            fetchMetrics.fileFailed(SOURCE);
+            jobProfiler.status("error: " + e.getMessage());
+            log.error("Failed to read file {}: {}", filePath, e.getMessage());
+            return null;
         }
     }
 
+    /**
+     * Декодирует файл для единого файла. Повторы распознаются позже, на этапе write: файл регистрируется
+     * в дедупликаторе только вместе с записанным блоком.
+     *
+     * @param file Прочитанный файл.
+     * @param deduplicate Считать git blob SHA содержимого для дедупликации.
+     * @return Текст файла или null, если файл не является текстом в UTF-8.
+     */
+    private FileBlock formatFile(ReadFile file, boolean deduplicate) {
+        try {
+            String content = ContentWriter.decodeUtf8(file.bytes());
+            log.debug("Processed file: {}", file.relativePath());
+            return new FileBlock(file.relativePath(), deduplicate ? ContentDeduplicator.blobSha(file.bytes()) : null,
+                    content);
+        } catch (CharacterCodingException e) {
+            fetchMetrics.fileFailed(SOURCE);
+            log.error("Failed to decode file {}: {}", file.relativePath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Прочитанный файл между этапами fetch и format.
+     */
+    private record ReadFile(String relativePath, byte[] bytes) {
+    }
+
+    /**
+     * Текст файла между этапами format и write; sha — git blob SHA содержимого или null без дедупликации.
+     */
+    private record FileBlock(String relativePath, String sha, String content) {
+    }
+
+    /**
+     * Этап write: дописывает блоки в единый файл по мере поступления. Этап однопоточный, поэтому ссылка на повтор
+     * ставится только на уже записанный блок.
+     */
+    private final class BlockWriter implements StagedPipeline.Worker<FileBlock, Void> {
+
+        private final Writer writer;
+        private final ContentDeduplicator deduplicator;
+        private boolean first = true;
+
+        private BlockWriter(Writer writer, ContentDeduplicator deduplicator) {
+            this.writer = writer;
+            this.deduplicator = deduplicator;
+        }
+
+        @Override
+        public void process(FileBlock file, StagedPipeline.Emitter<Void> emit) throws Exception {
+            String firstPath = deduplicator != null ? deduplicator.register(file.sha(), file.relativePath()) : null;
+            String block = ContentWriter.fileBlock(file.relativePath(),
+                    firstPath != null ? ContentDeduplicator.backReference(firstPath) : file.content());
+            // Блоки разделяются пустой строкой, как в ContentWriter.join
+            String text = first ? block : "\n" + block;
+            first = false;
+            try (JobProfiler.Scope fileScope = jobProfiler.file(file.relativePath())) {
+                long started = System.nanoTime();
+                fetchMetrics.write(SOURCE).recordCallable(() -> {
+                    writer.write(text);
+                    return null;
+                });
+                jobProfiler.written(System.nanoTime() - started);
+            }
+            fetchMetrics.bytesOut(SOURCE, text.getBytes(StandardCharsets.UTF_8).length);
+        }
+
+        /**
+         * Дописывает завершающий блок пропущенных путей.
+         */
+        void writeMissing(List<String> missing) throws IOException {
+            writer.write((first ? "" : "\n") + ContentWriter.missingBlock(missing));
+            first = false;
+        }
+    }
+
+    /**
+     * Формирует путь к выходному файлу по умолчанию.
+     *
+     * @param dirPath Путь к директории
+     * @return Путь output/all_contents_from_&lt;имя директории&gt;.txt
+     */
+    private static Path defaultOutputPath(Path dirPath) {
+        String dirName = dirPath.getFileName().toString();
+        String outputFileName = "all_contents_from_" + dirName + ".txt";
+        return Paths.get("output", outputFileName);
+    }
+
     /**
      * Проверяет, соответствует ли путь include и exclude паттернам.
      *
@@ -97,6 +375,21 @@ public class DirectoryContentService {
      * @return true, если файл должен быть включен
      */
     private boolean matchesPatterns(Path filePath) {
+        if (isIncluded(filePath)) {
+            fetchMetrics.fileMatched(SOURCE);
+            return true;
+        }
+        fetchMetrics.fileExcluded(SOURCE);
+        return false;
+    }
+
+    /**
+     * Проверяет include и exclude паттерны без учета в метриках.
+     *
+     * @param filePath Путь к файлу
+     * @return true, если файл должен быть включен
+     */
+    private boolean isIncluded(Path filePath) {
         String path = filePath.toString().replace("\\", "/"); // Нормализуем слеши для совместимости
         for (String exclude : githubConfig.getExcludePatterns()) {
             if (matchesPattern(path, exclude)) {
@@ -0,0 +1,237 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.BatchConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Общий бюджет параллелизма и частоты запросов для всех задач приложения.
+ * <p>
+ * Каждая операция ввода-вывода (HTTP-запрос к GitHub, чтение локального файла) получает разрешение
+ * через {@link #acquire()}. Когда свободных разрешений нет, освободившееся разрешение выдается
+ * задачам по кругу, поэтому задача с огромным числом файлов не вытесняет небольшие.
+ * Задача определяется ключом, привязанным к потоку через {@link #openJob(String)};
+ * дочерние виртуальные потоки наследуют этот ключ.
+ */
+@Component
+public class FetchBudget {
+
+    private static final String DEFAULT_JOB = "default";
+    private static final InheritableThreadLocal<String> CURRENT_JOB = new InheritableThreadLocal<>();
+
+    private final int maxConcurrency;
+    private final long intervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Deque<Waiter>> waitersByJob = new HashMap<>();
+    private final Deque<String> jobRing = new ArrayDeque<>();
+    private final Map<String, AtomicLong> requestsByJob = new ConcurrentHashMap<>();
+    private int inFlight;
+    private long nextSlotNanos = System.nanoTime();
+
+    public FetchBudget(BatchConfig batchConfig) {
+        this.maxConcurrency = Math.max(1, batchConfig.getMaxConcurrency());
+        this.intervalNanos = batchConfig.getRequestsPerSecond() > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) / batchConfig.getRequestsPerSecond())
+                : 0;
+    }
+
+    /**
+     * Привязывает текущий поток (и создаваемые им потоки) к задаче.
+     *
+     * @param jobKey Ключ задачи.
+     * @return Область задачи, которую нужно закрыть по завершении.
+     */
+    public JobScope openJob(String jobKey) {
+        String previous = CURRENT_JOB.get();
+        CURRENT_JOB.set(jobKey);
+        return new JobScope(jobKey, previous, requestsByJob.computeIfAbsent(jobKey, key -> new AtomicLong()));
+    }
+
+    /**
+     * Получает разрешение на одну операцию ввода-вывода для текущей задачи.
+     * Блокирует поток, пока разрешение не будет выдано с учетом справедливой очереди и ограничения частоты.
+     *
+     * @return Разрешение, которое нужно закрыть после завершения операции.
+     */
+    public Permit acquire() {
+        String jobKey = currentJob();
+        lock.lock();
+        try {
+            if (inFlight < maxConcurrency && jobRing.isEmpty()) {
+                inFlight++;
+            } else {
+                awaitTurn(jobKey);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Permit permit = new Permit();
+        try {
+            awaitRateSlot();
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+        AtomicLong requests = requestsByJob.get(jobKey);
+        if (requests != null) {
+            requests.incrementAndGet();
+        }
+        return permit;
+    }
+
+    /**
+     * @return Число операций, выполняемых в данный момент.
+     */
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitTurn(String jobKey) {
+        Waiter waiter = new Waiter(lock.newCondition());
+        Deque<Waiter> queue = waitersByJob.computeIfAbsent(jobKey, key -> new ArrayDeque<>());
+        if (queue.isEmpty()) {
+            jobRing.addLast(jobKey);
+        }
+        queue.addLast(waiter);
+        try {
+            while (!waiter.granted) {
+                waiter.condition.await();
+            }
+        } catch (InterruptedException e) {
+            if (waiter.granted) {
+                release();
+            } else {
+                queue.remove(waiter);
+                if (queue.isEmpty()) {
+                    waitersByJob.remove(jobKey);
+                    jobRing.remove(jobKey);
+                }
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for fetch budget", e);
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            while (inFlight < maxConcurrency && !jobRing.isEmpty()) {
+                String jobKey = jobRing.pollFirst();
+                Deque<Waiter> queue = waitersByJob.get(jobKey);
+                Waiter waiter = queue.pollFirst();
+                if (queue.isEmpty()) {
+                    waitersByJob.remove(jobKey);
+                } else {
+                    jobRing.addLast(jobKey); // Задача уходит в конец круга
+                }
+                waiter.granted = true;
+                inFlight++;
+                waiter.condition.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitRateSlot() {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlotNanos);
+            nextSlotNanos = slot + intervalNanos;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for rate limit", e);
+            }
+        }
+    }
+
+    private static String currentJob() {
+        String jobKey = CURRENT_JOB.get();
+        return jobKey != null ? jobKey : DEFAULT_JOB;
+    }
+
+    private static final class Waiter {
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * Разрешение на одну операцию ввода-вывода.
+     */
+    public final class Permit implements AutoCloseable {
+        private boolean released;
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release();
+            }
+        }
+    }
+
+    /**
+     * Область выполнения задачи: привязка ключа к потоку и счетчик выполненных операций.
+     */
+    public final class JobScope implements AutoCloseable {
+        private final String jobKey;
+        private final String previousJobKey;
+        private final AtomicLong requests;
+
+        private JobScope(String jobKey, String previousJobKey, AtomicLong requests) {
+            this.jobKey = jobKey;
+            this.previousJobKey = previousJobKey;
+            this.requests = requests;
+        }
+
+        /**
+         * @return Число операций, выполненных задачей.
+         */
+        public long requests() {
+            return requests.get();
+        }
+
+        @Override
+        public void close() {
+            requestsByJob.remove(jobKey, requests);
+            if (previousJobKey != null) {
+                CURRENT_JOB.set(previousJobKey);
+            } else {
+                CURRENT_JOB.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.githubreader.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики конвейера получения содержимого (Micrometer).
+ * <p>
+ * Таймеры этапов ({@code fetch.listing}, {@code fetch.download}, {@code fetch.write}) и задач ({@code fetch.job})
+ * помечены тегом источника ({@code github}, {@code directory}, {@code git}), счетчики файлов — результатом
+ * ({@code matched}, {@code excluded}, {@code failed}), счетчики байтов — направлением ({@code in}, {@code out}).
+ * Заполненность этапов конвейера ({@code pipeline.stage.*}) помечена источником и этапом.
+ */
+@Component
+public class FetchMetrics {
+
+    private final MeterRegistry registry;
+    private final AtomicLong rateLimitRemaining = new AtomicLong(-1);
+    private final Map<String, StageOccupancy> stages = new ConcurrentHashMap<>();
+
+    public FetchMetrics(MeterRegistry registry, FetchBudget fetchBudget) {
+        this.registry = registry;
+        Gauge.builder("fetch.requests.in_flight", fetchBudget, FetchBudget::inFlight)
+                .description("I/O operations currently holding a fetch budget permit")
+                .register(registry);
+        Gauge.builder("github.ratelimit.remaining", rateLimitRemaining, AtomicLong::get)
+                .description("Last seen X-RateLimit-Remaining of the GitHub API (-1 if unknown)")
+                .register(registry);
+    }
+
+    /**
+     * @param source Источник: github, directory или git.
+     * @return Таймер получения листинга (директории, дерева).
+     */
+    public Timer listing(String source) {
+        return timer("fetch.listing", source);
+    }
+
+    /**
+     * @param source Источник: github, directory или git.
+     * @return Таймер скачивания (чтения) одного файла.
+     */
+    public Timer download(String source) {
+        return timer("fetch.download", source);
+    }
+
+    /**
+     * @param source Источник: github, directory или git.
+     * @return Таймер записи результата.
+     */
+    public Timer write(String source) {
+        return timer("fetch.write", source);
+    }
+
+    /**
+     * @param source Источник: github, directory или git.
+     * @param operation Операция: single-file, mirror, listing.
+     * @return Таймер выполнения задачи целиком.
+     */
+    public Timer job(String source, String operation) {
+        return Timer.builder("fetch.job")
+                .tag("source", source)
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    public void fileMatched(String source) {
+        files(source, "matched").increment();
+    }
+
+    public void fileExcluded(String source) {
+        files(source, "excluded").increment();
+    }
+
+    public void fileFailed(String source) {
+        files(source, "failed").increment();
+    }
+
+    /**
+     * @param source Источник: github.
+     * @param outcome fired — отправлен дублирующий запрос, won — дублирующий запрос ответил первым.
+     */
+    public void hedge(String source, String outcome) {
+        Counter.builder("fetch.hedges")
+                .tag("source", source)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    public void bytesIn(String source, long bytes) {
+        bytes(source, "in").increment(bytes);
+    }
+
+    public void bytesOut(String source, long bytes) {
+        bytes(source, "out").increment(bytes);
+    }
+
+    /**
+     * Запоминает последнее значение X-RateLimit-Remaining из ответа GitHub.
+     *
+     * @param remaining Остаток запросов.
+     */
+    public void rateLimitRemaining(long remaining) {
+        rateLimitRemaining.set(remaining);
+    }
+
+    /**
+     * Заполненность этапа конвейера, общая для всех задач источника: элементы во входной очереди
+     * ({@code pipeline.stage.queued}), занятые обработчики ({@code pipeline.stage.active}) и время, которое
+     * предыдущий этап ждал места в заполненной очереди ({@code pipeline.stage.blocked}).
+     *
+     * @param source Источник: github или directory.
+     * @param stage Этап: list, filter, fetch, format, write.
+     * @return Счетчики этапа.
+     */
+    StageOccupancy stage(String source, String stage) {
+        return stages.computeIfAbsent(source + "/" + stage, key -> new StageOccupancy(source, stage));
+    }
+
+    /**
+     * Счетчики заполненности одного этапа конвейера.
+     */
+    final class StageOccupancy {
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger active = new AtomicInteger();
+        final Timer blocked;
+
+        private StageOccupancy(String source, String stage) {
+            Gauge.builder("pipeline.stage.queued", queued, AtomicInteger::get)
+                    .description("Items waiting in the input queue of a pipeline stage")
+                    .tag("source", source)
+                    .tag("stage", stage)
+                    .register(registry);
+            Gauge.builder("pipeline.stage.active", active, AtomicInteger::get)
+                    .description("Pipeline stage workers currently processing an item")
+                    .tag("source", source)
+                    .tag("stage", stage)
+                    .register(registry);
+            blocked = Timer.builder("pipeline.stage.blocked")
+                    .description("Time the upstream stage waited for space in the input queue of a stage")
+                    .tag("source", source)
+                    .tag("stage", stage)
+                    .register(registry);
+        }
+    }
+
+    private Timer timer(String name, String source) {
+        return Timer.builder(name)
+                .tag("source", source)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Counter files(String source, String result) {
+        return Counter.builder("fetch.files")
+                .tag("source", source)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private Counter bytes(String source, String direction) {
+        return Counter.builder("fetch.bytes")
+                .baseUnit("bytes")
+                .tag("source", source)
+                .tag("direction", direction)
+                .register(registry);
+    }
+}
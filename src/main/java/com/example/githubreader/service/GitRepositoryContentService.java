@@ -0,0 +1,319 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.GithubConfig;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.FS;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Сервис для чтения содержимого напрямую из локальной базы объектов git
+ * (директория .git рабочей копии или bare-репозиторий, включая packfiles).
+ * <p>
+ * Дерево и blob-объекты читаются на указанной ревизии, поэтому результат точно соответствует коммиту
+ * и не требует обращений к сети.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GitRepositoryContentService {
+
+    private final GithubConfig githubConfig;  // Паттерны и дедупликация общие с GitHub
+    private final FetchBudget fetchBudget;
+    private final FetchMetrics fetchMetrics;
+    private final JobProfiler jobProfiler;
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    private final MirrorWriter mirrorWriter = new MirrorWriter(Paths.get(ContentWriter.OUTPUT_DIR));
+
+    private static final String SOURCE = "git";
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    /**
+     * Сохраняет содержимое репозитория на указанной ревизии в один файл.
+     *
+     * @param gitPath Путь к рабочей копии, директории .git или bare-репозиторию.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию HEAD).
+     */
+    public void saveAllContentsToFile(String gitPath, String ref) {
+        saveAllContentsToFile(gitPath, ref, null);
+    }
+
+    /**
+     * Сохраняет содержимое репозитория на указанной ревизии в указанный файл.
+     *
+     * @param gitPath Путь к рабочей копии, директории .git или bare-репозиторию.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию HEAD).
+     * @param outputPath Путь к выходному файлу (опционально, по умолчанию output/all_contents_from_&lt;имя&gt;_&lt;sha&gt;.txt).
+     */
+    public void saveAllContentsToFile(String gitPath, String ref, Path outputPath) {
+        jobProfiler.run(SOURCE, "single-file", gitPath, profile -> {
+            Timer.Sample job = Timer.start();
+            try (Repository repository = openRepository(gitPath)) {
+                RevCommit commit;
+                try (JobProfiler.Scope phase = jobProfiler.phase("resolve")) {
+                    commit = resolveCommit(repository, ref);
+                }
+                List<BlobEntry> blobs;
+                try (JobProfiler.Scope phase = jobProfiler.phase("listing")) {
+                    blobs = listMatchingBlobs(repository, commit);
+                }
+                // Одинаковые файлы имеют один blob-объект: каждый объект читается один раз
+                Map<ObjectId, String> texts = new ConcurrentHashMap<>();
+                Map<ObjectId, BlobEntry> unique = new LinkedHashMap<>();
+                blobs.forEach(blob -> unique.putIfAbsent(blob.id(), blob));
+                List<Future<?>> futures = new ArrayList<>();
+                for (BlobEntry blob : unique.values()) {
+                    futures.add(executorService.submit(() -> {
+                        String content = readText(repository, blob);
+                        if (content != null) {
+                            texts.put(blob.id(), content);
+                            log.debug("Processed git blob: {}", blob.path());
+                        }
+                    }));
+                }
+                try (JobProfiler.Scope phase = jobProfiler.phase("read")) {
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                }
+                List<String> contents = assemble(blobs, texts, githubConfig.isDeduplicate());
+
+                Path effectiveOutputPath = outputPath != null ? outputPath : defaultOutputPath(repository, commit);
+                profile.outputFile(effectiveOutputPath);
+                try (JobProfiler.Scope phase = jobProfiler.phase("write")) {
+                    long bytes = fetchMetrics.write(SOURCE).recordCallable(
+                            () -> ContentWriter.writeSingleFile(effectiveOutputPath, ContentWriter.join(contents)));
+                    fetchMetrics.bytesOut(SOURCE, bytes);
+                }
+                job.stop(fetchMetrics.job(SOURCE, "single-file"));
+                log.info("Saved {} files of {}@{} to file: {}", contents.size(), gitPath, commit.name(), effectiveOutputPath);
+            } catch (Exception e) {
+                log.error("Failed to process git repository {}: {}", gitPath, e.getMessage());
+                throw new RuntimeException("Failed to save git repository contents to file", e);
+            }
+        });
+    }
+
+    /**
+     * Сохраняет файлы репозитория на указанной ревизии в выходную директорию.
+     *
+     * @param gitPath Путь к рабочей копии, директории .git или bare-репозиторию.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию HEAD).
+     */
+    public void saveRepositoryContents(String gitPath, String ref) {
+        jobProfiler.run(SOURCE, "mirror", gitPath, profile -> {
+            profile.outputDirectory(Paths.get(ContentWriter.OUTPUT_DIR));
+            Timer.Sample job = Timer.start();
+            try (Repository repository = openRepository(gitPath)) {
+                RevCommit commit;
+                try (JobProfiler.Scope phase = jobProfiler.phase("resolve")) {
+                    commit = resolveCommit(repository, ref);
+                }
+                List<BlobEntry> blobs;
+                try (JobProfiler.Scope phase = jobProfiler.phase("listing")) {
+                    blobs = listMatchingBlobs(repository, commit);
+                }
+                List<Future<?>> futures = new ArrayList<>();
+                for (BlobEntry blob : blobs) {
+                    futures.add(executorService.submit(() -> {
+                        // Зеркало повторяет коммит байт в байт, включая бинарные файлы и файлы не в UTF-8
+                        byte[] content = readBytes(repository, blob);
+                        if (content != null) {
+                            try (JobProfiler.Scope fileScope = jobProfiler.file(blob.path())) {
+                                Timer.Sample write = Timer.start();
+                                long started = System.nanoTime();
+                                long bytes = mirrorWriter.write(blob.path(), content);
+                                jobProfiler.written(System.nanoTime() - started);
+                                write.stop(fetchMetrics.write(SOURCE));
+                                fetchMetrics.bytesOut(SOURCE, bytes);
+                            } catch (IOException e) {
+                                log.error("Failed to save file {}: {}", blob.path(), e.getMessage());
+                                throw new RuntimeException("Failed to save file: " + blob.path(), e);
+                            }
+                        }
+                    }));
+                }
+                try (JobProfiler.Scope phase = jobProfiler.phase("fetch")) {
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                }
+                job.stop(fetchMetrics.job(SOURCE, "mirror"));
+            } catch (Exception e) {
+                log.error("Failed to save git repository {}: {}", gitPath, e.getMessage());
+                throw new RuntimeException("Failed to save git repository contents", e);
+            }
+        });
+    }
+
+    /**
+     * Открывает репозиторий по пути к рабочей копии, директории .git или bare-репозиторию.
+     */
+    private Repository openRepository(String gitPath) throws IOException {
+        if (gitPath == null || gitPath.isBlank()) {
+            throw new IllegalArgumentException("Git repository path is not provided");
+        }
+        File gitDir = RepositoryCache.FileKey.resolve(new File(gitPath), FS.DETECTED);
+        if (gitDir == null) {
+            throw new IllegalArgumentException("Provided path is not a git repository: " + gitPath);
+        }
+        return new FileRepositoryBuilder().setGitDir(gitDir).setMustExist(true).build();
+    }
+
+    /**
+     * Разрешает ветку, тег или SHA в коммит.
+     */
+    private RevCommit resolveCommit(Repository repository, String ref) throws IOException {
+        String effectiveRef = ref != null && !ref.isBlank() ? ref.trim() : Constants.HEAD;
+        ObjectId commitId = repository.resolve(effectiveRef + "^{commit}");
+        if (commitId == null) {
+            throw new IllegalArgumentException("Unknown ref: " + effectiveRef);
+        }
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            return revWalk.parseCommit(commitId);
+        }
+    }
+
+    /**
+     * Обходит дерево коммита и собирает обычные файлы, подходящие по шаблонам.
+     */
+    private List<BlobEntry> listMatchingBlobs(Repository repository, RevCommit commit) throws IOException {
+        List<BlobEntry> blobs = new ArrayList<>();
+        Timer.Sample listing = Timer.start();
+        try (TreeWalk treeWalk = new TreeWalk(repository)) {
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                boolean regularFile = (treeWalk.getRawMode(0) & FileMode.TYPE_MASK) == FileMode.TYPE_FILE;
+                String path = treeWalk.getPathString();
+                if (regularFile && matchesPatterns(path)) {
+                    fetchMetrics.fileMatched(SOURCE);
+                    blobs.add(new BlobEntry(path, treeWalk.getObjectId(0)));
+                } else if (regularFile) {
+                    fetchMetrics.fileExcluded(SOURCE);
+                    log.debug("Исключен файл по шаблону: {}", path);
+                }
+            }
+        }
+        listing.stop(fetchMetrics.listing(SOURCE));
+        return blobs;
+    }
+
+    /**
+     * Собирает блоки единого файла в порядке дерева коммита. Ссылка на повтор ставится только на уже записанный
+     * блок: если blob не удалось прочитать как текст, пропускаются все его пути.
+     *
+     * @param blobs Файлы дерева коммита.
+     * @param texts Прочитанный текст по blob-объекту.
+     * @param deduplicate Заменять повторы ссылкой на первое вхождение.
+     * @return Блоки единого файла.
+     */
+    private static List<String> assemble(List<BlobEntry> blobs, Map<ObjectId, String> texts, boolean deduplicate) {
+        List<String> contents = new ArrayList<>(blobs.size());
+        Map<ObjectId, String> writtenPaths = new HashMap<>();
+        for (BlobEntry blob : blobs) {
+            String content = texts.get(blob.id());
+            if (content == null) {
+                continue;
+            }
+            String firstPath = deduplicate ? writtenPaths.putIfAbsent(blob.id(), blob.path()) : null;
+            contents.add(ContentWriter.fileBlock(blob.path(),
+                    firstPath != null ? ContentDeduplicator.backReference(firstPath) : content));
+        }
+        return contents;
+    }
+
+    /**
+     * Читает blob как текст UTF-8.
+     *
+     * @return Текст файла или null, если файл бинарный или не читается.
+     */
+    private String readText(Repository repository, BlobEntry blob) {
+        byte[] bytes = readBytes(repository, blob);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return ContentWriter.decodeUtf8(bytes);
+        } catch (CharacterCodingException e) {
+            try (JobProfiler.Scope fileScope = jobProfiler.file(blob.path())) {
+                jobProfiler.status("skipped: not UTF-8");
+            }
+            log.debug("Skipped non UTF-8 blob {}", blob.path());
+            return null;
+        }
+    }
+
+    /**
+     * Читает содержимое blob-объекта как есть. У каждого потока свой ObjectReader, так как он не потокобезопасен.
+     *
+     * @return Содержимое файла или null, если файл не читается.
+     */
+    private byte[] readBytes(Repository repository, BlobEntry blob) {
+        try (JobProfiler.Scope fileScope = jobProfiler.file(blob.path())) {
+            long queued = System.nanoTime();
+            try (FetchBudget.Permit ignored = fetchBudget.acquire();
+                 ObjectReader reader = repository.newObjectReader()) {
+                jobProfiler.queueWait(System.nanoTime() - queued);
+                long started = System.nanoTime();
+                byte[] bytes = fetchMetrics.download(SOURCE).recordCallable(
+                        () -> reader.open(blob.id(), Constants.OBJ_BLOB).getBytes());
+                jobProfiler.network(System.nanoTime() - started, bytes.length);
+                fetchMetrics.bytesIn(SOURCE, bytes.length);
+                return bytes;
+            } catch (Exception e) {
+                fetchMetrics.fileFailed(SOURCE);
+                jobProfiler.status("error: " + e.getMessage());
+                log.error("Failed to read blob {}: {}", blob.path(), e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    private Path defaultOutputPath(Repository repository, RevCommit commit) {
+        File dir = repository.isBare() ? repository.getDirectory() : repository.getWorkTree();
+        String name = dir.getName().endsWith(".git") ? dir.getName().substring(0, dir.getName().length() - 4) : dir.getName();
+        return Paths.get("output", "all_contents_from_" + name + "_" + commit.abbreviate(7).name() + ".txt");
+    }
+
+    private boolean matchesPatterns(String path) {
+        return PathPatterns.matches(path, githubConfig.getIncludePatterns(), githubConfig.getExcludePatterns());
+    }
+
+    /**
+     * Файл дерева коммита: путь и идентификатор blob-объекта.
+     */
+    private record BlobEntry(String path, ObjectId id) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.GithubConfig;
+import com.example.githubreader.model.RepositoryStats;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кэши неизменяемых данных GitHub.
+ * <p>
+ * Все ключи привязаны к SHA коммита или blob-объекта, поэтому записи никогда не устаревают:
+ * листинги ключуются URL с {@code ?ref=<sha коммита>}, содержимое файлов — SHA blob-объекта,
+ * готовые результаты — SHA коммита и режимом вывода.
+ * <p>
+ * Содержимое файлов и готовые результаты ограничены объемом (длиной содержимого), а не числом записей.
+ * У каждого вида результата свой кэш и свой бюджет.
+ */
+@Component
+public class GithubCache {
+
+    private final LruCache<String, List<Map<String, Object>>> listings;
+    private final LruCache<String, String> blobs;
+    private final LruCache<String, String> singleFiles;
+    private final LruCache<String, List<String>> contentListings;
+    private final LruCache<String, String> deltas;
+    private final LruCache<String, String> files;
+    private final LruCache<String, RepositoryStats> stats;
+
+    public GithubCache(GithubConfig githubConfig) {
+        GithubConfig.Cache cache = githubConfig.getCache();
+        boolean enabled = cache != null && cache.isEnabled();
+        long resultBytes = enabled ? cache.getMaxResultBytes() : 0;
+        this.listings = new LruCache<>(enabled ? cache.getMaxListings() : 0);
+        this.blobs = new LruCache<>(enabled ? cache.getMaxBlobBytes() : 0, LruCache::length);
+        this.singleFiles = new LruCache<>(resultBytes, LruCache::length);
+        this.contentListings = new LruCache<>(resultBytes, LruCache::totalLength);
+        this.deltas = new LruCache<>(resultBytes, LruCache::length);
+        this.files = new LruCache<>(resultBytes, LruCache::length);
+        this.stats = new LruCache<>(enabled ? cache.getMaxStats() : 0);
+    }
+
+    /**
+     * @return Листинги директорий по URL с SHA коммита.
+     */
+    LruCache<String, List<Map<String, Object>>> listings() {
+        return listings;
+    }
+
+    /**
+     * @return Содержимое файлов по SHA blob-объекта.
+     */
+    LruCache<String, String> blobs() {
+        return blobs;
+    }
+
+    /**
+     * @return Единые файлы по SHA коммита, режиму и префиксам.
+     */
+    LruCache<String, String> singleFiles() {
+        return singleFiles;
+    }
+
+    /**
+     * @return Листинги со ссылками и содержимым по SHA коммита и префиксам.
+     */
+    LruCache<String, List<String>> contentListings() {
+        return contentListings;
+    }
+
+    /**
+     * @return Дельты между двумя коммитами.
+     */
+    LruCache<String, String> deltas() {
+        return deltas;
+    }
+
+    /**
+     * @return Отдельные файлы по URL с SHA коммита.
+     */
+    LruCache<String, String> files() {
+        return files;
+    }
+
+    /**
+     * @return Статистика репозиториев по SHA коммита и префиксам.
+     */
+    LruCache<String, RepositoryStats> stats() {
+        return stats;
+    }
+}
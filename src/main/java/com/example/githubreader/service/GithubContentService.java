@@ -1,26 +1,47 @@
 package com.example.githubreader.service;
 
 import com.example.githubreader.config.GithubConfig;
+import com.example.githubreader.config.PipelineSettings;
+import com.example.githubreader.model.RepositoryStats;
+import com.example.githubreader.model.TreePage;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.stream.Collectors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 /**
  * Сервис для работы с содержимым репозиториев GitHub.
@@ -31,16 +52,50 @@ public class GithubContentService {
 
     private final RestTemplate restTemplate;
     private final GithubConfig githubConfig;
+    private final FetchBudget fetchBudget;
+    private final GithubCache githubCache;
+    private final FetchMetrics fetchMetrics;
+    private final JobProfiler jobProfiler;
+    private final AdmissionController admissionController;
     private final ExecutorService executorService;
+    private final GraphqlBlobFetcher graphqlBlobFetcher;
+    private final RequestHedger requestHedger;
+    private final MirrorWriter mirrorWriter = new MirrorWriter(Paths.get(ContentWriter.OUTPUT_DIR));
 
-    public GithubContentService(RestTemplate restTemplate, GithubConfig githubConfig) {
+    public GithubContentService(RestTemplate restTemplate, GithubConfig githubConfig, FetchBudget fetchBudget,
+                                GithubCache githubCache, FetchMetrics fetchMetrics, JobProfiler jobProfiler,
+                                AdmissionController admissionController) {
         this.restTemplate = restTemplate;
         this.githubConfig = githubConfig;
+        this.fetchBudget = fetchBudget;
+        this.githubCache = githubCache;
+        this.fetchMetrics = fetchMetrics;
+        this.jobProfiler = jobProfiler;
+        this.admissionController = admissionController;
         this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+        this.graphqlBlobFetcher = new GraphqlBlobFetcher(restTemplate, githubConfig, fetchBudget, executorService);
+        this.requestHedger = new RequestHedger(githubConfig.getHedge(), executorService);
     }
 
-    private static final String GITHUB_API_URL = "https://api.github.com/repos/";
-    private static final String OUTPUT_DIR = "output/";
+    /**
+     * Результат, получаемый при обходе репозитория.
+     */
+    public enum Output {
+        /** Зеркало файлов в директории output/. */
+        MIRROR,
+        /** Единый файл со всем содержимым. */
+        SINGLE_FILE,
+        /** Листинг со ссылками на файлы. */
+        LISTING
+    }
+
+    private static final String GITHUB_API_URL = "https://api.github.com";
+    private static final String SOURCE = "github";
+    /** Максимальное число файлов в ответе Compare API. */
+    private static final int COMPARE_FILES_LIMIT = 300;
+    /** Максимальный размер страницы обзора дерева. */
+    private static final int MAX_BROWSE_LIMIT = 1000;
+    private static final Pattern COMMIT_SHA = Pattern.compile("[0-9a-f]{40}");
 
     @PreDestroy
     public void shutdown() {
@@ -55,20 +110,38 @@ public class GithubContentService {
      * @return Содержимое файла.
      */
     public String getFileContent(String repoUrl, String filePath) {
-        String apiUrl = convertToApiUrl(repoUrl) + "/contents/" + filePath;
+        return getFileContent(repoUrl, filePath, null);
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", "Bearer " + githubConfig.getToken());
-        headers.set("Accept", "application/vnd.github.v3.raw");
+    /**
+     * Получает содержимое файла из репозитория GitHub на указанной ревизии.
+     *
+     * @param repoUrl URL репозитория.
+     * @param filePath Путь к файлу в репозитории.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @return Содержимое файла.
+     */
+    public String getFileContent(String repoUrl, String filePath, String ref) {
+        String repoApiUrl = convertToApiUrl(repoUrl);
+        String commitSha = resolveCommitSha(repoApiUrl, ref);
+        String apiUrl = repoApiUrl + "/contents/" + filePath + "?ref=" + commitSha;
 
-        HttpEntity<String> entity = new HttpEntity<>(headers);
+        return githubCache.files().computeIfAbsent(apiUrl, () -> {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("Authorization", "Bearer " + githubConfig.getToken());
+            headers.set("Accept", "application/vnd.github.v3.raw");
+
+            HttpEntity<String> entity = new HttpEntity<>(headers);
 
-        return restTemplate.exchange(
-                apiUrl,
-                HttpMethod.GET,
-                entity,
-                String.class
-        ).getBody();
+            try (FetchBudget.Permit ignored = fetchBudget.acquire()) {
+                return restTemplate.exchange(
+                        apiUrl,
+                        HttpMethod.GET,
+                        entity,
+                        String.class
+                ).getBody();
+            }
+        });
     }
 
     /**
@@ -78,12 +151,49 @@ public class GithubContentService {
      * @return Список содержимого репозитория.
      */
     public List<String> getRepositoryContents(String repoUrl) {
-        List<String> contents = new ArrayList<>();
-        String apiUrl = convertToApiUrl(repoUrl) + "/contents";
-        String htmlBaseUrl = convertToHtmlBaseUrl(repoUrl);
+        return getRepositoryContents(repoUrl, null);
+    }
+
+    /**
+     * Получает список содержимого репозитория на указанной ревизии.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @return Список содержимого репозитория.
+     */
+    public List<String> getRepositoryContents(String repoUrl, String ref) {
+        return getRepositoryContents(repoUrl, ref, List.of());
+    }
+
+    /**
+     * Получает список содержимого поддеревьев репозитория на указанной ревизии.
+     * Листинги запрашиваются только для директорий внутри префиксов.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @param paths Префиксы путей (директории), пустой список — весь репозиторий.
+     * @return Список содержимого поддеревьев.
+     */
+    public List<String> getRepositoryContents(String repoUrl, String ref, List<String> paths) {
+        List<String> prefixes = PathPrefixes.normalize(paths);
+        String repoApiUrl = convertToApiUrl(repoUrl);
+        String commitSha = resolveCommitSha(repoApiUrl, ref);
+        String blobBaseUrl = convertToHtmlBaseUrl(repoUrl) + "/blob/" + commitSha;
 
-        fetchAndProcessContents(apiUrl, contents, htmlBaseUrl);
-        return contents;
+        String key = resultKey(repoApiUrl, commitSha, "listing", prefixes);
+        List<String> cached = githubCache.contentListings().get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return fetchMetrics.job(SOURCE, "listing").record(() -> {
+            ContentSink.Listing listing = new ContentSink.Listing(blobBaseUrl);
+            boolean complete = fetchInto(repoUrl, repoApiUrl, commitSha, prefixes, List.of(listing), "Failed to fetch repository contents");
+            List<String> result = listing.result();
+            if (complete) {
+                githubCache.contentListings().put(key, result);
+            }
+            return result;
+        });
     }
 
     /**
@@ -92,8 +202,40 @@ public class GithubContentService {
      * @param repoUrl URL репозитория.
      */
     public void saveRepositoryContents(String repoUrl) {
-        String apiUrl = convertToApiUrl(repoUrl) + "/contents";
-        fetchAndSaveContents(apiUrl);
+        saveRepositoryContents(repoUrl, null);
+    }
+
+    /**
+     * Сохраняет содержимое репозитория на указанной ревизии в файлы.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     */
+    public void saveRepositoryContents(String repoUrl, String ref) {
+        saveRepositoryContents(repoUrl, ref, List.of());
+    }
+
+    /**
+     * Сохраняет в файлы содержимое поддеревьев репозитория на указанной ревизии.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @param paths Префиксы путей (директории), пустой список — весь репозиторий.
+     */
+    public void saveRepositoryContents(String repoUrl, String ref, List<String> paths) {
+        List<String> prefixes = PathPrefixes.normalize(paths);
+        jobProfiler.run(SOURCE, "mirror", repoUrl, profile -> {
+            profile.outputDirectory(Paths.get(ContentWriter.OUTPUT_DIR));
+            String repoApiUrl = convertToApiUrl(repoUrl);
+            String commitSha;
+            try (JobProfiler.Scope phase = jobProfiler.phase("resolve")) {
+                commitSha = resolveCommitSha(repoApiUrl, ref);
+            }
+            try (JobProfiler.Scope phase = jobProfiler.phase("fetch")) {
+                fetchMetrics.job(SOURCE, "mirror").record(() ->
+                        fetchInto(repoUrl, repoApiUrl, commitSha, prefixes, List.of(mirrorSink()), "Failed to save repository contents"));
+            }
+        });
     }
 
     /**
@@ -102,283 +244,1034 @@ public class GithubContentService {
      * @param repoUrl URL репозитория.
      */
     public void saveAllContentsToSingleFile(String repoUrl) {
-        List<String> contents = new ArrayList<>();
-        String apiUrl = convertToApiUrl(repoUrl) + "/contents";
+        saveAllContentsToSingleFile(repoUrl, null, Paths.get(githubConfig.getSingleFilePath()));
+    }
+
+    /**
+     * Сохраняет все содержимое репозитория на указанной ревизии в один файл.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     */
+    public void saveAllContentsToSingleFile(String repoUrl, String ref) {
+        saveAllContentsToSingleFile(repoUrl, ref, Paths.get(githubConfig.getSingleFilePath()));
+    }
+
+    /**
+     * Сохраняет все содержимое репозитория в указанный файл.
+     *
+     * @param repoUrl URL репозитория.
+     * @param filePath Путь к единому файлу.
+     */
+    public void saveAllContentsToSingleFile(String repoUrl, Path filePath) {
+        saveAllContentsToSingleFile(repoUrl, null, filePath);
+    }
+
+    /**
+     * Сохраняет все содержимое репозитория на указанной ревизии в указанный файл.
+     * Результат для одного и того же коммита берется из кэша без обращений к API.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @param filePath Путь к единому файлу.
+     */
+    public void saveAllContentsToSingleFile(String repoUrl, String ref, Path filePath) {
+        saveAllContentsToSingleFile(repoUrl, ref, List.of(), filePath);
+    }
+
+    /**
+     * Сохраняет содержимое поддеревьев репозитория на указанной ревизии в github.singleFilePath.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @param paths Префиксы путей (директории), пустой список — весь репозиторий.
+     */
+    public void saveAllContentsToSingleFile(String repoUrl, String ref, List<String> paths) {
+        saveAllContentsToSingleFile(repoUrl, ref, paths, Paths.get(githubConfig.getSingleFilePath()));
+    }
+
+    /**
+     * Сохраняет содержимое поддеревьев репозитория на указанной ревизии в указанный файл.
+     * Обход начинается с префиксов и не выходит за их пределы.
+     * Результат для одного и того же коммита и набора префиксов берется из кэша без обращений к API.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @param paths Префиксы путей (директории), пустой список — весь репозиторий.
+     * @param filePath Путь к единому файлу.
+     */
+    public void saveAllContentsToSingleFile(String repoUrl, String ref, List<String> paths, Path filePath) {
+        List<String> prefixes = PathPrefixes.normalize(paths);
+        jobProfiler.run(SOURCE, "single-file", repoUrl, profile -> {
+            profile.outputFile(filePath);
+            String repoApiUrl = convertToApiUrl(repoUrl);
+            String commitSha;
+            try (JobProfiler.Scope phase = jobProfiler.phase("resolve")) {
+                commitSha = resolveCommitSha(repoApiUrl, ref);
+            }
+            boolean deduplicate = githubConfig.isDeduplicate();
+            String mode = deduplicate ? "single-file-dedup" : "single-file";
+
+            Timer.Sample job = Timer.start();
+            String allContent;
+            try (JobProfiler.Scope phase = jobProfiler.phase("fetch")) {
+                String key = resultKey(repoApiUrl, commitSha, mode, prefixes);
+                allContent = githubCache.singleFiles().get(key);
+                if (allContent == null) {
+                    ContentSink.Aggregate aggregate = new ContentSink.Aggregate(deduplicate ? new ContentDeduplicator() : null);
+                    boolean complete = fetchInto(repoUrl, repoApiUrl, commitSha, prefixes, List.of(aggregate),
+                            "Failed to fetch repository contents for single file");
+                    allContent = aggregate.result();
+                    // Неполный результат best-effort не кэшируется: следующий запрос попробует получить пропущенное
+                    if (complete) {
+                        githubCache.singleFiles().put(key, allContent);
+                    }
+                }
+            }
+
+            try (JobProfiler.Scope phase = jobProfiler.phase("write")) {
+                writeSingleFile(filePath, allContent);
+                job.stop(fetchMetrics.job(SOURCE, "single-file"));
+                log.info("Saved all contents of {}@{} to single file: {}", repoUrl, commitSha, filePath);
+            }
+        });
+    }
+
+    /**
+     * Получает любое сочетание результатов за один обход репозитория; единый файл сохраняется в github.singleFilePath.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @param outputs Запрошенные результаты.
+     * @return Листинг, если запрошен {@link Output#LISTING}, иначе пустой список.
+     */
+    public List<String> exportRepositoryContents(String repoUrl, String ref, Set<Output> outputs) {
+        return exportRepositoryContents(repoUrl, ref, outputs, List.of());
+    }
+
+    /**
+     * Получает любое сочетание результатов для поддеревьев репозитория за один обход;
+     * единый файл сохраняется в github.singleFilePath.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @param outputs Запрошенные результаты.
+     * @param paths Префиксы путей (директории), пустой список — весь репозиторий.
+     * @return Листинг, если запрошен {@link Output#LISTING}, иначе пустой список.
+     */
+    public List<String> exportRepositoryContents(String repoUrl, String ref, Set<Output> outputs, List<String> paths) {
+        Path filePath = outputs != null && outputs.contains(Output.SINGLE_FILE)
+                ? Paths.get(githubConfig.getSingleFilePath()) : null;
+        return exportRepositoryContents(repoUrl, ref, outputs, paths, filePath);
+    }
+
+    /**
+     * Получает любое сочетание результатов (зеркало, единый файл, листинг) за один обход репозитория:
+     * каждый файл скачивается один раз, сколько бы результатов ни было запрошено.
+     * Единый файл и листинг кэшируются так же, как в {@link #saveAllContentsToSingleFile} и
+     * {@link #getRepositoryContents}, поэтому уже готовые результаты повторно не собираются.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @param outputs Запрошенные результаты.
+     * @param filePath Путь к единому файлу (используется для {@link Output#SINGLE_FILE}).
+     * @return Листинг, если запрошен {@link Output#LISTING}, иначе пустой список.
+     */
+    public List<String> exportRepositoryContents(String repoUrl, String ref, Set<Output> outputs, Path filePath) {
+        return exportRepositoryContents(repoUrl, ref, outputs, List.of(), filePath);
+    }
+
+    /**
+     * Получает любое сочетание результатов для поддеревьев репозитория за один обход.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @param outputs Запрошенные результаты.
+     * @param paths Префиксы путей (директории), пустой список — весь репозиторий.
+     * @param filePath Путь к единому файлу (используется для {@link Output#SINGLE_FILE}).
+     * @return Листинг, если запрошен {@link Output#LISTING}, иначе пустой список.
+     */
+    public List<String> exportRepositoryContents(String repoUrl, String ref, Set<Output> outputs, List<String> paths,
+                                                 Path filePath) {
+        if (outputs == null || outputs.isEmpty()) {
+            throw new IllegalArgumentException("At least one output must be requested");
+        }
+        List<String> prefixes = PathPrefixes.normalize(paths);
+        List<String> result = new ArrayList<>();
+        jobProfiler.run(SOURCE, "export", repoUrl, profile -> {
+            if (outputs.contains(Output.SINGLE_FILE)) {
+                profile.outputFile(filePath);
+            } else if (outputs.contains(Output.MIRROR)) {
+                profile.outputDirectory(Paths.get(ContentWriter.OUTPUT_DIR));
+            }
+            String repoApiUrl = convertToApiUrl(repoUrl);
+            String commitSha;
+            try (JobProfiler.Scope phase = jobProfiler.phase("resolve")) {
+                commitSha = resolveCommitSha(repoApiUrl, ref);
+            }
+            String listingKey = resultKey(repoApiUrl, commitSha, "listing", prefixes);
+            String singleFileKey = resultKey(repoApiUrl, commitSha,
+                    githubConfig.isDeduplicate() ? "single-file-dedup" : "single-file", prefixes);
+
+            List<ContentSink> sinks = new ArrayList<>();
+            List<String> listing = outputs.contains(Output.LISTING)
+                    ? githubCache.contentListings().get(listingKey) : null;
+            ContentSink.Listing listingSink = null;
+            if (outputs.contains(Output.LISTING) && listing == null) {
+                listingSink = new ContentSink.Listing(convertToHtmlBaseUrl(repoUrl) + "/blob/" + commitSha);
+                sinks.add(listingSink);
+            }
+            String allContent = outputs.contains(Output.SINGLE_FILE)
+                    ? githubCache.singleFiles().get(singleFileKey) : null;
+            ContentSink.Aggregate aggregate = null;
+            if (outputs.contains(Output.SINGLE_FILE) && allContent == null) {
+                aggregate = new ContentSink.Aggregate(githubConfig.isDeduplicate() ? new ContentDeduplicator() : null);
+                sinks.add(aggregate);
+            }
+            if (outputs.contains(Output.MIRROR)) {
+                sinks.add(mirrorSink());
+            }
+
+            Timer.Sample job = Timer.start();
+            boolean complete = true;
+            if (!sinks.isEmpty()) {
+                try (JobProfiler.Scope phase = jobProfiler.phase("fetch")) {
+                    complete = fetchInto(repoUrl, repoApiUrl, commitSha, prefixes, sinks, "Failed to export repository contents");
+                }
+            }
+            if (listingSink != null) {
+                listing = listingSink.result();
+                if (complete) {
+                    githubCache.contentListings().put(listingKey, listing);
+                }
+            }
+            if (aggregate != null) {
+                allContent = aggregate.result();
+                if (complete) {
+                    githubCache.singleFiles().put(singleFileKey, allContent);
+                }
+            }
+            if (allContent != null) {
+                try (JobProfiler.Scope phase = jobProfiler.phase("write")) {
+                    writeSingleFile(filePath, allContent);
+                }
+            }
+            job.stop(fetchMetrics.job(SOURCE, "export"));
+            if (listing != null) {
+                result.addAll(listing);
+            }
+            log.info("Exported {} of {}@{} in one pass", outputs, repoUrl, commitSha);
+        });
+        return result;
+    }
+
+    /**
+     * Считает статистику подходящих по шаблонам файлов только по метаданным, без скачивания содержимого:
+     * число файлов, объем, разбивку по расширениям и самые большие файлы.
+     * Дерево коммита получается одним запросом Git Trees API; если GitHub обрезал дерево (очень большие
+     * репозитории), выполняется обход листингов, которые тоже содержат размеры файлов.
+     * Результат кэшируется по SHA коммита; неполная статистика (часть листингов не прочитана, пропущенные
+     * директории в {@link RepositoryStats#getMissing()}) не кэшируется.
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @param paths Префиксы путей (директории), пустой список — весь репозиторий.
+     * @param top Число самых больших файлов в результате.
+     * @return Статистика репозитория.
+     */
+    public RepositoryStats getRepositoryStats(String repoUrl, String ref, List<String> paths, int top) {
+        if (top < 0) {
+            throw new IllegalArgumentException("top must not be negative");
+        }
+        List<String> prefixes = PathPrefixes.normalize(paths);
+        String repoApiUrl = convertToApiUrl(repoUrl);
+        String commitSha = resolveCommitSha(repoApiUrl, ref);
 
-        fetchAndCollectContents(apiUrl, contents);
+        RepositoryStats cached = githubCache.stats().get(statsKey(repoApiUrl, commitSha, prefixes, top));
+        if (cached != null) {
+            return cached;
+        }
+        return fetchMetrics.job(SOURCE, "stats").record(() -> computeStats(repoUrl, repoApiUrl, commitSha, prefixes, top));
+    }
 
+    private static String statsKey(String repoApiUrl, String commitSha, List<String> prefixes, int top) {
+        return resultKey(repoApiUrl, commitSha, "stats-" + top, prefixes);
+    }
+
+    /**
+     * Считает статистику и кэширует ее, если она полная.
+     */
+    private RepositoryStats computeStats(String repoUrl, String repoApiUrl, String commitSha, List<String> prefixes,
+                                         int top) {
+        RepositoryStats stats;
         try {
-            Path filePath = Paths.get(githubConfig.getSingleFilePath());
-            Files.createDirectories(filePath.getParent()); // Создаем родительские директории
-            String allContent = contents.stream().collect(Collectors.joining("\n"));
-            Files.writeString(filePath, allContent);
-            log.info("Saved all contents to single file: {}", filePath);
-        } catch (IOException e) {
-            log.error("Failed to save all contents to {}: {}", githubConfig.getSingleFilePath(), e.getMessage());
-            throw new RuntimeException("Failed to save all contents to single file", e);
+            stats = collectStats(repoUrl, repoApiUrl, commitSha, prefixes, top);
+        } catch (Exception e) {
+            log.error("Error computing statistics of {}: {}", repoApiUrl, e.getMessage());
+            throw new RuntimeException("Failed to compute repository statistics", e);
+        }
+        if (stats.getMissing().isEmpty()) {
+            githubCache.stats().put(statsKey(repoApiUrl, commitSha, prefixes, top), stats);
         }
+        return stats;
     }
 
     /**
-     * Получает и обрабатывает содержимое репозитория.
+     * Собирает статистику по рекурсивному дереву коммита, а если оно обрезано — по листингам.
+     */
+    @SuppressWarnings("unchecked")
+    private RepositoryStats collectStats(String repoUrl, String repoApiUrl, String commitSha, List<String> prefixes,
+                                         int top) throws Exception {
+        RepositoryStatsCollector collector = new RepositoryStatsCollector(top);
+        Map<String, Object> tree = fetchTree(repoApiUrl, commitSha);
+        if (tree != null && !Boolean.TRUE.equals(tree.get("truncated")) && tree.get("tree") instanceof List<?> entries) {
+            for (Map<String, Object> entry : (List<Map<String, Object>>) entries) {
+                String path = (String) entry.get("path");
+                if ("blob".equals(entry.get("type")) && withinPrefixes(path, prefixes)) {
+                    addToStats(collector, path, entry.get("size"));
+                }
+            }
+            return collector.result(repoUrl, commitSha, prefixes, "tree", List.of());
+        }
+
+        log.debug("Tree of {}@{} is truncated, falling back to directory listings", repoApiUrl, commitSha);
+        List<Map<String, Object>> files = Collections.synchronizedList(new ArrayList<>());
+        List<String> rootUrls = prefixes.isEmpty()
+                ? List.of(contentsUrl(repoApiUrl, commitSha))
+                : prefixes.stream().map(prefix -> contentsUrl(repoApiUrl, prefix, commitSha)).toList();
+        JobControl control = new JobControl(githubConfig.getJob());
+        for (String rootUrl : rootUrls) {
+            listFiles(rootUrl, path -> true, files::add, control);
+        }
+        if (!control.missing().isEmpty()) {
+            log.warn("Statistics of {}@{} miss {} directories: {}", repoApiUrl, commitSha,
+                    control.missing().size(), control.missing());
+        }
+        for (Map<String, Object> file : files) {
+            addToStats(collector, (String) file.get("path"), file.get("size"));
+        }
+        return collector.result(repoUrl, commitSha, prefixes, "contents", control.missing());
+    }
+
+    private void addToStats(RepositoryStatsCollector collector, String path, Object size) {
+        if (PathPatterns.matches(path, githubConfig.getIncludePatterns(), githubConfig.getExcludePatterns())) {
+            collector.add(path, size instanceof Number number ? number.longValue() : 0);
+        } else {
+            collector.excluded();
+        }
+    }
+
+    private static boolean withinPrefixes(String path, List<String> prefixes) {
+        if (prefixes.isEmpty()) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Получает рекурсивное дерево коммита одним запросом Git Trees API.
      *
-     * @param apiUrl URL API для получения содержимого репозитория.
-     * @param contents Список для хранения содержимого файлов.
-     * @param htmlBaseUrl Базовый URL для HTML-ссылок на файлы.
+     * @return Ответ API: {@code tree} — записи с путями, типами и размерами, {@code truncated} — признак обрезки.
      */
-    private void fetchAndProcessContents(String apiUrl, List<String> contents, String htmlBaseUrl) {
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> fetchTree(String repoApiUrl, String commitSha) {
         HttpHeaders headers = new HttpHeaders();
         headers.set("Authorization", "Bearer " + githubConfig.getToken());
         headers.set("Accept", "application/vnd.github.v3+json");
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
+        try (FetchBudget.Permit ignored = fetchBudget.acquire()) {
+            return fetchMetrics.listing(SOURCE).record(() -> restTemplate.exchange(
+                    repoApiUrl + "/git/trees/" + commitSha + "?recursive=1", HttpMethod.GET, entity, Map.class
+            ).getBody());
+        }
+    }
+
+    /**
+     * Возвращает страницу одного уровня дерева репозитория без скачивания содержимого файлов.
+     * Уровень получается одним запросом листинга, который попадает в кэш листингов по SHA коммита, поэтому
+     * повторные запросы и следующие страницы того же уровня обходятся без обращений к API (ветка разрешается
+     * в SHA, если {@code ref} — не полный SHA коммита).
+     *
+     * @param repoUrl URL репозитория.
+     * @param ref Ветка, тег или SHA коммита (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @param path Директория (опционально, по умолчанию — корень).
+     * @param cursor Курсор следующей страницы из предыдущего ответа (опционально).
+     * @param limit Размер страницы, от 1 до {@value #MAX_BROWSE_LIMIT}.
+     * @return Страница записей директории.
+     * @throws ResponseStatusException 400, если путь указывает на файл, и 404, если пути нет на коммите.
+     */
+    public TreePage browseTree(String repoUrl, String ref, String path, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_BROWSE_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_BROWSE_LIMIT);
+        }
+        List<String> prefixes = PathPrefixes.normalize(path != null ? List.of(path) : List.of());
+        String directory = prefixes.isEmpty() ? "" : prefixes.get(0);
+        String repoApiUrl = convertToApiUrl(repoUrl);
+        String commitSha = resolveCommitSha(repoApiUrl, ref);
+        int offset = decodeCursor(cursor, commitSha, directory);
+
+        List<Map<String, Object>> listing;
         try {
-            List<Map<String, Object>> files = restTemplate.exchange(
-                    apiUrl, HttpMethod.GET, entity, List.class
-            ).getBody();
+            listing = fetchDirectoryListing(directory.isEmpty()
+                    ? contentsUrl(repoApiUrl, commitSha)
+                    : contentsUrl(repoApiUrl, directory, commitSha), directory);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (HttpClientErrorException.NotFound e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Path not found: " + directory, e);
+        } catch (Exception e) {
+            log.error("Error browsing {} of {}: {}", directory, repoApiUrl, e.getMessage());
+            throw new RuntimeException("Failed to browse repository", e);
+        }
+        List<TreePage.TreeEntry> entries = listing == null ? List.of() : listing.stream()
+                .map(entry -> new TreePage.TreeEntry((String) entry.get("name"), (String) entry.get("path"),
+                        (String) entry.get("type"),
+                        entry.get("size") instanceof Number size ? size.longValue() : 0,
+                        (String) entry.get("sha")))
+                .sorted(Comparator.comparing((TreePage.TreeEntry entry) -> !"dir".equals(entry.getType()))
+                        .thenComparing(TreePage.TreeEntry::getName))
+                .toList();
 
-            if (files != null) {
-                List<Future<?>> futures = new ArrayList<>();
-                for (Map<String, Object> file : files) {
-                    Future<?> future = executorService.submit(() -> {
-                        String type = (String) file.get("type");
-                        String path = (String) file.get("path");
-                        if ("file".equals(type) && matchesPatterns(path)) {
-                            String content = getFileContentFromUrl((String) file.get("download_url"));
-                            if (content != null) {
-                                String fileLink = htmlBaseUrl + "/blob/main/" + path;
-                                String formattedLine = "File: <a href=\"" + fileLink + "\">" + path + "</a> \n" + content + "\n";
-                                synchronized (contents) { // Синхронизация для потокобезопасности
-                                    contents.add(formattedLine);
-                                }
-                                log.debug("Обработан файл: {}", path);
-                            }
-                        } else if ("dir".equals(type)) {
-                            processDirectory((String) file.get("url"), contents, htmlBaseUrl, false);
-                        }
-                    });
-                    futures.add(future);
-                }
-                // Ожидаем завершения всех задач
-                for (Future<?> future : futures) {
-                    future.get();
+        int end = Math.min(entries.size(), offset + limit);
+        String nextCursor = end < entries.size() ? encodeCursor(commitSha, directory, end) : null;
+        return new TreePage(repoUrl, commitSha, directory, entries.subList(Math.min(offset, end), end), nextCursor);
+    }
+
+    /**
+     * Курсор страницы: непрозрачная строка с SHA коммита, директорией и смещением. Листинг на коммите
+     * не меняется, поэтому смещение остается корректным между запросами.
+     */
+    private static String encodeCursor(String commitSha, String directory, int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((commitSha + ":" + offset + ":" + directory).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return Смещение из курсора, 0 без курсора.
+     * @throws IllegalArgumentException если курсор поврежден или выдан для другого коммита или директории.
+     */
+    private static int decodeCursor(String cursor, String commitSha, String directory) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+            if (parts.length == 3 && parts[0].equals(commitSha) && parts[2].equals(directory)) {
+                int offset = Integer.parseInt(parts[1]);
+                if (offset >= 0) {
+                    return offset;
                 }
             }
-        } catch (Exception e) {
-            log.error("Error fetching repository contents from {}: {}", apiUrl, e.getMessage());
-            throw new RuntimeException("Failed to fetch repository contents", e);
+        } catch (IllegalArgumentException e) {
+            // Некорректный Base64 или число
         }
+        throw new IllegalArgumentException("Invalid cursor for " + directory + "@" + commitSha);
     }
 
     /**
-     * Получает и сохраняет содержимое репозитория.
+     * Формирует единый файл только из файлов, измененных между двумя ревизиями: список изменений берется
+     * из Compare API, файлы фильтруются по шаблонам и скачиваются на ревизии {@code head}. Стоимость запроса
+     * пропорциональна размеру изменения, а не размеру репозитория.
+     * <p>
+     * Блоки имеют вид {@code File: <путь> (<статус>)} и идут в порядке путей; у удаленных файлов содержимого нет,
+     * у переименованных указывается прежний путь. Файлы, которые не удалось скачать, в режиме best-effort
+     * перечисляются в блоке {@code Missing paths}, а обрезанный GitHub список изменений отмечается блоком
+     * {@code Truncated}; в режиме fail-fast оба случая завершают задачу ошибкой. Кэшируется только полный результат.
      *
-     * @param apiUrl URL API для получения содержимого репозитория.
+     * @param repoUrl URL репозитория.
+     * @param base Базовая ветка, тег или SHA коммита.
+     * @param head Ветка, тег или SHA коммита с изменениями (опционально, по умолчанию — HEAD ветки по умолчанию).
+     * @return Содержимое единого файла изменений.
      */
-    private void fetchAndSaveContents(String apiUrl) {
+    public String getDeltaContents(String repoUrl, String base, String head) {
+        if (base == null || base.isBlank()) {
+            throw new IllegalArgumentException("Base ref must not be empty");
+        }
+        String repoApiUrl = convertToApiUrl(repoUrl);
+        String baseSha = resolveCommitSha(repoApiUrl, base);
+        String headSha = resolveCommitSha(repoApiUrl, head);
+
+        String key = resultKey(repoApiUrl, baseSha + "..." + headSha, "delta", List.of());
+        String cached = githubCache.deltas().get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return fetchMetrics.job(SOURCE, "delta").record(() -> {
+            JobControl control = new JobControl(githubConfig.getJob());
+            Delta delta;
+            try {
+                delta = control.run(executorService, () -> collectDelta(repoApiUrl, baseSha, headSha, control));
+            } catch (Exception e) {
+                log.error("Error fetching delta {}...{} of {}: {}", baseSha, headSha, repoApiUrl, e.getMessage());
+                throw new RuntimeException("Failed to fetch repository delta", e);
+            }
+            if (delta.complete()) {
+                githubCache.deltas().put(key, delta.content());
+            }
+            return delta.content();
+        });
+    }
+
+    /**
+     * Единый файл изменений и признак того, что в него попали все изменения.
+     */
+    private record Delta(String content, boolean complete) {
+    }
+
+    /**
+     * Пропускает измененные файлы через этапы filter → fetch → write и собирает блоки в порядке путей.
+     */
+    private Delta collectDelta(String repoApiUrl, String baseSha, String headSha, JobControl control) throws Exception {
+        List<Map<String, Object>> changed = fetchChangedFiles(repoApiUrl, baseSha, headSha);
+        boolean truncated = changed.size() >= COMPARE_FILES_LIMIT;
+        if (truncated) {
+            String message = "Comparison " + baseSha + "..." + headSha + " of " + repoApiUrl + " lists " + changed.size()
+                    + " files, GitHub truncates the list at " + COMPARE_FILES_LIMIT;
+            if (control.isFailFast()) {
+                throw new IllegalStateException(message);
+            }
+            log.warn(message);
+        }
+        Map<String, String> blocks = new TreeMap<>();
+        PipelineSettings pipeline = githubConfig.getPipeline() != null ? githubConfig.getPipeline() : new PipelineSettings();
+        StagedPipeline.<Map<String, Object>>from(SOURCE, executorService, fetchMetrics, "list",
+                        emit -> changed.forEach(emit::emit))
+                .<Map<String, Object>>then("filter", pipeline.getFilter(), (file, emit) -> {
+                    if (matchesPatterns((String) file.get("filename"))) {
+                        emit.emit(file);
+                    }
+                })
+                .<PendingFile>then("fetch", pipeline.getFetch(), (file, emit) -> {
+                    String path = (String) file.get("filename");
+                    Map<String, Object> entry = new HashMap<>();
+                    entry.put("path", path);
+                    entry.put("sha", file.get("sha"));
+                    entry.put("download_url", file.get("raw_url"));
+                    entry.put("status", deltaStatus(file));
+                    String content = "removed".equals(file.get("status")) ? "" : fetchFileContent(entry);
+                    if (content != null) {
+                        emit.emit(new PendingFile(entry, List.of(), content));
+                    } else {
+                        control.failed(path, "download failed");
+                    }
+                })
+                .then("write", pipeline.getWrite(), (file, emit) -> {
+                    String path = (String) file.entry().get("path");
+                    synchronized (blocks) {
+                        blocks.put(path, "File: " + path + " (" + file.entry().get("status") + ") \n" + file.content() + "\n");
+                    }
+                })
+                .build()
+                .run();
+        log.info("Fetched {} of {} changed files between {} and {}", blocks.size(), changed.size(), baseSha, headSha);
+        List<String> contents = new ArrayList<>(blocks.values());
+        List<String> missing = control.missing();
+        if (!missing.isEmpty()) {
+            contents.add(ContentWriter.missingBlock(missing));
+        }
+        if (truncated) {
+            contents.add("Truncated: GitHub lists at most " + COMPARE_FILES_LIMIT
+                    + " changed files, further changes are not included\n");
+        }
+        return new Delta(ContentWriter.join(contents), missing.isEmpty() && !truncated);
+    }
+
+    /**
+     * @return Статус изменения для заголовка блока, у переименованных и скопированных — с прежним путем.
+     */
+    private static String deltaStatus(Map<String, Object> file) {
+        String status = (String) file.get("status");
+        Object previous = file.get("previous_filename");
+        return previous != null ? status + " from " + previous : status;
+    }
+
+    /**
+     * Получает список файлов, измененных между двумя коммитами, одним запросом Compare API.
+     * GitHub возвращает не больше {@value #COMPARE_FILES_LIMIT} файлов, и постраничный запрос ({@code page}) этот
+     * предел не снимает: список файлов есть только на первой странице. Достижение предела обрабатывает вызывающий.
+     *
+     * @return Записи об измененных файлах: {@code filename}, {@code status}, {@code sha}, {@code raw_url},
+     * {@code previous_filename}.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> fetchChangedFiles(String repoApiUrl, String baseSha, String headSha) {
         HttpHeaders headers = new HttpHeaders();
         headers.set("Authorization", "Bearer " + githubConfig.getToken());
         headers.set("Accept", "application/vnd.github.v3+json");
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
-        try {
-            List<Map<String, Object>> files = restTemplate.exchange(
-                    apiUrl, HttpMethod.GET, entity, List.class
-            ).getBody();
+        Map<String, Object> comparison;
+        try (FetchBudget.Permit ignored = fetchBudget.acquire()) {
+            comparison = fetchMetrics.listing(SOURCE).record(() -> restTemplate.exchange(
+                    repoApiUrl + "/compare/" + baseSha + "..." + headSha, HttpMethod.GET, entity, Map.class
+            ).getBody());
+        }
+        return comparison != null && comparison.get("files") instanceof List<?> list
+                ? (List<Map<String, Object>>) list : List.of();
+    }
 
-            if (files != null) {
-                List<Future<?>> futures = new ArrayList<>();
-                for (Map<String, Object> file : files) {
-                    Future<?> future = executorService.submit(() -> {
-                        String type = (String) file.get("type");
-                        String path = (String) file.get("path");
-                        if ("file".equals(type) && matchesPatterns(path)) {
-                            String content = getFileContentFromUrl((String) file.get("download_url"));
-                            if (content != null) {
-                                saveContentToFile(path, content);
-                            }
-                        } else if ("dir".equals(type)) {
-                            processDirectory((String) file.get("url"), new ArrayList<>(), "", true);
-                        }
-                    });
-                    futures.add(future);
-                }
-                for (Future<?> future : futures) {
-                    future.get();
-                }
-            }
+    /**
+     * Записывает единый файл с учетом метрик записи.
+     */
+    private void writeSingleFile(Path filePath, String allContent) {
+        try {
+            long bytes = fetchMetrics.write(SOURCE).recordCallable(() -> ContentWriter.writeSingleFile(filePath, allContent));
+            fetchMetrics.bytesOut(SOURCE, bytes);
         } catch (Exception e) {
-            log.error("Error fetching repository contents for saving from {}: {}", apiUrl, e.getMessage());
-            throw new RuntimeException("Failed to save repository contents", e);
+            log.error("Failed to save all contents to {}: {}", filePath, e.getMessage());
+            throw new RuntimeException("Failed to save all contents to single file", e);
+        }
+    }
+
+    /**
+     * @return Приемник, сохраняющий каждый файл в зеркало под output/.
+     */
+    private ContentSink mirrorSink() {
+        return new MirrorSink();
+    }
+
+    /**
+     * Приемник зеркала. Если файл нужен только ему и еще не скачан в кэш, этап fetch
+     * сохраняет файл потоком байтов ({@link #streamToMirror}), не собирая его в строку.
+     */
+    private final class MirrorSink implements ContentSink {
+        @Override
+        public void accept(String path, String sha, String content) {
+            saveContentToFile(path, content);
         }
     }
 
     /**
-     * Получает и собирает содержимое репозитория для сохранения в один файл.
+     * Разрешает ветку, тег или сокращенный SHA в полный SHA коммита.
+     * Полный SHA возвращается без обращения к API.
      *
-     * @param apiUrl URL API для получения содержимого репозитория.
-     * @param contents Список для хранения содержимого файлов.
+     * @param repoApiUrl URL API репозитория.
+     * @param ref Ветка, тег или SHA коммита (null — HEAD ветки по умолчанию).
+     * @return Полный SHA коммита.
      */
-    private void fetchAndCollectContents(String apiUrl, List<String> contents) {
+    String resolveCommitSha(String repoApiUrl, String ref) {
+        String effectiveRef = ref != null && !ref.isBlank() ? ref.trim() : "HEAD";
+        if (COMMIT_SHA.matcher(effectiveRef).matches()) {
+            return effectiveRef;
+        }
+
         HttpHeaders headers = new HttpHeaders();
         headers.set("Authorization", "Bearer " + githubConfig.getToken());
-        headers.set("Accept", "application/vnd.github.v3+json");
+        headers.set("Accept", "application/vnd.github.sha");
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
-        try {
-            List<Map<String, Object>> files = restTemplate.exchange(
-                    apiUrl, HttpMethod.GET, entity, List.class
+        String sha;
+        try (FetchBudget.Permit ignored = fetchBudget.acquire()) {
+            sha = restTemplate.exchange(
+                    repoApiUrl + "/commits/" + effectiveRef, HttpMethod.GET, entity, String.class
             ).getBody();
+        }
+        if (sha == null || !COMMIT_SHA.matcher(sha.trim()).matches()) {
+            throw new IllegalStateException("Failed to resolve ref " + effectiveRef + " of " + repoApiUrl);
+        }
+        log.debug("Resolved {} of {} to commit {}", effectiveRef, repoApiUrl, sha.trim());
+        return sha.trim();
+    }
 
-            if (files != null) {
-                List<Future<?>> futures = new ArrayList<>();
-                for (Map<String, Object> file : files) {
-                    Future<?> future = executorService.submit(() -> {
-                        String type = (String) file.get("type");
-                        String path = (String) file.get("path");
-                        if ("file".equals(type) && matchesPatterns(path)) {
-                            String content = getFileContentFromUrl((String) file.get("download_url"));
-                            if (content != null) {
-                                synchronized (contents) {
-                                    contents.add("File: " + path + " \n" + content + "\n");
-                                }
-                                log.debug("Collected file for single file: {}", path);
+    /**
+     * Обходит репозиторий один раз и передает каждый подходящий файл всем приемникам.
+     * Этапы list → filter → fetch → write соединены ограниченными очередями ({@link StagedPipeline}): листинги
+     * не убегают вперед скачивания, а скачивание — вперед записи, поэтому скачанных, но не переданных приемникам
+     * файлов не больше, чем помещается в очереди. Зеркало сразу пишет файл на диск; приемники единого файла
+     * и листинга накапливают результат целиком, поскольку он возвращается строкой и кэшируется, — их память
+     * пропорциональна результату (ее учитывает допуск задач).
+     * Файл скачивается один раз, если он нужен хотя бы одному приемнику.
+     * Ошибка листинга начальной директории пробрасывается, ошибки поддиректорий и файлов учитываются задачей:
+     * в режиме fail-fast останавливают конвейер, в режиме best-effort попадают в список пропущенных путей.
+     *
+     * @param rootUrls URL API начальных директорий (корень репозитория или поддеревья).
+     * @param sinks Приемники файлов.
+     * @param control Учет ошибок задачи.
+     */
+    private void traverse(List<String> rootUrls, List<ContentSink> sinks, JobControl control) throws Exception {
+        PipelineSettings pipeline = githubConfig.getPipeline() != null ? githubConfig.getPipeline() : new PipelineSettings();
+        Semaphore listings = new Semaphore(Math.max(1, pipeline.getList().getParallelism()));
+        StagedPipeline.<Map<String, Object>>from(SOURCE, executorService, fetchMetrics, "list",
+                        emit -> {
+                            for (String rootUrl : rootUrls) {
+                                listDirectory(rootUrl, listings, emit, control);
                             }
-                        } else if ("dir".equals(type)) {
-                            processDirectoryForSingleFile((String) file.get("url"), contents);
+                        })
+                .<PendingFile>then("filter", pipeline.getFilter(), (entry, emit) -> {
+                    String path = (String) entry.get("path");
+                    if (!matchesPatterns(path)) {
+                        log.debug("Исключен файл по шаблону: {}", path);
+                        return;
+                    }
+                    List<ContentSink> interested = interestedSinks(path, (String) entry.get("sha"), sinks);
+                    if (!interested.isEmpty()) {
+                        emit.emit(new PendingFile(entry, interested, null));
+                    }
+                })
+                .<PendingFile>then("fetch", pipeline.getFetch(), (file, emit) -> {
+                    if (streamsToMirror(file)) {
+                        streamToMirror(file.entry(), control);
+                    } else {
+                        String content = fetchFileContent(file.entry());
+                        if (content == null) {
+                            control.failed((String) file.entry().get("path"), "download failed");
                         }
-                    });
-                    futures.add(future);
-                }
-                for (Future<?> future : futures) {
-                    future.get();
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error fetching repository contents for single file from {}: {}", apiUrl, e.getMessage());
-            throw new RuntimeException("Failed to fetch repository contents for single file", e);
-        }
+                        emit.emit(new PendingFile(file.entry(), file.sinks(), content));
+                    }
+                })
+                .then("write", pipeline.getWrite(), (file, emit) -> deliverFile(file))
+                .build()
+                .run();
     }
 
     /**
-     * Обрабатывает файлы и директории в репозитории.
+     * Рекурсивно получает листинги директорий и передает записи о файлах следующему этапу.
+     * Поддиректории обходятся параллельно; одновременных запросов листингов не больше числа разрешений.
      *
-     * @param files Список файлов и директорий.
-     * @param contents Список для хранения содержимого файлов.
-     * @param htmlBaseUrl Базовый URL для HTML-ссылок на файлы.
-     * @param saveToFile Флаг, указывающий, нужно ли сохранять содержимое файлов.
+     * @param apiUrl URL API директории.
+     * @param listings Разрешения на одновременные запросы листингов.
+     * @param emit Передача записи о файле на этап filter.
+     * @param control Учет ошибок поддиректорий.
      */
-    private void processFiles(List<Map<String, Object>> files, List<String> contents, String htmlBaseUrl, boolean saveToFile) {
-        for (Map<String, Object> file : files) {
-            String type = (String) file.get("type");
-            String path = (String) file.get("path");
-
+    private void listDirectory(String apiUrl, Semaphore listings,
+                               StagedPipeline.Emitter<Map<String, Object>> emit, JobControl control) throws Exception {
+        List<Map<String, Object>> entries;
+        listings.acquire();
+        try {
+            entries = fetchListing(apiUrl);
+        } finally {
+            listings.release();
+        }
+        if (entries == null) {
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (Map<String, Object> entry : entries) {
+            String type = (String) entry.get("type");
             if ("file".equals(type)) {
-                if (matchesPatterns(path)) {
-                    String content = getFileContentFromUrl((String) file.get("download_url"));
-                    if (content != null) {
-                        if (saveToFile) {
-                            saveContentToFile(path, content);
-                        } else {
-                            String fileLink = htmlBaseUrl + "/blob/main/" + path;
-                            String formattedLine = "File: <a href=\"" + fileLink + "\">" + path + "</a> \n" + content + "\n";
-                            contents.add(formattedLine);
-                        }
-                        log.debug("Обработан файл: {}", path);
-                    }
-                } else {
-                    log.debug("Исключен файл по шаблону: {}", path);
-                }
+                emit.emit(entry);
             } else if ("dir".equals(type)) {
-                processDirectory((String) file.get("url"), contents, htmlBaseUrl, saveToFile);
+                String dirUrl = (String) entry.get("url");
+                String dirPath = (String) entry.get("path");
+                futures.add(executorService.submit(() -> {
+                    try {
+                        listDirectory(dirUrl, listings, emit, control);
+                    } catch (InterruptedException | JobControl.PathFailedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        log.error("Ошибка при обработке директории {}: {}", dirUrl, e.getMessage());
+                        control.failed(dirPath + "/", e.getMessage());
+                    }
+                    return null;
+                }));
+            }
+        }
+        awaitAll(futures);
+    }
+
+    /**
+     * Ждет завершения задач; при первой ошибке или прерывании отменяет остальные (с прерыванием потоков,
+     * что обрывает их запросы) и пробрасывает исходную ошибку.
+     */
+    private static void awaitAll(List<Future<?>> futures) throws Exception {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
             }
+            throw e;
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * @return Приемники, которым нужно содержимое файла.
+     */
+    private static List<ContentSink> interestedSinks(String path, String sha, List<ContentSink> sinks) {
+        List<ContentSink> interested = new ArrayList<>(sinks.size());
+        for (ContentSink sink : sinks) {
+            if (sink.needsContent(path, sha)) {
+                interested.add(sink);
+            }
+        }
+        if (interested.isEmpty()) {
+            log.debug("Skipped download of {}: not needed by any output", path);
         }
+        return interested;
     }
 
     /**
-     * Обрабатывает файлы и директории для сохранения в один файл.
+     * Передает скачанный файл приемникам, которым он нужен.
      *
-     * @param files Список файлов и директорий.
-     * @param contents Список для хранения содержимого файлов.
+     * @param file Файл с содержимым (null, если скачать не удалось).
      */
-    private void processFilesForSingleFile(List<Map<String, Object>> files, List<String> contents) {
-        for (Map<String, Object> file : files) {
-            String type = (String) file.get("type");
-            String path = (String) file.get("path");
+    private void deliverFile(PendingFile file) {
+        String path = (String) file.entry().get("path");
+        String sha = (String) file.entry().get("sha");
+        for (ContentSink sink : file.sinks()) {
+            if (file.content() != null) {
+                sink.accept(path, sha, file.content());
+            } else {
+                sink.failed(path, sha);
+            }
+        }
+        log.debug("Обработан файл: {}", path);
+    }
 
-            if ("file".equals(type)) {
-                if (matchesPatterns(path)) {
-                    String content = getFileContentFromUrl((String) file.get("download_url"));
-                    if (content != null) {
-                        contents.add("File: " + path + " \n" + content + "\n");
-                        log.debug("Collected file for single file: {}", path);
-                    }
+    /**
+     * Файл между этапами конвейера: запись листинга, приемники, которым он нужен, и содержимое после этапа fetch.
+     */
+    private record PendingFile(Map<String, Object> entry, List<ContentSink> sinks, String content) {
+    }
+
+    /**
+     * Один проход по репозиторию на коммите: каждый подходящий файл скачивается один раз и передается всем приемникам.
+     * В режиме {@code graphql} файлы скачиваются пакетами, иначе — по одному запросу на файл.
+     *
+     * Обход выполняется со сроком задачи (github.job.timeout). Если в режиме best-effort часть путей получить
+     * не удалось, приемники получают их список ({@link ContentSink#incomplete}), и результат не должен кэшироваться.
+     *
+     * @param repoUrl URL репозитория.
+     * @param repoApiUrl URL API репозитория.
+     * @param commitSha SHA коммита.
+     * @param prefixes Нормализованные префиксы поддеревьев, пустой список — весь репозиторий.
+     * @param sinks Приемники файлов.
+     * @param failureMessage Сообщение исключения при ошибке обхода.
+     * @return true, если получены все пути.
+     */
+    private boolean fetchInto(String repoUrl, String repoApiUrl, String commitSha, List<String> prefixes,
+                              List<ContentSink> sinks, String failureMessage) {
+        List<String> rootUrls = prefixes.isEmpty()
+                ? List.of(contentsUrl(repoApiUrl, commitSha))
+                : prefixes.stream().map(prefix -> contentsUrl(repoApiUrl, prefix, commitSha)).toList();
+        JobControl control = new JobControl(githubConfig.getJob());
+        try (AdmissionController.Permit admitted = admit(repoUrl, repoApiUrl, commitSha, prefixes, sinks)) {
+            control.run(executorService, () -> {
+                if (githubConfig.getFetchMode() == GithubConfig.FetchMode.GRAPHQL) {
+                    fetchIntoBatched(repoApiUrl, commitSha, rootUrls, sinks, control);
                 } else {
-                    log.debug("Исключен файл по шаблону: {}", path);
+                    traverse(rootUrls, sinks, control);
                 }
-            } else if ("dir".equals(type)) {
-                processDirectoryForSingleFile((String) file.get("url"), contents);
+                return null;
+            });
+        } catch (AdmissionController.RejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error fetching repository contents from {}: {}", repoApiUrl, e.getMessage());
+            throw new RuntimeException(failureMessage, e);
+        }
+        List<String> missing = control.missing();
+        if (missing.isEmpty()) {
+            return true;
+        }
+        log.warn("Fetched {}@{} without {} paths: {}", repoApiUrl, commitSha, missing.size(), missing);
+        sinks.forEach(sink -> sink.incomplete(missing));
+        return false;
+    }
+
+    /**
+     * Допускает обход по оценке пиковой памяти, посчитанной по метаданным дерева коммита: используется та же
+     * статистика, что и у {@link #getRepositoryStats} (один запрос Git Trees API, кэшируется по SHA коммита). Приемники, собирающие результат в памяти (единый файл, листинг), держат
+     * все подходящие файлы; зеркалу нужны только файлы в работе и в очереди записи — берутся самые большие из них.
+     * Если статистику получить не удалось, задача допускается с нулевой оценкой, а ошибка пишется в лог.
+     *
+     * @return Допуск, который нужно закрыть после обхода.
+     */
+    private AdmissionController.Permit admit(String repoUrl, String repoApiUrl, String commitSha,
+                                             List<String> prefixes, List<ContentSink> sinks) {
+        String target = repoApiUrl + "@" + commitSha;
+        if (!admissionController.isEnabled()) {
+            return admissionController.admit(SOURCE, target, 0);
+        }
+        PipelineSettings pipeline = githubConfig.getPipeline() != null ? githubConfig.getPipeline() : new PipelineSettings();
+        int inFlight = pipeline.getFetch().getParallelism() + pipeline.getWrite().getParallelism()
+                + pipeline.getWrite().getQueueCapacity();
+        RepositoryStats stats = githubCache.stats().get(statsKey(repoApiUrl, commitSha, prefixes, inFlight));
+        if (stats == null) {
+            try {
+                stats = computeStats(repoUrl, repoApiUrl, commitSha, prefixes, inFlight);
+            } catch (RuntimeException e) {
+                // Ошибка оценки (лимит, 5xx) не должна срывать задачу: она допускается без резерва бюджета
+                log.warn("Could not estimate memory of {}, admitting without reservation: {}", target,
+                        e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                return admissionController.admit(SOURCE, target, 0);
             }
         }
+        long sourceBytes = sinks.stream().anyMatch(ContentSink::retainsContent)
+                ? stats.getTotalBytes()
+                : stats.getLargestFiles().stream().mapToLong(RepositoryStats.FileSize::getBytes).sum();
+        return admissionController.admit(SOURCE, target, admissionController.estimate(sourceBytes));
     }
 
     /**
-     * Обрабатывает директорию в репозитории.
+     * Передает файлы репозитория приемникам, скачивая их пакетами через GraphQL API.
+     * Нужные приемникам файлы добавляются в пакеты по мере обхода листингов, и заполненный пакет
+     * отправляется сразу; файлы, которые не удалось получить через GraphQL, затем скачиваются через REST.
      *
-     * @param dirUrl URL директории.
-     * @param contents Список для хранения содержимого файлов.
-     * @param htmlBaseUrl Базовый URL для HTML-ссылок на файлы.
-     * @param saveToFile Флаг, указывающий, нужно ли сохранять содержимое файлов.
+     * @param repoApiUrl URL API репозитория.
+     * @param commitSha SHA коммита.
+     * @param rootUrls URL API начальных директорий.
+     * @param sinks Приемники файлов.
+     * @param control Учет ошибок задачи.
      */
-    private void processDirectory(String dirUrl, List<String> contents, String htmlBaseUrl, boolean saveToFile) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", "Bearer " + githubConfig.getToken());
-        headers.set("Accept", "application/vnd.github.v3+json");
+    private void fetchIntoBatched(String repoApiUrl, String commitSha, List<String> rootUrls, List<ContentSink> sinks,
+                                  JobControl control) throws Exception {
+        Map<String, List<ContentSink>> interestedByPath = new ConcurrentHashMap<>();
+        AtomicInteger listed = new AtomicInteger();
+        List<Map<String, Object>> fallback;
+        try (GraphqlBlobFetcher.Batches batches = graphqlBlobFetcher.open(repoApiUrl, commitSha,
+                (file, content) -> deliver(file, content, "graphql", interestedByPath, control))) {
+            // Этапы пересекаются: пакеты отправляются, пока обход листингов продолжается
+            try (JobProfiler.Scope graphqlPhase = jobProfiler.phase("graphql")) {
+                try (JobProfiler.Scope listingPhase = jobProfiler.phase("listing")) {
+                    for (String rootUrl : rootUrls) {
+                        listFiles(rootUrl, this::matchesPatterns, file -> {
+                            listed.incrementAndGet();
+                            enqueue(file, sinks, interestedByPath, batches);
+                        }, control);
+                    }
+                }
+                fallback = batches.await();
+            }
+            try (JobProfiler.Scope phase = jobProfiler.phase("rest-fallback")) {
+                batches.fetchViaRest(fallback, file -> getFileContentFromUrl((String) file.get("download_url")),
+                        (file, content) -> deliver(file, content, "rest", interestedByPath, control));
+            }
+        }
+        log.debug("Listed {} files of {}, {} of them fetched via REST", listed.get(), repoApiUrl, fallback.size());
+    }
 
-        HttpEntity<String> entity = new HttpEntity<>(headers);
+    /**
+     * Передает файл из листинга приемникам: из кэша содержимого сразу, иначе — через пакет GraphQL.
+     */
+    private void enqueue(Map<String, Object> file, List<ContentSink> sinks,
+                         Map<String, List<ContentSink>> interestedByPath, GraphqlBlobFetcher.Batches batches) {
+        String path = (String) file.get("path");
+        String sha = (String) file.get("sha");
+        List<ContentSink> interested = new ArrayList<>(sinks.size());
+        for (ContentSink sink : sinks) {
+            if (sink.needsContent(path, sha)) {
+                interested.add(sink);
+            }
+        }
+        if (interested.isEmpty()) {
+            return;
+        }
+        String content = sha != null ? githubCache.blobs().get(sha) : null;
+        if (content != null) {
+            interested.forEach(sink -> sink.accept(path, sha, content));
+            return;
+        }
+        interestedByPath.put(path, interested);
+        batches.add(file);
+    }
 
-        try {
-            List<Map<String, Object>> files = restTemplate.exchange(
-                    dirUrl,
-                    HttpMethod.GET,
-                    entity,
-                    List.class
-            ).getBody();
+    /**
+     * Передает скачанное содержимое (или неудачу, если content равен null) приемникам, которым нужен файл.
+     */
+    private void deliver(Map<String, Object> file, String content, String source,
+                         Map<String, List<ContentSink>> interestedByPath, JobControl control) {
+        String path = (String) file.get("path");
+        String sha = (String) file.get("sha");
+        jobProfiler.fileFetched(path, content != null ? content.length() : 0, content != null ? source : "failed");
+        if (content == null) {
+            control.failed(path, "download failed");
+        }
+        for (ContentSink sink : interestedByPath.get(path)) {
+            if (content != null) {
+                sink.accept(path, sha, content);
+            } else {
+                sink.failed(path, sha);
+            }
+        }
+        if (content != null && sha != null) {
+            githubCache.blobs().put(sha, content);
+        }
+    }
 
-            if (files != null) {
-                processFiles(files, contents, htmlBaseUrl, saveToFile);
+    /**
+     * Рекурсивно обходит листинги и передает файлы, путь которых принимает фильтр, по мере их нахождения.
+     *
+     * @param apiUrl URL API директории.
+     * @param filter Фильтр путей.
+     * @param onFile Получатель найденных файлов; вызывается из нескольких потоков.
+     * @param control Учет ошибок поддиректорий.
+     */
+    private void listFiles(String apiUrl, Predicate<String> filter, Consumer<Map<String, Object>> onFile,
+                           JobControl control) throws Exception {
+        List<Map<String, Object>> entries = fetchListing(apiUrl);
+        if (entries == null) {
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (Map<String, Object> entry : entries) {
+            String type = (String) entry.get("type");
+            String path = (String) entry.get("path");
+            if ("file".equals(type) && filter.test(path)) {
+                onFile.accept(entry);
+            } else if ("dir".equals(type)) {
+                futures.add(executorService.submit(() -> {
+                    try {
+                        listFiles((String) entry.get("url"), filter, onFile, control);
+                    } catch (InterruptedException | JobControl.PathFailedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        log.error("Ошибка при обработке директории {}: {}", entry.get("url"), e.getMessage());
+                        control.failed(path + "/", e.getMessage());
+                    }
+                    return null;
+                }));
             }
-        } catch (Exception e) {
-            log.error("Ошибка при обработке директории {}: {}", dirUrl, e.getMessage());
         }
+        awaitAll(futures);
     }
 
     /**
-     * Обрабатывает директорию в репозитории для сохранения в один файл.
+     * Получает листинг директории репозитория через GitHub API.
+     * URL листингов содержат {@code ?ref=<sha коммита>}, поэтому результат кэшируется без срока годности.
      *
-     * @param dirUrl URL директории.
-     * @param contents Список для хранения содержимого файлов.
+     * @param apiUrl URL API директории.
+     * @return Список файлов и директорий.
      */
-    private void processDirectoryForSingleFile(String dirUrl, List<String> contents) {
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> fetchListing(String apiUrl) {
+        return githubCache.listings().computeIfAbsent(apiUrl, () -> requestListing(apiUrl, List.class));
+    }
+
+    /**
+     * Получает листинг директории через общий кэш листингов. Для пути к файлу Contents API возвращает
+     * объект файла вместо массива — такой ответ не кэшируется и отклоняется как некорректный запрос.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> fetchDirectoryListing(String apiUrl, String directory) {
+        return githubCache.listings().computeIfAbsent(apiUrl, () -> {
+            if (requestListing(apiUrl, Object.class) instanceof List<?> listing) {
+                return (List<Map<String, Object>>) listing;
+            }
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not a directory: " + directory);
+        });
+    }
+
+    private <T> T requestListing(String apiUrl, Class<T> responseType) {
         HttpHeaders headers = new HttpHeaders();
         headers.set("Authorization", "Bearer " + githubConfig.getToken());
         headers.set("Accept", "application/vnd.github.v3+json");
-
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
-        try {
-            List<Map<String, Object>> files = restTemplate.exchange(
-                    dirUrl,
-                    HttpMethod.GET,
-                    entity,
-                    List.class
-            ).getBody();
-
-            if (files != null) {
-                processFilesForSingleFile(files, contents);
-            }
-        } catch (Exception e) {
-            log.error("Ошибка при обработке директории для одного файла {}: {}", dirUrl, e.getMessage());
+        try (FetchBudget.Permit ignored = fetchBudget.acquire()) {
+            return fetchMetrics.listing(SOURCE).record(() -> restTemplate.exchange(
+                    apiUrl, HttpMethod.GET, entity, responseType
+            ).getBody());
         }
     }
 
@@ -389,19 +1282,95 @@ public class GithubContentService {
      * @param content Содержимое файла.
      */
     private void saveContentToFile(String path, String content) {
-        try {
-            Path filePath = Paths.get(OUTPUT_DIR, path);
-            Files.createDirectories(filePath.getParent());
-            Files.writeString(filePath, content);
-            log.info("Сохранен файл: {}", filePath);
-        } catch (IOException e) {
+        try (JobProfiler.Scope fileScope = jobProfiler.file(path)) {
+            long started = System.nanoTime();
+            long bytes = fetchMetrics.write(SOURCE).recordCallable(
+                    () -> mirrorWriter.write(path, content.getBytes(StandardCharsets.UTF_8)));
+            jobProfiler.written(System.nanoTime() - started);
+            fetchMetrics.bytesOut(SOURCE, bytes);
+        } catch (Exception e) {
             log.error("Failed to save file {}: {}", path, e.getMessage());
             throw new RuntimeException("Failed to save file: " + path, e);
         }
     }
 
+    /**
+     * @return true, если файл нужен только зеркалу и его нет в кэше файлов: тогда он сохраняется потоком.
+     */
+    private boolean streamsToMirror(PendingFile file) {
+        if (file.sinks().size() != 1 || !(file.sinks().get(0) instanceof MirrorSink)) {
+            return false;
+        }
+        String sha = (String) file.entry().get("sha");
+        return file.entry().get("download_url") != null && (sha == null || githubCache.blobs().get(sha) == null);
+    }
+
+    /**
+     * Скачивает файл под разрешением общего бюджета и сохраняет байты ответа прямо в зеркало:
+     * через временный файл с атомарным переименованием, без сборки содержимого в памяти.
+     * Хеджирование к потоковому скачиванию не применяется: дубль писал бы тот же файл.
+     *
+     * @param file Описание файла из листинга.
+     * @param control Учет ошибок скачивания.
+     */
+    private void streamToMirror(Map<String, Object> file, JobControl control) {
+        String path = (String) file.get("path");
+        String downloadUrl = (String) file.get("download_url");
+        try (JobProfiler.Scope fileScope = jobProfiler.file(path)) {
+            long queued = System.nanoTime();
+            try (FetchBudget.Permit ignored = fetchBudget.acquire()) {
+                jobProfiler.queueWait(System.nanoTime() - queued);
+                long started = System.nanoTime();
+                Long bytes = fetchMetrics.download(SOURCE).recordCallable(() -> restTemplate.execute(
+                        downloadUrl,
+                        HttpMethod.GET,
+                        request -> request.getHeaders().set("Authorization", "Bearer " + githubConfig.getToken()),
+                        response -> {
+                            try {
+                                return mirrorWriter.write(path, response.getBody());
+                            } catch (IOException e) {
+                                // Ошибка записи на диск, в отличие от ошибки скачивания, прерывает задачу
+                                throw new UncheckedIOException(e);
+                            }
+                        }));
+                long written = bytes != null ? bytes : 0;
+                jobProfiler.network(System.nanoTime() - started, written);
+                fetchMetrics.bytesOut(SOURCE, written);
+            }
+            log.debug("Обработан файл: {}", path);
+        } catch (UncheckedIOException e) {
+            log.error("Failed to save file {}: {}", path, e.getCause().getMessage());
+            throw new RuntimeException("Failed to save file: " + path, e.getCause());
+        } catch (Exception e) {
+            fetchMetrics.fileFailed(SOURCE);
+            jobProfiler.status(e instanceof HttpStatusCodeException statusException
+                    ? "HTTP " + statusException.getStatusCode().value()
+                    : "error: " + e.getMessage());
+            log.error("Ошибка при сохранении файла {} из {}: {}", path, downloadUrl, e.getMessage());
+            control.failed(path, e.getMessage());
+        }
+    }
+
+    /**
+     * Получает содержимое файла из листинга, используя кэш по SHA blob-объекта.
+     *
+     * @param file Описание файла из листинга.
+     * @return Содержимое файла или null, если произошла ошибка.
+     */
+    private String fetchFileContent(Map<String, Object> file) {
+        String downloadUrl = (String) file.get("download_url");
+        String sha = (String) file.get("sha");
+        try (JobProfiler.Scope fileScope = jobProfiler.file((String) file.get("path"))) {
+            if (sha == null) {
+                return getFileContentFromUrl(downloadUrl);
+            }
+            return githubCache.blobs().computeIfAbsent(sha, () -> getFileContentFromUrl(downloadUrl));
+        }
+    }
+
     /**
      * Получает содержимое файла по указанному URL.
+     * При включенном хеджировании медленный запрос дублируется, и используется первый ответ.
      *
      * @param downloadUrl URL для загрузки содержимого файла.
      * @return Содержимое файла или null, если произошла ошибка.
@@ -417,45 +1386,74 @@ public class GithubContentService {
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
         try {
-            return restTemplate.exchange(
-                    downloadUrl,
-                    HttpMethod.GET,
-                    entity,
-                    String.class
-            ).getBody();
+            if (!requestHedger.isEnabled()) {
+                return download(downloadUrl, entity);
+            }
+            return requestHedger.call(
+                    jobProfiler.propagate(() -> download(downloadUrl, entity)),
+                    () -> {
+                        fetchMetrics.hedge(SOURCE, "fired");
+                        jobProfiler.retry();
+                        log.debug("Hedged slow download {}", downloadUrl);
+                    },
+                    () -> fetchMetrics.hedge(SOURCE, "won"));
         } catch (Exception e) {
+            fetchMetrics.fileFailed(SOURCE);
+            jobProfiler.status(e instanceof HttpStatusCodeException statusException
+                    ? "HTTP " + statusException.getStatusCode().value()
+                    : "error: " + e.getMessage());
             log.error("Ошибка при получении содержимого файла из {}: {}", downloadUrl, e.getMessage());
             return null;
         }
     }
 
-    private boolean matchesPatterns(String path) {
-        for (String exclude : githubConfig.getExcludePatterns()) {
-            if (matchesPattern(path, exclude)) {
-                return false;
-            }
-        }
-        for (String include : githubConfig.getIncludePatterns()) {
-            if (matchesPattern(path, include)) {
-                return true;
-            }
+    /**
+     * Одна попытка скачивания файла под разрешением общего бюджета.
+     */
+    private String download(String downloadUrl, HttpEntity<String> entity) {
+        long queued = System.nanoTime();
+        try (FetchBudget.Permit ignored = fetchBudget.acquire()) {
+            jobProfiler.queueWait(System.nanoTime() - queued);
+            long started = System.nanoTime();
+            String content = fetchMetrics.download(SOURCE).record(() -> restTemplate.exchange(
+                    downloadUrl,
+                    HttpMethod.GET,
+                    entity,
+                    String.class
+            ).getBody());
+            jobProfiler.network(System.nanoTime() - started, content != null ? content.length() : 0);
+            return content;
         }
-        return false;
     }
 
-    private boolean matchesPattern(String path, String pattern) {
-        String regex = pattern
-                .replace(".", "\\.")
-                .replace("*", ".*")
-                .replace("?", ".");
-        return path.matches(regex);
+    private boolean matchesPatterns(String path) {
+        boolean matches = PathPatterns.matches(path, githubConfig.getIncludePatterns(), githubConfig.getExcludePatterns());
+        if (matches) {
+            fetchMetrics.fileMatched(SOURCE);
+        } else {
+            fetchMetrics.fileExcluded(SOURCE);
+        }
+        return matches;
     }
 
     private String convertToApiUrl(String repoUrl) {
         if (repoUrl.endsWith(".git")) {
             repoUrl = repoUrl.substring(0, repoUrl.length() - 4);
         }
-        return repoUrl.replace("https://github.com/", GITHUB_API_URL);
+        String apiUrl = githubConfig.getApiUrl() != null ? githubConfig.getApiUrl() : GITHUB_API_URL;
+        return repoUrl.replace("https://github.com/", apiUrl + "/repos/");
+    }
+
+    private static String contentsUrl(String repoApiUrl, String commitSha) {
+        return repoApiUrl + "/contents?ref=" + commitSha;
+    }
+
+    private static String contentsUrl(String repoApiUrl, String prefix, String commitSha) {
+        return repoApiUrl + "/contents/" + prefix + "?ref=" + commitSha;
+    }
+
+    private static String resultKey(String repoApiUrl, String commitSha, String mode, List<String> prefixes) {
+        return repoApiUrl + "@" + commitSha + "#" + mode + PathPrefixes.key(prefixes);
     }
 
     private String convertToHtmlBaseUrl(String repoUrl) {
@@ -0,0 +1,352 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.GithubConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Пул токенов GitHub с учетом лимита запросов каждого токена.
+ * <p>
+ * Остаток и время сброса лимита берутся из заголовков {@code X-RateLimit-*} ответов и учитываются отдельно
+ * для каждого ресурса API (core, graphql, search), как их считает GitHub. Запрос получает токен с наибольшим
+ * запасом — остатком лимита за вычетом запросов, которые уже выполняются с этим токеном; токен с неизвестным
+ * остатком считается свежим. Исчерпанный токен (остаток 0 или {@code Retry-After} вторичного лимита)
+ * не выдается до сброса. Если исчерпаны все токены, запрос ждет ближайшего сброса, но не дольше
+ * {@code github.rateLimitWait}.
+ * <p>
+ * Учитываются только запросы к хостам API ({@code github.apiUrl} и {@code github.graphql.url}): скачивания
+ * с других хостов (raw.githubusercontent.com, github.com) не расходуют лимит API и не занимают запас токена.
+ * <p>
+ * Метрики с тегами {@code token} (номер токена в конфигурации, не сам токен) и {@code resource}:
+ * {@code github.token.remaining}, {@code github.token.parked}, {@code github.token.requests}
+ * и {@code github.token.rate_limited}.
+ */
+@Slf4j
+@Component
+public class GithubTokenPool {
+
+    /** Лимит запросов в час для токена, по которому еще не было ответа. */
+    private static final long DEFAULT_LIMIT = 5000;
+    private static final String DEFAULT_API_URL = "https://api.github.com";
+    /** Срок парковки, если GitHub не сообщил время сброса. */
+    private static final long DEFAULT_PARK_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final List<String> tokens;
+    private final Set<String> apiHosts;
+    private final long maxWaitMillis;
+    private final MeterRegistry registry;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Map<String, List<Quota>> quotasByResource = new HashMap<>();
+
+    public GithubTokenPool(GithubConfig githubConfig, MeterRegistry registry) {
+        this(githubConfig, registry, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock Текущее время в миллисекундах эпохи.
+     */
+    GithubTokenPool(GithubConfig githubConfig, MeterRegistry registry, LongSupplier clock) {
+        Set<String> configured = new LinkedHashSet<>();
+        if (githubConfig.getToken() != null && !githubConfig.getToken().isBlank()) {
+            configured.add(githubConfig.getToken().trim());
+        }
+        if (githubConfig.getTokens() != null) {
+            for (String token : githubConfig.getTokens()) {
+                if (token != null && !token.isBlank()) {
+                    configured.add(token.trim());
+                }
+            }
+        }
+        this.tokens = List.copyOf(configured);
+        Set<String> hosts = new LinkedHashSet<>();
+        hosts.add(hostOf(URI.create(githubConfig.getApiUrl() != null ? githubConfig.getApiUrl() : DEFAULT_API_URL)));
+        if (githubConfig.getGraphql() != null && githubConfig.getGraphql().getUrl() != null) {
+            hosts.add(hostOf(URI.create(githubConfig.getGraphql().getUrl())));
+        }
+        this.apiHosts = Set.copyOf(hosts);
+        Duration maxWait = githubConfig.getRateLimitWait();
+        this.maxWaitMillis = maxWait != null && !maxWait.isNegative() ? maxWait.toMillis() : 0;
+        this.registry = registry;
+        this.clock = clock;
+    }
+
+    /**
+     * @return Число токенов в пуле; 0 — токены не настроены, заголовок Authorization не подставляется.
+     */
+    public int size() {
+        return tokens.size();
+    }
+
+    /**
+     * @param uri URL запроса.
+     * @return true, если запрос идет к хосту API и расходует лимит токена.
+     */
+    public boolean isApiRequest(URI uri) {
+        return uri.getHost() != null && apiHosts.contains(hostOf(uri));
+    }
+
+    /**
+     * @return Хост и порт URL (порт по умолчанию — по схеме).
+     */
+    private static String hostOf(URI uri) {
+        int port = uri.getPort() >= 0 ? uri.getPort() : "http".equalsIgnoreCase(uri.getScheme()) ? 80 : 443;
+        return String.valueOf(uri.getHost()).toLowerCase(Locale.ROOT) + ":" + port;
+    }
+
+    /**
+     * Определяет ресурс API, к лимиту которого относится запрос.
+     *
+     * @param uri URL запроса.
+     * @return graphql, search или core.
+     */
+    public static String resourceOf(URI uri) {
+        String path = uri.getPath() != null ? uri.getPath() : "";
+        if (path.endsWith("/graphql")) {
+            return "graphql";
+        }
+        if (path.contains("/search/")) {
+            return "search";
+        }
+        return "core";
+    }
+
+    /**
+     * Выдает токен с наибольшим запасом лимита ресурса.
+     *
+     * @param resource Ресурс API (см. {@link #resourceOf(URI)}).
+     * @return Аренда токена, которую нужно завершить через {@link Lease#complete} или {@link Lease#release()};
+     * null, если токены не настроены.
+     * @throws IllegalStateException если все токены исчерпаны дольше допустимого ожидания.
+     */
+    public Lease acquire(String resource) {
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        lock.lock();
+        try {
+            List<Quota> quotas = quotas(resource);
+            long deadline = clock.getAsLong() + maxWaitMillis;
+            while (true) {
+                long now = clock.getAsLong();
+                Quota best = null;
+                long wakeAt = Long.MAX_VALUE;
+                for (Quota quota : quotas) {
+                    if (quota.parkedUntil > now) {
+                        wakeAt = Math.min(wakeAt, quota.parkedUntil);
+                    } else if (best == null || quota.headroom(now) > best.headroom(now)) {
+                        best = quota;
+                    }
+                }
+                if (best != null) {
+                    best.inFlight++;
+                    best.requests.increment();
+                    return new Lease(best);
+                }
+                if (wakeAt > deadline) {
+                    throw new IllegalStateException("All " + tokens.size() + " GitHub tokens are rate limited for "
+                            + resource + " until " + Instant.ofEpochMilli(wakeAt));
+                }
+                released.await(wakeAt - now, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a GitHub token", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param resource Ресурс API.
+     * @return true, если есть токен, который можно выдать без ожидания.
+     */
+    public boolean hasAvailable(String resource) {
+        if (tokens.isEmpty()) {
+            return false;
+        }
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            return quotas(resource).stream().anyMatch(quota -> quota.parkedUntil <= now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Quota> quotas(String resource) {
+        return quotasByResource.computeIfAbsent(resource, key -> {
+            List<Quota> quotas = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                quotas.add(new Quota(tokens.get(i), String.valueOf(i + 1), key));
+            }
+            return quotas;
+        });
+    }
+
+    private static long header(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Лимит одного токена для одного ресурса API.
+     */
+    private final class Quota {
+        private final String token;
+        private final String label;
+        private final Counter requests;
+        private final Counter rateLimited;
+        private long remaining = -1;       // -1 — неизвестен
+        private long limit = -1;
+        private long resetAt;              // Миллисекунды эпохи
+        private long parkedUntil;
+        private int inFlight;
+
+        private Quota(String token, String label, String resource) {
+            this.token = token;
+            this.label = label;
+            Gauge.builder("github.token.remaining", this, quota -> quota.remaining)
+                    .description("Last seen X-RateLimit-Remaining of a GitHub token (-1 if unknown)")
+                    .tag("token", label)
+                    .tag("resource", resource)
+                    .register(registry);
+            Gauge.builder("github.token.parked", this, quota -> quota.parkedUntil > clock.getAsLong() ? 1 : 0)
+                    .description("1 while a GitHub token is exhausted and waits for its rate limit reset")
+                    .tag("token", label)
+                    .tag("resource", resource)
+                    .register(registry);
+            this.requests = Counter.builder("github.token.requests")
+                    .tag("token", label)
+                    .tag("resource", resource)
+                    .register(registry);
+            this.rateLimited = Counter.builder("github.token.rate_limited")
+                    .tag("token", label)
+                    .tag("resource", resource)
+                    .register(registry);
+        }
+
+        private long headroom(long now) {
+            if (remaining < 0 || (resetAt > 0 && resetAt <= now)) {
+                // Окно лимита сброшено или ответов еще не было
+                return (limit > 0 ? limit : DEFAULT_LIMIT) - inFlight;
+            }
+            return remaining - inFlight;
+        }
+    }
+
+    /**
+     * Аренда токена на один HTTP-запрос.
+     */
+    public final class Lease {
+        private final Quota quota;
+        private boolean done;
+
+        private Lease(Quota quota) {
+            this.quota = quota;
+        }
+
+        /**
+         * @return Токен для заголовка Authorization.
+         */
+        public String token() {
+            return quota.token;
+        }
+
+        /**
+         * Завершает аренду по ответу: запоминает остаток и время сброса лимита токена, паркует исчерпанный токен.
+         *
+         * @param status HTTP-статус ответа.
+         * @param headers Заголовки ответа.
+         * @return true, если запрос отклонен из-за лимита этого токена и его стоит повторить с другим токеном.
+         */
+        public boolean complete(int status, HttpHeaders headers) {
+            lock.lock();
+            try {
+                if (done) {
+                    return false;
+                }
+                done = true;
+                quota.inFlight--;
+                long now = clock.getAsLong();
+                long remaining = header(headers, "X-RateLimit-Remaining");
+                long limit = header(headers, "X-RateLimit-Limit");
+                long reset = header(headers, "X-RateLimit-Reset");
+                long retryAfter = header(headers, HttpHeaders.RETRY_AFTER);
+                if (remaining >= 0) {
+                    quota.remaining = remaining;
+                }
+                if (limit > 0) {
+                    quota.limit = limit;
+                }
+                if (reset > 0) {
+                    quota.resetAt = TimeUnit.SECONDS.toMillis(reset);
+                }
+                boolean limited = (status == 403 || status == 429) && (remaining == 0 || retryAfter >= 0);
+                long parkUntil = 0;
+                if (remaining == 0) {
+                    parkUntil = quota.resetAt > now ? quota.resetAt : now + DEFAULT_PARK_MILLIS;
+                }
+                if (limited && retryAfter >= 0) {
+                    // Вторичный лимит: GitHub сообщает паузу, а не время сброса
+                    parkUntil = Math.max(parkUntil, now + TimeUnit.SECONDS.toMillis(retryAfter));
+                }
+                if (parkUntil > quota.parkedUntil) {
+                    quota.parkedUntil = parkUntil;
+                    log.warn("GitHub token #{} is rate limited until {}", quota.label, Instant.ofEpochMilli(parkUntil));
+                }
+                if (limited) {
+                    quota.rateLimited.increment();
+                }
+                released.signalAll();
+                return limited;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Завершает аренду без ответа (ошибка соединения).
+         */
+        public void release() {
+            lock.lock();
+            try {
+                if (!done) {
+                    done = true;
+                    quota.inFlight--;
+                    released.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.githubreader.service;
+
+import org.eclipse.jgit.ignore.IgnoreNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Правила {@code .gitignore} для обхода локальной директории с семантикой git: стек уровней от корня
+ * репозитория до текущей директории, у каждого уровня свои правила, пути проверяются относительно директории уровня.
+ * Более глубокий уровень важнее, внутри уровня — последнее совпавшее правило (в том числе отрицание {@code !}).
+ * <p>
+ * Правила директории разбираются один раз при входе в нее; директории без {@code .gitignore} используют уровень
+ * родителя. Игнорируемые директории не обходятся, поэтому их содержимое нельзя вернуть отрицанием, как и в git.
+ * Правила {@code .git/info/exclude} относятся к корню репозитория.
+ */
+final class GitignoreMatcher {
+
+    private static final String GITIGNORE = ".gitignore";
+    private static final String GIT_DIR = ".git";
+
+    private final GitignoreMatcher parent;
+    private final Path directory;
+    private final IgnoreNode rules;
+
+    private GitignoreMatcher(GitignoreMatcher parent, Path directory, IgnoreNode rules) {
+        this.parent = parent;
+        this.directory = directory;
+        this.rules = rules;
+    }
+
+    /**
+     * Собирает правила директорий выше корня обхода: от ближайшего корня git-репозитория
+     * (с его {@code .git/info/exclude}) до родителя корня обхода. Правила самого корня добавляет {@link #enter(Path)}.
+     *
+     * @param root Корень обхода.
+     * @return Стек правил; пустой, если корень обхода не находится внутри git-репозитория.
+     * @throws IOException если не удалось прочитать файл правил.
+     */
+    static GitignoreMatcher above(Path root) throws IOException {
+        Path start = root.toAbsolutePath().normalize();
+        Path repository = start;
+        while (repository != null && !Files.isDirectory(repository.resolve(GIT_DIR))) {
+            repository = repository.getParent();
+        }
+        GitignoreMatcher matcher = new GitignoreMatcher(null, start, null);
+        if (repository == null) {
+            return matcher;
+        }
+        IgnoreNode exclude = parse(repository.resolve(GIT_DIR).resolve("info").resolve("exclude"));
+        if (exclude != null) {
+            matcher = new GitignoreMatcher(matcher, repository, exclude);
+        }
+        List<Path> ancestors = new ArrayList<>();
+        for (Path directory = start.getParent(); directory != null && directory.startsWith(repository);
+             directory = directory.getParent()) {
+            ancestors.add(0, directory);
+        }
+        for (Path directory : ancestors) {
+            matcher = matcher.enter(directory);
+        }
+        return matcher;
+    }
+
+    /**
+     * Входит в директорию: разбирает ее {@code .gitignore}, если он есть.
+     *
+     * @param directory Директория, непосредственно вложенная в текущую (или корень обхода).
+     * @return Правила для записей директории.
+     * @throws IOException если не удалось прочитать {@code .gitignore}.
+     */
+    GitignoreMatcher enter(Path directory) throws IOException {
+        Path normalized = directory.toAbsolutePath().normalize();
+        IgnoreNode node = parse(normalized.resolve(GITIGNORE));
+        return node != null ? new GitignoreMatcher(this, normalized, node) : this;
+    }
+
+    /**
+     * Проверяет запись текущей директории. Сама директория {@code .git} всегда игнорируется.
+     *
+     * @param entry Путь к файлу или директории.
+     * @param isDirectory true для директории.
+     * @return true, если запись игнорируется.
+     */
+    boolean isIgnored(Path entry, boolean isDirectory) {
+        Path normalized = entry.toAbsolutePath().normalize();
+        if (isDirectory && normalized.getFileName() != null && GIT_DIR.equals(normalized.getFileName().toString())) {
+            return true;
+        }
+        for (GitignoreMatcher level = this; level != null; level = level.parent) {
+            if (level.rules == null || !normalized.startsWith(level.directory)) {
+                continue;
+            }
+            String relative = level.directory.relativize(normalized).toString().replace('\\', '/');
+            Boolean ignored = level.rules.checkIgnored(relative, isDirectory);
+            if (ignored != null) {
+                return ignored;
+            }
+        }
+        return false;
+    }
+
+    private static IgnoreNode parse(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        IgnoreNode node = new IgnoreNode();
+        try (InputStream in = Files.newInputStream(file)) {
+            node.parse(file.toString(), in);
+        }
+        return node.getRules().isEmpty() ? null : node;
+    }
+}
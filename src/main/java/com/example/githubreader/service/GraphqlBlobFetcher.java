@@ -0,0 +1,248 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.GithubConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Пакетное скачивание содержимого файлов через GitHub GraphQL API.
+ * <p>
+ * Файлы группируются в запросы вида
+ * {@code object(expression: "<sha>:<path>") { ... on Blob { text byteSize isBinary isTruncated } }},
+ * размер которых ограничен числом файлов и суммарным размером из листинга. Пакеты заполняются по мере
+ * обхода листингов, несколько запросов выполняются одновременно. Слишком большие, бинарные и обрезанные
+ * файлы, а также файлы из неудавшихся запросов скачиваются через REST после всех пакетов.
+ */
+@Slf4j
+class GraphqlBlobFetcher {
+
+    private final RestTemplate restTemplate;
+    private final GithubConfig githubConfig;
+    private final FetchBudget fetchBudget;
+    private final ExecutorService executorService;
+
+    GraphqlBlobFetcher(RestTemplate restTemplate, GithubConfig githubConfig, FetchBudget fetchBudget,
+                       ExecutorService executorService) {
+        this.restTemplate = restTemplate;
+        this.githubConfig = githubConfig;
+        this.fetchBudget = fetchBudget;
+        this.executorService = executorService;
+    }
+
+    /**
+     * Начинает пакетное скачивание: файлы добавляются по мере обхода листингов, и каждый заполненный пакет
+     * отправляется сразу, не дожидаясь конца обхода.
+     *
+     * @param repoApiUrl URL API репозитория (https://api.github.com/repos/{owner}/{repo}).
+     * @param commitSha SHA коммита.
+     * @param onFetched Получатель содержимого файлов, скачанных через GraphQL; вызывается из потоков пакетов.
+     * @return Пакеты, которые нужно закрыть после скачивания.
+     */
+    Batches open(String repoApiUrl, String commitSha, BiConsumer<Map<String, Object>, String> onFetched) {
+        return new Batches(repoApiUrl, commitSha, onFetched);
+    }
+
+    /**
+     * Пакеты одного обхода. Файлы, которые нужно скачать через REST (слишком большие, бинарные, обрезанные
+     * и из неудавшихся запросов), накапливаются и скачиваются отдельным этапом {@link #fetchViaRest}.
+     */
+    final class Batches implements AutoCloseable {
+
+        private final String owner;
+        private final String name;
+        private final String commitSha;
+        private final BiConsumer<Map<String, Object>, String> onFetched;
+        private final GithubConfig.Graphql config = githubConfig.getGraphql();
+        private final Semaphore pipeline = new Semaphore(Math.max(1, config.getConcurrentBatches()));
+        private final Queue<Map<String, Object>> fallback = new ConcurrentLinkedQueue<>();
+        private final List<Future<?>> futures = Collections.synchronizedList(new ArrayList<>());
+        private List<Map<String, Object>> batch = new ArrayList<>();
+        private long batchBytes;
+        private int batches;
+
+        private Batches(String repoApiUrl, String commitSha, BiConsumer<Map<String, Object>, String> onFetched) {
+            String[] ownerAndName = repoApiUrl.substring(repoApiUrl.indexOf("/repos/") + "/repos/".length()).split("/");
+            this.owner = ownerAndName[0];
+            this.name = ownerAndName[1];
+            this.commitSha = commitSha;
+            this.onFetched = onFetched;
+        }
+
+        /**
+         * Добавляет файл в текущий пакет и отправляет пакет, если он заполнен. Можно вызывать из нескольких потоков.
+         *
+         * @param file Описание файла из листинга (path, size, download_url).
+         */
+        void add(Map<String, Object> file) {
+            long size = file.get("size") instanceof Number number ? number.longValue() : 0;
+            if (size > config.getMaxBlobBytes()) {
+                fallback.add(file);
+                return;
+            }
+            synchronized (this) {
+                if (!batch.isEmpty() && (batch.size() >= config.getMaxBatchFiles() || batchBytes + size > config.getMaxBatchBytes())) {
+                    submit(batch);
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+                batch.add(file);
+                batchBytes += size;
+            }
+        }
+
+        /**
+         * Отправляет неполный последний пакет и ждет завершения всех пакетов.
+         *
+         * @return Файлы, которые нужно скачать через REST.
+         */
+        List<Map<String, Object>> await() throws Exception {
+            synchronized (this) {
+                if (!batch.isEmpty()) {
+                    submit(batch);
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+            }
+            awaitSubmitted();
+            log.debug("Fetched {} GraphQL batches of {}/{}, {} files left for REST", batches, owner, name, fallback.size());
+            return List.copyOf(fallback);
+        }
+
+        /**
+         * Скачивает файлы через REST, по одной задаче на файл.
+         *
+         * @param files Файлы из {@link #await()}.
+         * @param restFallback Функция скачивания одного файла через REST.
+         * @param onFetched Получатель содержимого; null — файл скачать не удалось.
+         */
+        void fetchViaRest(List<Map<String, Object>> files, Function<Map<String, Object>, String> restFallback,
+                          BiConsumer<Map<String, Object>, String> onFetched) throws Exception {
+            for (Map<String, Object> file : files) {
+                futures.add(executorService.submit(() -> onFetched.accept(file, restFallback.apply(file))));
+            }
+            awaitSubmitted();
+        }
+
+        private void submit(List<Map<String, Object>> batchFiles) {
+            batches++;
+            futures.add(executorService.submit(() -> {
+                // Ожидание прерываемое: отмененная задача не должна занимать поток до освобождения разрешения
+                pipeline.acquire();
+                try {
+                    fallback.addAll(fetchBatch(owner, name, commitSha, batchFiles, onFetched));
+                } finally {
+                    pipeline.release();
+                }
+                return null;
+            }));
+        }
+
+        private void awaitSubmitted() throws Exception {
+            List<Future<?>> submitted;
+            synchronized (futures) {
+                submitted = new ArrayList<>(futures);
+            }
+            for (Future<?> future : submitted) {
+                future.get();
+            }
+        }
+
+        /**
+         * Отменяет незавершенные пакеты: при ошибке обхода или прерывании (срок задачи) они обрывают свои запросы.
+         */
+        @Override
+        public void close() {
+            synchronized (futures) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+    }
+
+    /**
+     * Выполняет один GraphQL-запрос.
+     *
+     * @return Файлы, которые нужно скачать через REST.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> fetchBatch(String owner, String name, String commitSha,
+                                                 List<Map<String, Object>> files,
+                                                 BiConsumer<Map<String, Object>, String> onFetched) {
+        StringBuilder query = new StringBuilder("query { repository(owner: ")
+                .append(quote(owner)).append(", name: ").append(quote(name)).append(") {");
+        for (int i = 0; i < files.size(); i++) {
+            query.append(" f").append(i).append(": object(expression: ")
+                    .append(quote(commitSha + ":" + files.get(i).get("path")))
+                    .append(") { ... on Blob { text byteSize isBinary isTruncated } }");
+        }
+        query.append(" } }");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + githubConfig.getToken());
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Map<String, String>> entity = new HttpEntity<>(Map.of("query", query.toString()), headers);
+
+        Map<String, Object> response;
+        try (FetchBudget.Permit ignored = fetchBudget.acquire()) {
+            response = restTemplate.exchange(
+                    githubConfig.getGraphql().getUrl(), HttpMethod.POST, entity, Map.class
+            ).getBody();
+        } catch (Exception e) {
+            log.error("GraphQL batch of {} files failed, falling back to REST: {}", files.size(), e.getMessage());
+            return files;
+        }
+
+        Map<String, Object> data = response != null ? (Map<String, Object>) response.get("data") : null;
+        Map<String, Object> repository = data != null ? (Map<String, Object>) data.get("repository") : null;
+        if (repository == null) {
+            log.error("GraphQL batch of {} files returned no data, falling back to REST: {}",
+                    files.size(), response != null ? response.get("errors") : null);
+            return files;
+        }
+
+        List<Map<String, Object>> fallback = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            Map<String, Object> blob = (Map<String, Object>) repository.get("f" + i);
+            String text = blob != null ? (String) blob.get("text") : null;
+            if (text == null || Boolean.TRUE.equals(blob.get("isTruncated"))) {
+                fallback.add(files.get(i));
+            } else {
+                onFetched.accept(files.get(i), text);
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Экранирует строку для подстановки в GraphQL-запрос.
+     */
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.JobSettings;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Управление одной задачей обхода: срок выполнения и учет ошибок отдельных путей.
+ * <p>
+ * В режиме {@link JobSettings.FailureMode#FAIL_FAST} первая ошибка выбрасывает {@link PathFailedException},
+ * которая останавливает конвейер; в режиме {@link JobSettings.FailureMode#BEST_EFFORT} путь запоминается
+ * и попадает в список пропущенных. Директории записываются с завершающим "/".
+ */
+final class JobControl {
+
+    private final Duration timeout;
+    private final boolean failFast;
+    private final Set<String> missing = new ConcurrentSkipListSet<>();
+
+    /**
+     * @param settings Настройки задачи (null — без срока, best-effort).
+     */
+    JobControl(JobSettings settings) {
+        JobSettings effective = settings != null ? settings : new JobSettings();
+        this.timeout = effective.getTimeout() != null && !effective.getTimeout().isZero() ? effective.getTimeout() : null;
+        this.failFast = effective.getFailureMode() == JobSettings.FailureMode.FAIL_FAST;
+    }
+
+    /**
+     * Выполняет обход со сроком задачи. Обход идет в отдельном потоке; по истечении срока поток прерывается,
+     * что останавливает этапы конвейера и обрывает их запросы, и метод дожидается его завершения.
+     *
+     * @param executorService Исполнитель (поток создается из потока вызывающего и наследует контекст задачи).
+     * @param traversal Обход.
+     * @throws TimeoutException если срок истек.
+     * @throws Exception Ошибка обхода.
+     */
+    <T> T run(ExecutorService executorService, Callable<T> traversal) throws Exception {
+        if (timeout == null) {
+            return traversal.call();
+        }
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+        Future<T> future = executorService.submit(() -> {
+            runner.set(Thread.currentThread());
+            try {
+                if (cancelled.get()) {
+                    throw new CancellationException();
+                }
+                return traversal.call();
+            } finally {
+                runner.set(null);
+                done.countDown();
+            }
+        });
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancel(runner, cancelled, done);
+            throw new TimeoutException("Job did not finish within " + timeout);
+        } catch (InterruptedException e) {
+            cancel(runner, cancelled, done);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Прерывает поток обхода и ждет, пока он освободит ресурсы.
+     */
+    private static void cancel(AtomicReference<Thread> runner, AtomicBoolean cancelled, CountDownLatch done) {
+        cancelled.set(true);
+        Thread thread = runner.get();
+        if (thread != null) {
+            thread.interrupt();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Учитывает ошибку пути.
+     *
+     * @param path Путь к файлу или директории (с завершающим "/").
+     * @param reason Причина для сообщения.
+     * @throws PathFailedException в режиме fail-fast.
+     */
+    void failed(String path, String reason) {
+        if (failFast) {
+            throw new PathFailedException("Failed to fetch " + path + ": " + reason);
+        }
+        missing.add(path);
+    }
+
+    /**
+     * @return true, если первая ошибка должна завершать задачу.
+     */
+    boolean isFailFast() {
+        return failFast;
+    }
+
+    /**
+     * @return Пропущенные пути в порядке сортировки.
+     */
+    List<String> missing() {
+        return List.copyOf(missing);
+    }
+
+    /**
+     * Ошибка пути в режиме fail-fast.
+     */
+    static final class PathFailedException extends RuntimeException {
+        PathFailedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.ProfilingConfig;
+import com.example.githubreader.model.JobProfileReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Профилирование задач: этапы, время ожидания бюджета, скачивания и записи каждого файла.
+ * <p>
+ * Задача выполняется через {@link #run(String, String, String, Consumer)} и привязывается к потоку; дочерние виртуальные
+ * потоки наследуют ее, как и ключ задачи {@link FetchBudget}. Время файла учитывается внутри {@link #file(String)};
+ * методы {@link #queueWait(long)}, {@link #network(long, long)} и {@link #written(long)} относятся к текущему файлу
+ * потока и ничего не делают вне задачи или при выключенном профилировании.
+ * По завершении задачи JSON-отчет записывается рядом с результатом и хранится для /api/profiles.
+ */
+@Slf4j
+@Component
+public class JobProfiler {
+
+    private static final InheritableThreadLocal<Recording> CURRENT_JOB = new InheritableThreadLocal<>();
+    private static final ThreadLocal<FileRecord> CURRENT_FILE = new ThreadLocal<>();
+    private static final String REPORT_SUFFIX = ".profile.json";
+    private static final Scope NOOP = () -> { };
+
+    private final ProfilingConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final Deque<JobProfileReport> reports = new ConcurrentLinkedDeque<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public JobProfiler(ProfilingConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Выполняет задачу под профилированием: успешное завершение или исключение задачи попадают в отчет.
+     *
+     * @param source Источник: github, directory или git.
+     * @param operation Операция: single-file или mirror.
+     * @param target URL репозитория или путь к источнику.
+     * @param job Тело задачи; через переданную запись задается расположение результата.
+     */
+    public void run(String source, String operation, String target, Consumer<Recording> job) {
+        try (Recording recording = start(source, operation, target)) {
+            try {
+                job.accept(recording);
+                recording.succeeded();
+            } catch (RuntimeException e) {
+                recording.failed(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Начинает профилирование задачи в текущем потоке.
+     *
+     * @param source Источник: github, directory или git.
+     * @param operation Операция: single-file или mirror.
+     * @param target URL репозитория или путь к источнику.
+     * @return Запись задачи, которую нужно закрыть по завершении (при выключенном профилировании — пустая).
+     */
+    private Recording start(String source, String operation, String target) {
+        if (!config.isEnabled()) {
+            return new Recording(null, source, operation, target);
+        }
+        String jobId = source + "-" + operation + "-" + System.currentTimeMillis() + "-" + sequence.incrementAndGet();
+        Recording recording = new Recording(jobId, source, operation, target);
+        recording.previous = CURRENT_JOB.get();
+        CURRENT_JOB.set(recording);
+        return recording;
+    }
+
+    /**
+     * Начинает этап текущей задачи.
+     *
+     * @param name Название этапа (resolve, listing, fetch, read, write).
+     * @return Область этапа.
+     */
+    public Scope phase(String name) {
+        Recording recording = CURRENT_JOB.get();
+        return recording != null ? recording.phase(name) : NOOP;
+    }
+
+    /**
+     * Начинает учет времени файла текущей задачи. Повторные области для того же пути (например, скачивание
+     * и последующая запись) суммируются в одну запись.
+     *
+     * @param path Путь к файлу относительно корня источника.
+     * @return Область, которую нужно закрыть после обработки файла.
+     */
+    public Scope file(String path) {
+        Recording recording = CURRENT_JOB.get();
+        if (recording == null || recording.jobId == null) {
+            return NOOP;
+        }
+        FileRecord record = recording.files.computeIfAbsent(path, FileRecord::new);
+        FileRecord previous = CURRENT_FILE.get();
+        CURRENT_FILE.set(record);
+        long started = System.nanoTime();
+        return () -> {
+            record.add(() -> record.totalNanos += System.nanoTime() - started);
+            CURRENT_FILE.set(previous);
+        };
+    }
+
+    /**
+     * Переносит текущий файл в задачу, выполняемую в другом потоке (например, попытку хеджированного запроса),
+     * чтобы ее время учитывалось в записи этого файла.
+     *
+     * @param task Задача.
+     * @return Задача, выполняющаяся в контексте текущего файла.
+     */
+    public <T> Callable<T> propagate(Callable<T> task) {
+        FileRecord record = CURRENT_FILE.get();
+        if (record == null) {
+            return task;
+        }
+        return () -> {
+            FileRecord previous = CURRENT_FILE.get();
+            CURRENT_FILE.set(record);
+            try {
+                return task.call();
+            } finally {
+                CURRENT_FILE.set(previous);
+            }
+        };
+    }
+
+    /**
+     * @param nanos Время ожидания разрешения бюджета запросов текущим файлом.
+     */
+    public void queueWait(long nanos) {
+        FileRecord record = CURRENT_FILE.get();
+        if (record != null) {
+            record.add(() -> record.queueWaitNanos += nanos);
+        }
+    }
+
+    /**
+     * @param nanos Время скачивания (чтения) текущего файла.
+     * @param bytes Размер полученного содержимого.
+     */
+    public void network(long nanos, long bytes) {
+        FileRecord record = CURRENT_FILE.get();
+        if (record != null) {
+            record.add(() -> {
+                record.networkNanos += nanos;
+                record.bytes = bytes;
+            });
+        }
+    }
+
+    /**
+     * @param nanos Время записи текущего файла.
+     */
+    public void written(long nanos) {
+        FileRecord record = CURRENT_FILE.get();
+        if (record != null) {
+            record.add(() -> record.writeNanos += nanos);
+        }
+    }
+
+    /**
+     * Отмечает повторную попытку получения текущего файла.
+     */
+    public void retry() {
+        FileRecord record = CURRENT_FILE.get();
+        if (record != null) {
+            record.add(() -> record.retries++);
+        }
+    }
+
+    /**
+     * @param status Результат обработки текущего файла (например, HTTP 403 или error: сообщение).
+     */
+    public void status(String status) {
+        FileRecord record = CURRENT_FILE.get();
+        if (record != null) {
+            record.add(() -> record.status = status);
+        }
+    }
+
+    /**
+     * Учитывает файл, полученный вне области {@link #file(String)} (например, пакетом GraphQL).
+     *
+     * @param path Путь к файлу.
+     * @param bytes Размер содержимого.
+     * @param status Результат.
+     */
+    public void fileFetched(String path, long bytes, String status) {
+        Recording recording = CURRENT_JOB.get();
+        if (recording != null && recording.jobId != null) {
+            FileRecord record = recording.files.computeIfAbsent(path, FileRecord::new);
+            record.add(() -> {
+                record.bytes = bytes;
+                record.status = status;
+            });
+        }
+    }
+
+    /**
+     * @return Последние отчеты, от старых к новым.
+     */
+    public List<JobProfileReport> reports() {
+        return List.copyOf(reports);
+    }
+
+    /**
+     * @param jobId Идентификатор задачи.
+     * @return Отчет задачи, если он еще хранится.
+     */
+    public Optional<JobProfileReport> report(String jobId) {
+        return reports.stream().filter(report -> report.getJobId().equals(jobId)).findFirst();
+    }
+
+    private void complete(Recording recording) {
+        JobProfileReport report = recording.toReport(config.getTopN());
+        reports.addLast(report);
+        while (reports.size() > Math.max(1, config.getMaxReports())) {
+            reports.pollFirst();
+        }
+        if (recording.outputFile == null) {
+            return;
+        }
+        Path reportPath = recording.outputDirectory
+                ? recording.outputFile.resolve(recording.jobId + REPORT_SUFFIX)
+                : reportPath(recording.outputFile);
+        try {
+            if (reportPath.getParent() != null) {
+                Files.createDirectories(reportPath.getParent());
+            }
+            objectMapper.writeValue(reportPath.toFile(), report);
+            log.info("Profile of job {} written to {}", recording.jobId, reportPath);
+        } catch (IOException e) {
+            log.warn("Failed to write profile of job {} to {}: {}", recording.jobId, reportPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Путь к отчету рядом с единым файлом: {@code <имя без расширения>.profile.json}.
+     */
+    static Path reportPath(Path outputFile) {
+        String fileName = outputFile.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return outputFile.resolveSibling(baseName + REPORT_SUFFIX);
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    /**
+     * Область учета времени, закрываемая без исключений.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Профилируемая задача.
+     */
+    public final class Recording implements AutoCloseable {
+
+        private final String jobId;
+        private final String source;
+        private final String operation;
+        private final String target;
+        private final long startNanos = System.nanoTime();
+        private final Instant startedAt = Instant.now();
+        private final Queue<JobProfileReport.PhaseTiming> phases = new ConcurrentLinkedQueue<>();
+        private final Map<String, FileRecord> files = new ConcurrentHashMap<>();
+        private Recording previous;
+        private Path outputFile;
+        private boolean outputDirectory;
+        private boolean succeeded;
+        private String error;
+
+        private Recording(String jobId, String source, String operation, String target) {
+            this.jobId = jobId;
+            this.source = source;
+            this.operation = operation;
+            this.target = target;
+        }
+
+        /**
+         * @return Идентификатор задачи или null, если профилирование выключено.
+         */
+        public String jobId() {
+            return jobId;
+        }
+
+        private Scope phase(String name) {
+            if (jobId == null) {
+                return NOOP;
+            }
+            long started = System.nanoTime();
+            return () -> phases.add(new JobProfileReport.PhaseTiming(
+                    name, millis(started - startNanos), millis(System.nanoTime() - started)));
+        }
+
+        /**
+         * @param outputFile Единый файл результата; отчет записывается рядом с ним.
+         */
+        public void outputFile(Path outputFile) {
+            this.outputFile = outputFile;
+            this.outputDirectory = false;
+        }
+
+        /**
+         * @param outputDirectory Директория результата (зеркало); отчет записывается в нее как {@code <id задачи>.profile.json}.
+         */
+        public void outputDirectory(Path outputDirectory) {
+            this.outputFile = outputDirectory;
+            this.outputDirectory = true;
+        }
+
+        /**
+         * Отмечает успешное завершение задачи; задача, закрытая без этого вызова, считается неудачной.
+         */
+        public void succeeded() {
+            this.succeeded = true;
+        }
+
+        /**
+         * @param e Причина неудачи задачи.
+         */
+        public void failed(Exception e) {
+            this.error = e.getMessage();
+        }
+
+        @Override
+        public void close() {
+            if (jobId == null) {
+                return;
+            }
+            if (previous != null) {
+                CURRENT_JOB.set(previous);
+            } else {
+                CURRENT_JOB.remove();
+            }
+            complete(this);
+        }
+
+        private JobProfileReport toReport(int topN) {
+            List<JobProfileReport.FileTiming> fileTimings = new ArrayList<>();
+            files.values().forEach(record -> fileTimings.add(record.toTiming()));
+            fileTimings.sort(Comparator.comparing(JobProfileReport.FileTiming::getPath));
+            List<JobProfileReport.FileTiming> slowest = fileTimings.stream()
+                    .sorted(Comparator.comparingDouble(JobProfileReport.FileTiming::getTotalMs).reversed())
+                    .limit(Math.max(0, topN))
+                    .toList();
+            List<JobProfileReport.PhaseTiming> phaseTimings = phases.stream()
+                    .sorted(Comparator.comparingDouble(JobProfileReport.PhaseTiming::getStartMs))
+                    .toList();
+            return new JobProfileReport(jobId, source, operation, target,
+                    outputFile != null ? outputFile.toString() : null, startedAt.toString(),
+                    millis(System.nanoTime() - startNanos), succeeded ? "ok" : "failed", error,
+                    phaseTimings, fileTimings, slowest);
+        }
+    }
+
+    /**
+     * Накопленное время одного файла.
+     */
+    private static final class FileRecord {
+
+        private final String path;
+        private long bytes;
+        private long queueWaitNanos;
+        private long networkNanos;
+        private long writeNanos;
+        private long totalNanos;
+        private int retries;
+        private String status;
+
+        private FileRecord(String path) {
+            this.path = path;
+        }
+
+        private synchronized void add(Runnable update) {
+            update.run();
+        }
+
+        private synchronized JobProfileReport.FileTiming toTiming() {
+            String effectiveStatus = status != null ? status : networkNanos > 0 ? "ok" : "cached";
+            return new JobProfileReport.FileTiming(path, bytes, millis(queueWaitNanos), millis(networkNanos),
+                    millis(writeNanos), millis(totalNanos), retries, effectiveStatus);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.githubreader.service;
+
+import java.util.Arrays;
+
+/**
+ * Онлайн-оценка перцентиля задержки по последним {@code capacity} замерам (скользящее окно).
+ * Перцентиль пересчитывается не чаще одного раза на {@link #RECOMPUTE_EVERY} новых замеров,
+ * поэтому запрос порога почти ничего не стоит.
+ */
+final class LatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final long[] samples;
+    private final double percentile;
+    private int size;
+    private int next;
+    private int sinceRecompute;
+    private long cachedNanos = -1;
+
+    /**
+     * @param capacity Размер окна замеров.
+     * @param percentile Перцентиль (0..100).
+     */
+    LatencyTracker(int capacity, double percentile) {
+        this.samples = new long[Math.max(1, capacity)];
+        this.percentile = percentile;
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        if (++sinceRecompute >= RECOMPUTE_EVERY || cachedNanos < 0) {
+            recompute();
+        }
+    }
+
+    /**
+     * @return Текущая оценка перцентиля (нс) или -1, если замеров нет.
+     */
+    synchronized long percentileNanos() {
+        return size == 0 ? -1 : cachedNanos;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void recompute() {
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        cachedNanos = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        sinceRecompute = 0;
+    }
+}
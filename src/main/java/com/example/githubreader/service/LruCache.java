@@ -0,0 +1,111 @@
+package com.example.githubreader.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Простой потокобезопасный LRU-кэш с ограничением по суммарному весу записей.
+ * Вес записи задает функция веса: 1 — ограничение по числу записей, длина содержимого — по объему.
+ * Запись тяжелее всего бюджета не кэшируется.
+ *
+ * @param <K> Тип ключа.
+ * @param <V> Тип значения.
+ */
+class LruCache<K, V> {
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final Map<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    /**
+     * @param maxEntries Максимальное число записей.
+     */
+    LruCache(int maxEntries) {
+        this(maxEntries, value -> 1);
+    }
+
+    /**
+     * @param maxWeight Максимальный суммарный вес записей.
+     * @param weigher Вес записи.
+     */
+    LruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * @return Вес строки: ее длина.
+     */
+    static long length(String value) {
+        return value.length();
+    }
+
+    /**
+     * @return Вес списка строк: сумма их длин.
+     */
+    static long totalLength(List<String> values) {
+        long total = 0;
+        for (String value : values) {
+            total += value.length();
+        }
+        return total;
+    }
+
+    synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(K key, V value) {
+        if (maxWeight <= 0 || value == null) {
+            return;
+        }
+        long valueWeight = weigher.applyAsLong(value);
+        if (valueWeight > maxWeight) {
+            return;
+        }
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+        weight += valueWeight;
+        Iterator<V> eldest = entries.values().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            V evicted = eldest.next();
+            eldest.remove();
+            weight -= weigher.applyAsLong(evicted);
+        }
+    }
+
+    /**
+     * Возвращает значение из кэша или вычисляет и кэширует его.
+     * Вычисление выполняется вне блокировки, поэтому при гонке значение может быть вычислено дважды.
+     *
+     * @param key Ключ.
+     * @param loader Функция получения значения.
+     * @return Значение.
+     */
+    V computeIfAbsent(K key, Supplier<V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.get();
+            put(key, value);
+        }
+        return value;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Суммарный вес записей.
+     */
+    synchronized long weight() {
+        return weight;
+    }
+}
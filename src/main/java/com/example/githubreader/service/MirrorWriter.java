@@ -0,0 +1,105 @@
+package com.example.githubreader.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Запись зеркала файлов потоком байтов: содержимое копируется во временный файл рядом с целевым
+ * и атомарно переименовывается, поэтому читатель зеркала никогда не видит недописанный файл,
+ * бинарные файлы сохраняются без перекодирования, а память не зависит от размера файла.
+ * <p>
+ * Созданные родительские директории запоминаются, и для следующих файлов той же директории
+ * {@link Files#createDirectories} не вызывается. Если директорию удалили снаружи, она создается заново.
+ */
+@Slf4j
+final class MirrorWriter {
+
+    private static final String TEMP_SUFFIX = ".part";
+
+    private final Path root;
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param root Корень зеркала, например output/.
+     */
+    MirrorWriter(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Сохраняет файл из потока.
+     *
+     * @param path Путь к файлу в источнике.
+     * @param content Поток содержимого; не закрывается.
+     * @return Число записанных байт.
+     * @throws IOException если файл не удалось записать.
+     */
+    long write(String path, InputStream content) throws IOException {
+        Path target = resolve(path);
+        Path directory = target.getParent();
+        ensureDirectory(directory);
+        Path temp;
+        try {
+            temp = Files.createTempFile(directory, "." + target.getFileName(), TEMP_SUFFIX);
+        } catch (NoSuchFileException e) {
+            // Директорию удалили после того, как она попала в кэш
+            createdDirectories.remove(directory);
+            ensureDirectory(directory);
+            temp = Files.createTempFile(directory, "." + target.getFileName(), TEMP_SUFFIX);
+        }
+        try {
+            long bytes;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                bytes = content.transferTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Сохранен файл: {}", target);
+            return bytes;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Сохраняет файл из массива байтов.
+     *
+     * @param path Путь к файлу в источнике.
+     * @param content Содержимое.
+     * @return Число записанных байт.
+     * @throws IOException если файл не удалось записать.
+     */
+    long write(String path, byte[] content) throws IOException {
+        return write(path, new ByteArrayInputStream(content));
+    }
+
+    /**
+     * @return Целевой путь внутри корня зеркала.
+     * @throws IllegalArgumentException если путь выходит за пределы корня.
+     */
+    private Path resolve(String path) {
+        Path target = root.resolve(path).normalize();
+        if (!target.startsWith(root) || target.equals(root)) {
+            throw new IllegalArgumentException("Path escapes mirror directory: " + path);
+        }
+        return target;
+    }
+
+    private void ensureDirectory(Path directory) throws IOException {
+        if (createdDirectories.contains(directory)) {
+            return;
+        }
+        Files.createDirectories(directory);
+        createdDirectories.add(directory);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.githubreader.service;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Поиск сгенерированных файлов в output/ для скачивания: проверка пути, выбор предварительно сжатого
+ * варианта ({@code .br}, {@code .gz}) по заголовку Accept-Encoding и валидатор ETag по размеру и времени изменения.
+ * Содержимое не читается: ответ отдает сам файл, а частичные запросы (Range) обрабатывает Spring MVC.
+ */
+@Slf4j
+@Service
+public class OutputFileService {
+
+    /** Поддерживаемые сжатые варианты в порядке предпочтения: кодировка и расширение файла. */
+    private static final List<String[]> ENCODINGS = List.of(new String[]{"br", ".br"}, new String[]{"gzip", ".gz"});
+
+    private final Path root;
+
+    public OutputFileService() {
+        this(Paths.get(ContentWriter.OUTPUT_DIR));
+    }
+
+    /**
+     * @param root Директория сгенерированных файлов.
+     */
+    OutputFileService(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Находит файл для скачивания.
+     *
+     * @param path Путь к файлу относительно output/.
+     * @param acceptEncoding Значение заголовка Accept-Encoding (может быть null).
+     * @return Файл или пустое значение, если файла нет, путь выходит за пределы output/ или указывает на скрытый файл
+     * (например, недописанный {@code .part} зеркала).
+     */
+    public Optional<OutputFile> find(String path, String acceptEncoding) {
+        if (path == null || path.isBlank()) {
+            return Optional.empty();
+        }
+        Path file = root.resolve(path.replace('\\', '/')).normalize();
+        if (!file.startsWith(root) || file.equals(root) || file.getFileName().toString().startsWith(".")) {
+            log.debug("Rejected output path: {}", path);
+            return Optional.empty();
+        }
+        BasicFileAttributes attributes = attributes(file);
+        if (attributes == null || !attributes.isRegularFile()) {
+            return Optional.empty();
+        }
+
+        MediaType mediaType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        if (mediaType.getCharset() == null && "text".equals(mediaType.getType())) {
+            // Единые файлы и листинги всегда пишутся в UTF-8
+            mediaType = new MediaType(mediaType, StandardCharsets.UTF_8);
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        boolean hasVariants = false;
+        for (String[] encoding : ENCODINGS) {
+            Path variant = file.resolveSibling(file.getFileName() + encoding[1]);
+            BasicFileAttributes variantAttributes = attributes(variant);
+            // Вариант старше исходного файла устарел и не используется
+            if (variantAttributes == null || !variantAttributes.isRegularFile()
+                    || variantAttributes.lastModifiedTime().toMillis() < lastModified) {
+                continue;
+            }
+            hasVariants = true;
+            if (accepts(acceptEncoding, encoding[0])) {
+                return Optional.of(new OutputFile(new FileSystemResource(variant), file.getFileName().toString(),
+                        mediaType, encoding[0], etag(variantAttributes, encoding[0]), lastModified, true));
+            }
+        }
+        return Optional.of(new OutputFile(new FileSystemResource(file), file.getFileName().toString(),
+                mediaType, null, etag(attributes, null), lastModified, hasVariants));
+    }
+
+    private static BasicFileAttributes attributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return Сильный валидатор: размер и время изменения файла, у сжатого варианта — еще и кодировка.
+     */
+    private static String etag(BasicFileAttributes attributes, String encoding) {
+        String tag = Long.toHexString(attributes.size()) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis());
+        return "\"" + (encoding != null ? tag + "-" + encoding : tag) + "\"";
+    }
+
+    /**
+     * @return true, если клиент принимает кодировку (без {@code q=0}).
+     */
+    static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            if (!parts[0].trim().toLowerCase(Locale.ROOT).equals(encoding)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.matches("q=0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Файл для скачивания.
+     */
+    @Value
+    public static class OutputFile {
+        Resource resource;
+        String fileName;           // Имя исходного файла для Content-Disposition
+        MediaType mediaType;       // Тип исходного файла, в том числе для сжатого варианта
+        String encoding;           // br, gzip или null для несжатого файла
+        String etag;
+        long lastModified;
+        boolean hasVariants;       // Есть сжатые варианты: ответ зависит от Accept-Encoding
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.githubreader.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Параллельный обход дерева файлов: каждая директория читается отдельной задачей fork/join,
+ * поэтому на сетевых файловых системах и больших монорепозиториях листинги директорий выполняются одновременно.
+ * <p>
+ * Число одновременных чтений метаданных ограничено параллелизмом пула. Найденные файлы передаются
+ * через ограниченную очередь в поток вызывающего, поэтому обработчик файлов выполняется в контексте задачи
+ * (профилирование, бюджет запросов) и сдерживает обход, если не успевает.
+ * Как и {@link Files#walk}, не заходит по символическим ссылкам в директории, а ссылки на файлы включает.
+ * <p>
+ * С правилами {@link GitignoreMatcher} игнорируемые файлы пропускаются, а игнорируемые директории не читаются вовсе.
+ * <p>
+ * Ошибка чтения корня всегда прерывает обход. Ошибку чтения вложенной директории можно передать обработчику
+ * ошибок: тогда обход продолжается без нее.
+ */
+final class ParallelFileWalker {
+
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final long POLL_MILLIS = 10;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism Число одновременных листингов директорий.
+     */
+    ParallelFileWalker(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Обходит дерево и вызывает обработчик для каждого обычного файла в потоке вызывающего.
+     * Порядок файлов не определен.
+     *
+     * @param root Корневая директория.
+     * @param onFile Обработчик файла.
+     * @throws IOException если не удалось прочитать одну из директорий.
+     */
+    void walk(Path root, Consumer<Path> onFile) throws IOException, InterruptedException {
+        walk(root, null, onFile);
+    }
+
+    /**
+     * Обходит дерево с учетом правил {@code .gitignore} и вызывает обработчик для каждого неигнорируемого
+     * обычного файла в потоке вызывающего.
+     *
+     * @param root Корневая директория.
+     * @param ignore Правила директорий выше корня ({@link GitignoreMatcher#above(Path)}) или null, если правила не учитываются.
+     * @param onFile Обработчик файла.
+     * @throws IOException если не удалось прочитать одну из директорий или файл правил.
+     */
+    void walk(Path root, GitignoreMatcher ignore, Consumer<Path> onFile) throws IOException, InterruptedException {
+        walk(root, ignore, onFile, null);
+    }
+
+    /**
+     * Обходит дерево, передавая ошибки чтения вложенных директорий обработчику вместо прерывания обхода.
+     * Оба обработчика вызываются в потоке вызывающего.
+     *
+     * @param root Корневая директория.
+     * @param ignore Правила директорий выше корня или null, если правила не учитываются.
+     * @param onFile Обработчик файла.
+     * @param onError Обработчик ошибки чтения вложенной директории или null, если ошибка прерывает обход.
+     * @throws IOException если не удалось прочитать корень (или вложенную директорию без обработчика ошибок).
+     */
+    void walk(Path root, GitignoreMatcher ignore, Consumer<Path> onFile, BiConsumer<Path, IOException> onError)
+            throws IOException, InterruptedException {
+        BlockingQueue<Path> files = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        Queue<Failure> failures = onError != null ? new ConcurrentLinkedQueue<>() : null;
+        AtomicBoolean stopped = new AtomicBoolean();
+        ForkJoinTask<Void> task = pool.submit(new DirectoryTask(root, ignore, files, failures, stopped, true));
+        try {
+            while (true) {
+                Path file = files.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                reportFailures(failures, onError);
+                if (file != null) {
+                    onFile.accept(file);
+                } else if (task.isDone()) {
+                    // Все задачи завершены, в очереди могли остаться последние файлы
+                    while ((file = files.poll()) != null) {
+                        onFile.accept(file);
+                    }
+                    reportFailures(failures, onError);
+                    break;
+                }
+            }
+            task.get();
+        } catch (ExecutionException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+            }
+            throw new IllegalStateException("Failed to walk " + root, e.getCause());
+        } finally {
+            if (!task.isDone()) {
+                stopped.set(true);
+                files.clear();
+            }
+        }
+    }
+
+    private static void reportFailures(Queue<Failure> failures, BiConsumer<Path, IOException> onError) {
+        if (failures == null) {
+            return;
+        }
+        Failure failure;
+        while ((failure = failures.poll()) != null) {
+            onError.accept(failure.directory(), failure.error());
+        }
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private record Failure(Path directory, IOException error) {
+    }
+
+    private static final class DirectoryTask extends RecursiveAction {
+
+        private final Path directory;
+        private final GitignoreMatcher ignore;
+        private final BlockingQueue<Path> files;
+        private final Queue<Failure> failures;
+        private final AtomicBoolean stopped;
+        private final boolean root;
+
+        /**
+         * @param ignore Правила родительской директории или null.
+         * @param failures Очередь ошибок вложенных директорий или null, если ошибка прерывает обход.
+         * @param root true для корня обхода: его ошибка прерывает обход всегда.
+         */
+        DirectoryTask(Path directory, GitignoreMatcher ignore, BlockingQueue<Path> files, Queue<Failure> failures,
+                      AtomicBoolean stopped, boolean root) {
+            this.directory = directory;
+            this.ignore = ignore;
+            this.files = files;
+            this.failures = failures;
+            this.stopped = stopped;
+            this.root = root;
+        }
+
+        @Override
+        protected void compute() {
+            if (stopped.get()) {
+                return;
+            }
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                // Правила директории разбираются один раз и передаются всем вложенным задачам
+                GitignoreMatcher rules = ignore != null ? ignore.enter(directory) : null;
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes =
+                            Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (rules != null && rules.isIgnored(entry, attributes.isDirectory())) {
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        subdirectories.add(new DirectoryTask(entry, rules, files, failures, stopped, false));
+                    } else if (attributes.isRegularFile() || attributes.isSymbolicLink() && Files.isRegularFile(entry)) {
+                        enqueue(entry);
+                    }
+                }
+            } catch (IOException e) {
+                if (root || failures == null) {
+                    throw new UncheckedIOException(e);
+                }
+                // Уже найденные поддиректории обходятся, сама директория считается пропущенной
+                failures.add(new Failure(directory, e));
+            }
+            invokeAll(subdirectories);
+        }
+
+        private void enqueue(Path file) {
+            try {
+                // Ожидание с таймаутом, чтобы прерванный обход не зависал на заполненной очереди
+                while (!files.offer(file, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (stopped.get()) {
+                        throw new CancellationException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.githubreader.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Проверка путей внутри репозитория (относительно корня, через "/") по include и exclude шаблонам.
+ * Скомпилированные шаблоны кэшируются, так как одни и те же шаблоны проверяются для каждого файла.
+ */
+final class PathPatterns {
+
+    private static final Map<String, Pattern> COMPILED = new ConcurrentHashMap<>();
+
+    private PathPatterns() {
+    }
+
+    /**
+     * Проверяет, соответствует ли путь include и exclude шаблонам.
+     *
+     * @param path Путь к файлу в репозитории.
+     * @param includePatterns Шаблоны для включения.
+     * @param excludePatterns Шаблоны для исключения.
+     * @return true, если файл должен быть включен.
+     */
+    static boolean matches(String path, List<String> includePatterns, List<String> excludePatterns) {
+        for (String exclude : excludePatterns) {
+            if (matches(path, exclude)) {
+                return false;
+            }
+        }
+        for (String include : includePatterns) {
+            if (matches(path, include)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет, соответствует ли путь шаблону целиком.
+     *
+     * @param path Путь к файлу в репозитории.
+     * @param pattern Шаблон ("*" — любые символы, "?" — один символ).
+     * @return true, если путь соответствует шаблону.
+     */
+    static boolean matches(String path, String pattern) {
+        return COMPILED.computeIfAbsent(pattern, PathPatterns::compile).matcher(path).matches();
+    }
+
+    private static Pattern compile(String pattern) {
+        String regex = pattern
+                .replace(".", "\\.")
+                .replace("*", ".*")
+                .replace("?", ".");
+        return Pattern.compile(regex);
+    }
+}
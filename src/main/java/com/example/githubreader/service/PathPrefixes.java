@@ -0,0 +1,65 @@
+package com.example.githubreader.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Префиксы путей (поддеревья), которыми ограничивается обход источника: обход начинается с этих директорий
+ * и не выходит за их пределы.
+ */
+final class PathPrefixes {
+
+    private PathPrefixes() {
+    }
+
+    /**
+     * Приводит префиксы к виду {@code a/b}: без ведущих и завершающих "/", с "/" вместо "\",
+     * без повторов и без префиксов, вложенных в другие. Пустой результат означает весь источник.
+     *
+     * @param prefixes Префиксы из запроса (может быть null).
+     * @return Отсортированные префиксы.
+     * @throws IllegalArgumentException если префикс содержит "..".
+     */
+    static List<String> normalize(List<String> prefixes) {
+        if (prefixes == null || prefixes.isEmpty()) {
+            return List.of();
+        }
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String prefix : prefixes) {
+            if (prefix == null) {
+                continue;
+            }
+            List<String> segments = new ArrayList<>();
+            for (String segment : prefix.trim().replace('\\', '/').split("/")) {
+                if (segment.equals("..")) {
+                    throw new IllegalArgumentException("Path prefix must not contain '..': " + prefix);
+                }
+                if (!segment.isEmpty() && !segment.equals(".")) {
+                    segments.add(segment);
+                }
+            }
+            if (segments.isEmpty()) {
+                // Корень включает все остальные префиксы
+                return List.of();
+            }
+            sorted.add(String.join("/", segments));
+        }
+        List<String> result = new ArrayList<>();
+        for (String prefix : sorted) {
+            // Родитель в отсортированном наборе всегда идет раньше вложенного префикса
+            if (result.stream().noneMatch(parent -> prefix.startsWith(parent + "/"))) {
+                result.add(prefix);
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * @param prefixes Нормализованные префиксы.
+     * @return Суффикс ключа кэша результатов: пустой для всего источника.
+     */
+    static String key(List<String> prefixes) {
+        return prefixes.isEmpty() ? "" : ":" + String.join(",", prefixes);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.model.RepositoryStats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Накопитель статистики по размерам файлов из метаданных: число и объем файлов, разбивка по расширениям
+ * и top-N самых больших файлов (куча ограниченного размера, без хранения всех путей).
+ */
+final class RepositoryStatsCollector {
+
+    private static final Comparator<RepositoryStats.FileSize> BY_SIZE =
+            Comparator.comparingLong(RepositoryStats.FileSize::getBytes).thenComparing(RepositoryStats.FileSize::getPath);
+
+    private final int top;
+    private final Map<String, long[]> byExtension = new HashMap<>();
+    private final PriorityQueue<RepositoryStats.FileSize> largest;
+    private long files;
+    private long bytes;
+    private long excluded;
+
+    /**
+     * @param top Число самых больших файлов в результате.
+     */
+    RepositoryStatsCollector(int top) {
+        this.top = top;
+        this.largest = new PriorityQueue<>(Math.max(1, top + 1), BY_SIZE);
+    }
+
+    /**
+     * Учитывает подходящий файл.
+     *
+     * @param path Путь к файлу в репозитории.
+     * @param size Размер в байтах.
+     */
+    void add(String path, long size) {
+        files++;
+        bytes += size;
+        long[] extension = byExtension.computeIfAbsent(extension(path), key -> new long[2]);
+        extension[0]++;
+        extension[1] += size;
+        if (top > 0) {
+            largest.add(new RepositoryStats.FileSize(path, size));
+            if (largest.size() > top) {
+                largest.poll();
+            }
+        }
+    }
+
+    /**
+     * Учитывает файл, исключенный шаблонами.
+     */
+    void excluded() {
+        excluded++;
+    }
+
+    /**
+     * @param missing Пропущенные из-за ошибок директории.
+     * @return Статистика; расширения и файлы отсортированы по убыванию объема.
+     */
+    RepositoryStats result(String repoUrl, String commitSha, List<String> paths, String source, List<String> missing) {
+        List<RepositoryStats.ExtensionStats> extensions = new ArrayList<>(byExtension.size());
+        byExtension.forEach((extension, counters) ->
+                extensions.add(new RepositoryStats.ExtensionStats(extension, counters[0], counters[1])));
+        extensions.sort(Comparator.comparingLong(RepositoryStats.ExtensionStats::getBytes).reversed()
+                .thenComparing(RepositoryStats.ExtensionStats::getExtension));
+        List<RepositoryStats.FileSize> largestFiles = new ArrayList<>(largest);
+        largestFiles.sort(BY_SIZE.reversed());
+        return new RepositoryStats(repoUrl, commitSha, paths, source, files, bytes, excluded,
+                List.copyOf(extensions), List.copyOf(largestFiles), List.copyOf(missing));
+    }
+
+    /**
+     * @return Расширение имени файла без точки в нижнем регистре; пустая строка, если расширения нет
+     * (в том числе для скрытых файлов вида {@code .gitignore}).
+     */
+    static String extension(String path) {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && dot < name.length() - 1 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
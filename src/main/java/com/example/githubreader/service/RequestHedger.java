@@ -0,0 +1,131 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.GithubConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Хеджирование запросов: если ответ не пришел за время, равное заданному перцентилю недавних задержек,
+ * отправляется дублирующий запрос, берется первый успешный ответ, а второй запрос отменяется (прерыванием потока).
+ * <p>
+ * Доля хеджей ограничена бюджетом: каждый запрос добавляет {@code maxHedgeRatio} жетона (не больше
+ * {@link #MAX_HEDGE_TOKENS}), каждый хедж тратит один, поэтому дубли не расходуют лимит GitHub API сверх этой доли.
+ */
+@Slf4j
+final class RequestHedger {
+
+    /** Максимальный запас жетонов, чтобы после долгого затишья не отправить сразу много дублей. */
+    private static final double MAX_HEDGE_TOKENS = 10;
+
+    private final GithubConfig.Hedge config;
+    private final ExecutorService executorService;
+    private final LatencyTracker latencies;
+    private double hedgeTokens;
+
+    /**
+     * @param config Настройки хеджирования (null — хеджирование выключено).
+     * @param executorService Исполнитель попыток запроса.
+     */
+    RequestHedger(GithubConfig.Hedge config, ExecutorService executorService) {
+        this.config = config;
+        this.executorService = executorService;
+        this.latencies = config != null ? new LatencyTracker(config.getWindow(), config.getPercentile()) : null;
+    }
+
+    boolean isEnabled() {
+        return config != null && config.isEnabled();
+    }
+
+    /**
+     * Выполняет запрос с хеджированием.
+     *
+     * @param attempt Одна попытка запроса; должна реагировать на прерывание.
+     * @param onHedge Вызывается в потоке вызывающего при отправке дублирующего запроса.
+     * @param onHedgeWon Вызывается, если первым ответил дублирующий запрос.
+     * @return Результат первой успешной попытки.
+     * @throws Exception Ошибка попытки, если все попытки завершились неудачно.
+     */
+    <T> T call(Callable<T> attempt, Runnable onHedge, Runnable onHedgeWon) throws Exception {
+        addHedgeTokens();
+        long delayNanos = hedgeDelayNanos();
+        if (delayNanos < 0) {
+            long started = System.nanoTime();
+            T result = attempt.call();
+            latencies.record(System.nanoTime() - started);
+            return result;
+        }
+
+        CompletionService<T> completion = new ExecutorCompletionService<>(executorService);
+        List<Future<T>> attempts = new ArrayList<>(2);
+        List<Long> startedAt = new ArrayList<>(2);
+        startedAt.add(System.nanoTime());
+        attempts.add(completion.submit(attempt));
+        try {
+            Future<T> done = completion.poll(delayNanos, TimeUnit.NANOSECONDS);
+            if (done == null && tryTakeHedgeToken()) {
+                onHedge.run();
+                startedAt.add(System.nanoTime());
+                attempts.add(completion.submit(attempt));
+            }
+
+            Exception failure = null;
+            for (int i = 0; i < attempts.size(); i++) {
+                Future<T> next = done != null ? done : completion.take();
+                done = null;
+                int index = attempts.indexOf(next);
+                try {
+                    T result = next.get();
+                    latencies.record(System.nanoTime() - startedAt.get(index));
+                    if (index > 0) {
+                        onHedgeWon.run();
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    failure = e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+            throw failure;
+        } finally {
+            for (int i = 0; i < attempts.size(); i++) {
+                Future<T> future = attempts.get(i);
+                if (!future.isDone()) {
+                    // Время отмененной попытки — нижняя граница ее задержки, она тоже учитывается в окне
+                    latencies.record(System.nanoTime() - startedAt.get(i));
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Задержка перед отправкой дубля (нс) или -1, пока замеров меньше minSamples.
+     */
+    long hedgeDelayNanos() {
+        if (latencies.size() < config.getMinSamples()) {
+            return -1;
+        }
+        return Math.max(latencies.percentileNanos(), TimeUnit.MILLISECONDS.toNanos(config.getMinDelayMs()));
+    }
+
+    private synchronized void addHedgeTokens() {
+        hedgeTokens = Math.min(MAX_HEDGE_TOKENS, hedgeTokens + config.getMaxHedgeRatio());
+    }
+
+    private synchronized boolean tryTakeHedgeToken() {
+        if (hedgeTokens < 1) {
+            log.debug("Hedge budget exhausted");
+            return false;
+        }
+        hedgeTokens -= 1;
+        return true;
+    }
+}
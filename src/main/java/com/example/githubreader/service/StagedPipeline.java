@@ -0,0 +1,347 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.PipelineSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Конвейер из этапов, соединенных ограниченными очередями: первый этап производит элементы, каждый следующий
+ * обрабатывает элементы своей входной очереди заданным числом обработчиков и передает результаты дальше.
+ * <p>
+ * Заполненная очередь останавливает предыдущий этап (обратное давление), поэтому быстрый этап не убегает вперед
+ * медленного, а число элементов в работе ограничено суммой размеров очередей. Память, которую накапливает
+ * последний этап (например, сборка результата целиком), этим не ограничивается. Заполненность очередей
+ * и число занятых обработчиков каждого этапа видны в метриках {@code pipeline.stage.*}.
+ * <p>
+ * Ошибка любого обработчика останавливает весь конвейер: потоки остальных обработчиков прерываются (это обрывает
+ * их незавершенные HTTP-запросы), {@link #run()} дожидается их завершения и пробрасывает первую ошибку.
+ * Так же конвейер останавливается при прерывании вызывающего потока, например по сроку задачи ({@link JobControl}).
+ */
+final class StagedPipeline {
+
+    /** Маркер конца потока элементов во входной очереди этапа. */
+    private static final Object END = new Object();
+    private static final long POLL_MILLIS = 10;
+
+    private final String source;
+    private final ExecutorService executorService;
+    private final FetchMetrics fetchMetrics;
+    private final Producer<Object> producer;
+    private final String producerName;
+    private final List<StageSpec> stages = new ArrayList<>();
+
+    private StagedPipeline(String source, ExecutorService executorService, FetchMetrics fetchMetrics,
+                           String producerName, Producer<Object> producer) {
+        this.source = source;
+        this.executorService = executorService;
+        this.fetchMetrics = fetchMetrics;
+        this.producerName = producerName;
+        this.producer = producer;
+    }
+
+    /**
+     * Первый этап конвейера.
+     *
+     * @param source Источник для тегов метрик: github, directory.
+     * @param executorService Исполнитель обработчиков (потоки создаются из потока вызывающего и наследуют контекст задачи).
+     * @param fetchMetrics Метрики.
+     * @param name Имя этапа.
+     * @param producer Производитель элементов; может вызывать {@code emit} из нескольких потоков.
+     * @return Построитель следующих этапов.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Builder<T> from(String source, ExecutorService executorService, FetchMetrics fetchMetrics,
+                               String name, Producer<T> producer) {
+        return new Builder<>(new StagedPipeline(source, executorService, fetchMetrics, name, (Producer<Object>) (Producer<?>) producer));
+    }
+
+    /**
+     * Запускает все этапы и ждет их завершения.
+     *
+     * @throws Exception Первая ошибка одного из этапов.
+     */
+    void run() throws Exception {
+        int count = stages.size();
+        List<BlockingQueue<Object>> queues = new ArrayList<>(count);
+        List<FetchMetrics.StageOccupancy> occupancy = new ArrayList<>(count);
+        for (StageSpec stage : stages) {
+            queues.add(new ArrayBlockingQueue<>(Math.max(1, stage.settings().getQueueCapacity())));
+            occupancy.add(fetchMetrics.stage(source, stage.name()));
+        }
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        int total = 1 + stages.stream().mapToInt(StageSpec::parallelism).sum();
+        Workers workers = new Workers(total, failure);
+
+        FetchMetrics.StageOccupancy producerOccupancy = fetchMetrics.stage(source, producerName);
+        workers.submit(() -> {
+            producerOccupancy.active.incrementAndGet();
+            try {
+                producer.produce(item -> put(queues.get(0), occupancy.get(0), item, failure));
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                producerOccupancy.active.decrementAndGet();
+                finish(queues.get(0), stages.get(0).parallelism(), failure);
+            }
+        });
+
+        for (int i = 0; i < count; i++) {
+            StageSpec stage = stages.get(i);
+            BlockingQueue<Object> input = queues.get(i);
+            FetchMetrics.StageOccupancy stageOccupancy = occupancy.get(i);
+            BlockingQueue<Object> output = i + 1 < count ? queues.get(i + 1) : null;
+            FetchMetrics.StageOccupancy outputOccupancy = i + 1 < count ? occupancy.get(i + 1) : null;
+            int downstreamWorkers = i + 1 < count ? stages.get(i + 1).parallelism() : 0;
+            AtomicInteger running = new AtomicInteger(stage.parallelism());
+            for (int w = 0; w < stage.parallelism(); w++) {
+                workers.submit(() -> {
+                    try {
+                        Object item;
+                        while ((item = take(input, stageOccupancy, failure)) != END) {
+                            stageOccupancy.active.incrementAndGet();
+                            try {
+                                stage.worker().process(item, result -> {
+                                    if (output != null) {
+                                        put(output, outputOccupancy, result, failure);
+                                    }
+                                });
+                            } finally {
+                                stageOccupancy.active.decrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        // Последний обработчик этапа сообщает следующему этапу о конце потока
+                        if (running.decrementAndGet() == 0 && output != null) {
+                            finish(output, downstreamWorkers, failure);
+                        }
+                    }
+                });
+            }
+        }
+
+        try {
+            workers.await();
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+        } finally {
+            workers.stop();
+            for (int i = 0; i < count; i++) {
+                // Элементы, оставшиеся в очередях после ошибки, больше не учитываются в заполненности
+                occupancy.get(i).queued.addAndGet(-(int) queues.get(i).stream().filter(item -> item != END).count());
+                queues.get(i).clear();
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static void put(BlockingQueue<Object> queue, FetchMetrics.StageOccupancy occupancy, Object item,
+                            AtomicReference<Exception> failure) {
+        if (failure.get() != null) {
+            throw new PipelineAbortedException();
+        }
+        // Счетчик увеличивается до помещения в очередь, чтобы обработчик не уменьшил его раньше
+        occupancy.queued.incrementAndGet();
+        if (!queue.offer(item)) {
+            long blockedSince = System.nanoTime();
+            try {
+                while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null) {
+                        occupancy.queued.decrementAndGet();
+                        throw new PipelineAbortedException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                occupancy.queued.decrementAndGet();
+                Thread.currentThread().interrupt();
+                throw new PipelineAbortedException();
+            }
+            occupancy.blocked.record(System.nanoTime() - blockedSince, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Object take(BlockingQueue<Object> queue, FetchMetrics.StageOccupancy occupancy,
+                               AtomicReference<Exception> failure) throws InterruptedException {
+        while (true) {
+            if (failure.get() != null) {
+                return END;
+            }
+            Object item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (item == END) {
+                return END;
+            }
+            if (item != null) {
+                occupancy.queued.decrementAndGet();
+                return item;
+            }
+        }
+    }
+
+    private static void finish(BlockingQueue<Object> queue, int workers, AtomicReference<Exception> failure) {
+        for (int i = 0; i < workers && failure.get() == null; i++) {
+            try {
+                while (!queue.offer(END, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Потоки обработчиков конвейера: ожидание завершения всех обработчиков и их прерывание при ошибке.
+     * Прерываются зарегистрированные потоки, а не {@link Future}: задача, отмененная до старта, не выполнилась бы
+     * вовсе, и ее завершения пришлось бы ждать отдельно.
+     */
+    private final class Workers {
+
+        private final CountDownLatch finished;
+        private final AtomicReference<Exception> failure;
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        Workers(int count, AtomicReference<Exception> failure) {
+            this.finished = new CountDownLatch(count);
+            this.failure = failure;
+        }
+
+        void submit(Runnable body) {
+            executorService.submit(() -> {
+                threads.add(Thread.currentThread());
+                try {
+                    if (failure.get() == null) {
+                        body.run();
+                    }
+                } finally {
+                    threads.remove(Thread.currentThread());
+                    finished.countDown();
+                }
+            });
+        }
+
+        /**
+         * Ждет завершения всех обработчиков или первой ошибки.
+         */
+        void await() throws InterruptedException {
+            while (!finished.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Прерывает оставшиеся обработчики и ждет их завершения.
+         */
+        void stop() {
+            if (finished.getCount() == 0) {
+                return;
+            }
+            threads.forEach(Thread::interrupt);
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Первый этап: производит элементы.
+     */
+    @FunctionalInterface
+    interface Producer<T> {
+        void produce(Emitter<T> emit) throws Exception;
+    }
+
+    /**
+     * Обработчик этапа: по одному входному элементу передает дальше ноль, один или несколько результатов.
+     */
+    @FunctionalInterface
+    interface Worker<I, O> {
+        void process(I item, Emitter<O> emit) throws Exception;
+    }
+
+    /**
+     * Передача элемента следующему этапу; блокируется, пока его очередь заполнена.
+     */
+    @FunctionalInterface
+    interface Emitter<T> {
+        void emit(T item);
+    }
+
+    /**
+     * Построитель этапов; тип параметра — тип элементов на выходе последнего добавленного этапа.
+     */
+    static final class Builder<T> {
+
+        private final StagedPipeline pipeline;
+
+        private Builder(StagedPipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        /**
+         * Добавляет этап.
+         *
+         * @param name Имя этапа для метрик.
+         * @param settings Число обработчиков и размер входной очереди.
+         * @param worker Обработчик.
+         * @return Построитель со следующим типом элементов.
+         */
+        @SuppressWarnings("unchecked")
+        <R> Builder<R> then(String name, PipelineSettings.Stage settings, Worker<T, R> worker) {
+            pipeline.stages.add(new StageSpec(name, settings, (Worker<Object, Object>) (Worker<?, ?>) worker));
+            return (Builder<R>) this;
+        }
+
+        /**
+         * @return Конвейер; должен содержать хотя бы один этап после первого.
+         */
+        StagedPipeline build() {
+            if (pipeline.stages.isEmpty()) {
+                throw new IllegalStateException("Pipeline needs at least one stage after the producer");
+            }
+            return pipeline;
+        }
+    }
+
+    private record StageSpec(String name, PipelineSettings.Stage settings, Worker<Object, Object> worker) {
+        int parallelism() {
+            return Math.max(1, settings.getParallelism());
+        }
+    }
+
+    /**
+     * Конвейер остановлен из-за ошибки другого этапа.
+     */
+    private static final class PipelineAbortedException extends RuntimeException {
+        PipelineAbortedException() {
+            super("Pipeline aborted", null, false, false);
+        }
+    }
+}
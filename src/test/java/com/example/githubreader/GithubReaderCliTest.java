@@ -0,0 +1,60 @@
+package com.example.githubreader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GithubReaderCliTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    void shouldSaveDirectoryToOutputFile() throws Exception {
+        Path source = Files.createDirectories(tempDir.resolve("src"));
+        Files.writeString(source.resolve("Main.java"), "class Main {}");
+        Files.writeString(source.resolve("notes.md"), "# notes");
+        Path output = tempDir.resolve("out.txt");
+
+        int exitCode = run("--source=directory", "--path=" + source, "--include=*.java",
+                "--exclude=", "--output=" + output);
+
+        assertEquals(GithubReaderCli.EXIT_OK, exitCode, err.toString(StandardCharsets.UTF_8));
+        String content = Files.readString(output);
+        assertTrue(content.contains("File: Main.java\nclass Main {}"));
+        assertFalse(content.contains("notes.md"));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("Saved directory"));
+    }
+
+    @Test
+    void shouldReturnUsageErrorForInvalidArguments() {
+        assertEquals(GithubReaderCli.EXIT_USAGE, run("--source=svn", "--path=/tmp"));
+        assertEquals(GithubReaderCli.EXIT_USAGE, run("--source=directory"));
+        assertEquals(GithubReaderCli.EXIT_USAGE, run("--source=directory", "--path=/tmp", "--bogus"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Usage:"));
+    }
+
+    @Test
+    void shouldReturnFailureWhenSourceCannotBeRead() {
+        int exitCode = run("--source=directory", "--path=" + tempDir.resolve("missing"),
+                "--output=" + tempDir.resolve("out.txt"));
+
+        assertEquals(GithubReaderCli.EXIT_FAILED, exitCode);
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("not a directory"));
+    }
+
+    private int run(String... args) {
+        return GithubReaderCli.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.githubreader.config;
+
+import com.example.githubreader.service.FetchBudget;
+import com.example.githubreader.service.FetchMetrics;
+import com.example.githubreader.service.GithubTokenPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
+
+class GithubRateLimitInterceptorTest {
+
+    private static final String URL = "https://api.github.com/repos/user/repo/contents";
+
+    private SimpleMeterRegistry registry;
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        GithubConfig githubConfig = new GithubConfig();
+        githubConfig.setToken("first");
+        githubConfig.setTokens(List.of("second"));
+        registry = new SimpleMeterRegistry();
+        FetchMetrics fetchMetrics = new FetchMetrics(registry, new FetchBudget(new BatchConfig()));
+        restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new GithubRateLimitInterceptor(fetchMetrics,
+                new GithubTokenPool(githubConfig, new SimpleMeterRegistry())));
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    @Test
+    void shouldRetryWithAnotherTokenWhenRateLimitIsExhausted() {
+        server.expect(requestTo(URL))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer first"))
+                .andRespond(withStatus(HttpStatus.FORBIDDEN).headers(rateLimit(0)));
+        server.expect(requestTo(URL))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer second"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON).headers(rateLimit(4999)));
+        server.expect(requestTo(URL))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer second"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON).headers(rateLimit(4998)));
+
+        assertEquals("[]", restTemplate.getForObject(URL, String.class));
+        // Первый токен исчерпан до сброса лимита и больше не выдается
+        assertEquals("[]", restTemplate.getForObject(URL, String.class));
+        server.verify();
+    }
+
+    @Test
+    void shouldReturnRateLimitErrorWhenEveryTokenIsExhausted() {
+        server.expect(requestTo(URL))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer first"))
+                .andRespond(withStatus(HttpStatus.FORBIDDEN).headers(rateLimit(0)));
+        server.expect(requestTo(URL))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer second"))
+                .andRespond(withStatus(HttpStatus.FORBIDDEN).headers(rateLimit(0)));
+
+        assertThrows(HttpClientErrorException.Forbidden.class, () -> restTemplate.getForObject(URL, String.class));
+        server.verify();
+    }
+
+    @Test
+    void shouldPassRawDownloadsThroughWithoutTokenPool() {
+        String raw = "https://raw.githubusercontent.com/user/repo/sha/A.java";
+        server.expect(requestTo(raw))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "token caller"))
+                .andRespond(withStatus(HttpStatus.FORBIDDEN).headers(rateLimit(0)));
+        server.expect(requestTo(URL))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Bearer first"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON).headers(rateLimit(4999)));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.AUTHORIZATION, "token caller");
+        // Ответ raw-хоста не повторяется другим токеном и не паркует токен API
+        assertThrows(HttpClientErrorException.Forbidden.class, () -> restTemplate.exchange(
+                raw, HttpMethod.GET, new HttpEntity<>(headers), String.class));
+        assertEquals("[]", restTemplate.getForObject(URL, String.class));
+        server.verify();
+    }
+
+    @Test
+    void shouldCountBodyBytesWithoutContentLength() {
+        server.expect(requestTo(URL))
+                .andRespond(withSuccess("[{\"name\":\"A.java\"}]", MediaType.APPLICATION_JSON));
+
+        String body = restTemplate.getForObject(URL, String.class);
+
+        // Ответ без Content-Length (как chunked) учитывается по прочитанным байтам
+        assertEquals(body.length(), registry.get("fetch.bytes").tag("direction", "in").counter().count());
+        server.verify();
+    }
+
+    private static HttpHeaders rateLimit(long remaining) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-RateLimit-Limit", "5000");
+        headers.set("X-RateLimit-Remaining", String.valueOf(remaining));
+        headers.set("X-RateLimit-Reset", String.valueOf(Instant.now().plusSeconds(3600).getEpochSecond()));
+        return headers;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.githubreader.controller;
+
+import com.example.githubreader.exception.GlobalExceptionHandler;
+import com.example.githubreader.model.BatchJobReport;
+import com.example.githubreader.model.BatchReport;
+import com.example.githubreader.model.ContentSourceRequest;
+import com.example.githubreader.service.BatchJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchControllerTest {
+
+    private MockMvc mockMvc;
+
+    private BatchJobService batchJobService;
+
+    @BeforeEach
+    void setUp() {
+        batchJobService = mock(BatchJobService.class);
+        BatchController batchController = new BatchController(batchJobService);
+        mockMvc = MockMvcBuilders.standaloneSetup(batchController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should run batch and return per-source report for POST /save-all")
+    void shouldRunBatchAndReturnReport() throws Exception {
+        BatchJobReport job = new BatchJobReport("github", "https://github.com/user/repo", true, null,
+                "output/batch/0_user_repo.txt", 1000, 42, 2048, 42.0, 2048.0);
+        when(batchJobService.runBatch(anyList()))
+                .thenReturn(new BatchReport(List.of(job), 0, 1000, 42, 2048, 42.0, 2048.0));
+
+        mockMvc.perform(post("/api/batch/save-all")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"sourceType\":\"github\",\"path\":\"https://github.com/user/repo\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.jobs[0].path").value("https://github.com/user/repo"))
+                .andExpect(jsonPath("$.jobs[0].success").value(true))
+                .andExpect(jsonPath("$.requestsPerSecond").value(42.0));
+
+        verify(batchJobService).runBatch(argThat((List<ContentSourceRequest> sources) ->
+                sources.size() == 1 && "github".equals(sources.get(0).getSourceType())));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.githubreader.controller;
 
 import com.example.githubreader.service.DirectoryContentService;
+import com.example.githubreader.service.GitRepositoryContentService;
 import com.example.githubreader.service.GithubContentService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -32,6 +33,9 @@ class ContentFormControllerTest {
     @Mock
     private DirectoryContentService directoryContentService;
 
+    @Mock
+    private GitRepositoryContentService gitRepositoryContentService;
+
     @InjectMocks
     private ContentFormController contentFormController;
 
@@ -99,5 +103,19 @@ class ContentFormControllerTest {
         verify(directoryContentService, never()).saveAllContentsToFile(anyString());
     }
 
+    @Test
+    @DisplayName("Should process form submission for local git repository with ref")
+    void shouldProcessGitFormSubmission() throws Exception {
+        mockMvc.perform(post("/content-form")
+                        .param("sourceType", "git")
+                        .param("path", "/repos/app.git")
+                        .param("ref", "v1.0"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("message", "Content saved successfully to single file"));
+
+        verify(gitRepositoryContentService, times(1)).saveAllContentsToFile("/repos/app.git", "v1.0");
+        verify(githubContentService, never()).saveAllContentsToSingleFile(anyString());
+    }
+
     // Остальные тесты аналогичны первому подходу, но без редиректа
 }
\ No newline at end of file
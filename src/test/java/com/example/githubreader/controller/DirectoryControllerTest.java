@@ -10,6 +10,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.util.List;
+
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -35,13 +37,13 @@ class DirectoryControllerTest {
     @Test
     @DisplayName("Should save directory contents using default path")
     void shouldSaveDirectoryContentsWithDefaultPath() throws Exception {
-        doNothing().when(directoryContentService).saveAllContentsToFile(null);
+        doNothing().when(directoryContentService).saveAllContentsToFile(null, List.of(), null);
 
         mockMvc.perform(post("/api/directory/save-all-to-file"))
                 .andExpect(status().isOk())
                 .andExpect(content().string("All directory contents saved successfully to file"));
 
-        verify(directoryContentService, times(1)).saveAllContentsToFile(null);
+        verify(directoryContentService, times(1)).saveAllContentsToFile(null, List.of(), null);
     }
 
     @Test
@@ -49,20 +51,20 @@ class DirectoryControllerTest {
     void shouldSaveDirectoryContentsWithProvidedPath() throws Exception {
         String encodedPath = "E:%5Cprojects%5Cjava%5Cp3_tariff_calculator";
         String decodedPath = "E:\\projects\\java\\p3_tariff_calculator";
-        doNothing().when(directoryContentService).saveAllContentsToFile(decodedPath);
+        doNothing().when(directoryContentService).saveAllContentsToFile(decodedPath, List.of(), null);
 
         mockMvc.perform(post("/api/directory/save-all-to-file")
                         .param("directoryPath", encodedPath))
                 .andExpect(status().isOk())
                 .andExpect(content().string("All directory contents saved successfully to file"));
 
-        verify(directoryContentService, times(1)).saveAllContentsToFile(decodedPath);
+        verify(directoryContentService, times(1)).saveAllContentsToFile(decodedPath, List.of(), null);
     }
 
     @Test
     @DisplayName("Should return 500 when service throws exception")
     void shouldReturnErrorWhenServiceFails() throws Exception {
-        doThrow(new RuntimeException("Simulated failure")).when(directoryContentService).saveAllContentsToFile(null);
+        doThrow(new RuntimeException("Simulated failure")).when(directoryContentService).saveAllContentsToFile(null, List.of(), null);
 
         mockMvc.perform(post("/api/directory/save-all-to-file"))
                 .andExpect(status().isInternalServerError())
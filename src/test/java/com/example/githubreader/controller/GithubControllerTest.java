@@ -1,6 +1,8 @@
 package com.example.githubreader.controller;
 
 import com.example.githubreader.exception.GlobalExceptionHandler;
+import com.example.githubreader.model.RepositoryStats;
+import com.example.githubreader.model.TreePage;
 import com.example.githubreader.service.GithubContentService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,6 +12,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.util.EnumSet;
 import java.util.List;
 
 import static org.hamcrest.Matchers.containsString;
@@ -41,7 +44,7 @@ class GithubControllerTest {
         String repoUrl = "https://github.com/user/repo";
         String filePath = "src/main/java/Test.java";
         String content = "public class Test {}";
-        when(githubContentService.getFileContent(repoUrl, filePath)).thenReturn(content);
+        when(githubContentService.getFileContent(repoUrl, filePath, null)).thenReturn(content);
 
         mockMvc.perform(get("/api/github/content")
                         .param("repoUrl", repoUrl)
@@ -55,9 +58,9 @@ class GithubControllerTest {
     void shouldReturnRepoContents() throws Exception {
         String repoUrl = "https://github.com/user/repo";
         List<String> contents = List.of(
-                "File: <a href=\"https://github.com/user/repo/blob/main/src/main/java/Test.java\">src/main/java/Test.java</a> \npublic class Test {}\n"
+                "File: <a href=\"https://github.com/user/repo/blob/0123456789abcdef0123456789abcdef01234567/src/main/java/Test.java\">src/main/java/Test.java</a> \npublic class Test {}\n"
         );
-        when(githubContentService.getRepositoryContents(repoUrl)).thenReturn(contents);
+        when(githubContentService.getRepositoryContents(repoUrl, null, List.of())).thenReturn(contents);
 
         mockMvc.perform(get("/api/github/repo-contents")
                         .param("repoUrl", repoUrl))
@@ -69,7 +72,7 @@ class GithubControllerTest {
     @DisplayName("Should save contents to files for POST /save-contents")
     void shouldSaveRepoContents() throws Exception {
         String repoUrl = "https://github.com/user/repo";
-        doNothing().when(githubContentService).saveRepositoryContents(repoUrl);
+        doNothing().when(githubContentService).saveRepositoryContents(repoUrl, null, List.of());
 
         mockMvc.perform(post("/api/github/save-contents")
                         .param("repoUrl", repoUrl))
@@ -81,7 +84,7 @@ class GithubControllerTest {
     @DisplayName("Should save all contents to single file for POST /save-all-to-single-file")
     void shouldSaveAllToSingleFile() throws Exception {
         String repoUrl = "https://github.com/user/repo";
-        doNothing().when(githubContentService).saveAllContentsToSingleFile(repoUrl);
+        doNothing().when(githubContentService).saveAllContentsToSingleFile(repoUrl, null, List.of());
 
         mockMvc.perform(post("/api/github/save-all-to-single-file")
                         .param("repoUrl", repoUrl))
@@ -89,15 +92,108 @@ class GithubControllerTest {
                 .andExpect(content().string("All contents saved successfully to single file"));
     }
 
+    @Test
+    @DisplayName("Should pass ref to service for POST /save-all-to-single-file")
+    void shouldPassRefWhenSavingAllToSingleFile() throws Exception {
+        String repoUrl = "https://github.com/user/repo";
+
+        mockMvc.perform(post("/api/github/save-all-to-single-file")
+                        .param("repoUrl", repoUrl)
+                        .param("ref", "v1.2.0"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("All contents saved successfully to single file"));
+
+        verify(githubContentService).saveAllContentsToSingleFile(repoUrl, "v1.2.0", List.of());
+    }
+
     @Test
     @DisplayName("Should return 500 when saveAllToSingleFile throws exception")
     void shouldReturnErrorWhenSaveAllToSingleFileFails() throws Exception {
         String repoUrl = "https://github.com/user/repo";
-        doThrow(new RuntimeException("Simulated failure")).when(githubContentService).saveAllContentsToSingleFile(repoUrl);
+        doThrow(new RuntimeException("Simulated failure")).when(githubContentService).saveAllContentsToSingleFile(repoUrl, null, List.of());
 
         mockMvc.perform(post("/api/github/save-all-to-single-file")
                         .param("repoUrl", repoUrl))
                 .andExpect(status().isInternalServerError())
                 .andExpect(content().string(containsString("Internal Server Error: Simulated failure")));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should export several outputs in one pass for POST /export")
+    void shouldExportSeveralOutputs() throws Exception {
+        String repoUrl = "https://github.com/user/repo";
+        when(githubContentService.exportRepositoryContents(repoUrl, null,
+                EnumSet.of(GithubContentService.Output.MIRROR, GithubContentService.Output.LISTING), List.of()))
+                .thenReturn(List.of("File: <a href=\"https://github.com/user/repo/blob/sha/App.java\">App.java</a> \nclass App {}\n"));
+
+        mockMvc.perform(post("/api/github/export")
+                        .param("repoUrl", repoUrl)
+                        .param("outputs", "MIRROR,LISTING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value(containsString("App.java")));
+    }
+
+    @Test
+    @DisplayName("Should pass path prefixes to service for POST /save-all-to-single-file")
+    void shouldPassPathPrefixesWhenSavingAllToSingleFile() throws Exception {
+        String repoUrl = "https://github.com/user/repo";
+
+        mockMvc.perform(post("/api/github/save-all-to-single-file")
+                        .param("repoUrl", repoUrl)
+                        .param("paths", "src/main", "modules/api"))
+                .andExpect(status().isOk());
+
+        verify(githubContentService).saveAllContentsToSingleFile(repoUrl, null, List.of("src/main", "modules/api"));
+    }
+
+    @Test
+    @DisplayName("Should return repository statistics for GET /stats")
+    void shouldReturnRepoStats() throws Exception {
+        String repoUrl = "https://github.com/user/repo";
+        RepositoryStats stats = new RepositoryStats(repoUrl, "0123456789abcdef0123456789abcdef01234567",
+                List.of("src"), "tree", 2, 300, 1,
+                List.of(new RepositoryStats.ExtensionStats("java", 2, 300)),
+                List.of(new RepositoryStats.FileSize("src/Big.java", 200)), List.of());
+        when(githubContentService.getRepositoryStats(repoUrl, null, List.of("src"), 1)).thenReturn(stats);
+
+        mockMvc.perform(get("/api/github/stats")
+                        .param("repoUrl", repoUrl)
+                        .param("paths", "src")
+                        .param("top", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fileCount").value(2))
+                .andExpect(jsonPath("$.extensions[0].extension").value("java"))
+                .andExpect(jsonPath("$.largestFiles[0].path").value("src/Big.java"));
+    }
+
+    @Test
+    @DisplayName("Should return delta between refs for GET /delta")
+    void shouldReturnDelta() throws Exception {
+        String repoUrl = "https://github.com/user/repo";
+        when(githubContentService.getDeltaContents(repoUrl, "v1.0.0", "main"))
+                .thenReturn("File: src/App.java (modified) \nclass App {}\n");
+
+        mockMvc.perform(get("/api/github/delta")
+                        .param("repoUrl", repoUrl)
+                        .param("base", "v1.0.0")
+                        .param("head", "main"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("src/App.java (modified)")));
+    }
+
+    @Test
+    @DisplayName("Should return one tree level for GET /browse")
+    void shouldBrowseTree() throws Exception {
+        String repoUrl = "https://github.com/user/repo";
+        when(githubContentService.browseTree(repoUrl, null, "src", null, 100)).thenReturn(new TreePage(repoUrl,
+                "0123456789abcdef0123456789abcdef01234567", "src",
+                List.of(new TreePage.TreeEntry("main", "src/main", "dir", 0, "s3")), "next"));
+
+        mockMvc.perform(get("/api/github/browse")
+                        .param("repoUrl", repoUrl)
+                        .param("path", "src"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries[0].type").value("dir"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.githubreader.controller;
+
+import com.example.githubreader.exception.GlobalExceptionHandler;
+import com.example.githubreader.service.OutputFileService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutputControllerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MockMvc mockMvc;
+
+    private OutputFileService outputFileService;
+
+    private OutputFileService.OutputFile outputFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        outputFileService = mock(OutputFileService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new OutputController(outputFileService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        Path file = Files.writeString(tempDir.resolve("all_contents.txt"), "File: App.java\nclass App {}\n");
+        outputFile = new OutputFileService.OutputFile(new FileSystemResource(file), "all_contents.txt",
+                MediaType.parseMediaType("text/plain;charset=UTF-8"), null, "\"1c-abc\"", 1_700_000_000_000L, true);
+    }
+
+    @Test
+    @DisplayName("Should return whole file with validators for GET /api/outputs")
+    void shouldDownloadWholeFile() throws Exception {
+        when(outputFileService.find("all_contents.txt", null)).thenReturn(Optional.of(outputFile));
+
+        mockMvc.perform(get("/api/outputs").param("path", "all_contents.txt"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1c-abc\""))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"all_contents.txt\""))
+                .andExpect(content().string("File: App.java\nclass App {}\n"));
+    }
+
+    @Test
+    @DisplayName("Should return requested byte range with 206")
+    void shouldReturnRange() throws Exception {
+        when(outputFileService.find("all_contents.txt", null)).thenReturn(Optional.of(outputFile));
+
+        mockMvc.perform(get("/api/outputs").param("path", "all_contents.txt").header("Range", "bytes=6-12"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 6-12/28"))
+                .andExpect(content().string("App.jav"));
+    }
+
+    @Test
+    @DisplayName("Should return 304 when ETag matches and 404 for unknown files")
+    void shouldHonourIfNoneMatchAndReturnNotFound() throws Exception {
+        when(outputFileService.find(eq("all_contents.txt"), any())).thenReturn(Optional.of(outputFile));
+
+        mockMvc.perform(get("/api/outputs").param("path", "all_contents.txt").header("If-None-Match", "\"1c-abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/outputs").param("path", "../pom.xml"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.githubreader.controller;
+
+import com.example.githubreader.exception.GlobalExceptionHandler;
+import com.example.githubreader.model.JobProfileReport;
+import com.example.githubreader.service.JobProfiler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProfileControllerTest {
+
+    private MockMvc mockMvc;
+
+    private JobProfiler jobProfiler;
+
+    private final JobProfileReport report = new JobProfileReport("github-single-file-1-1", "github", "single-file",
+            "https://github.com/user/repo", "output/all_contents.txt", "2026-01-01T00:00:00Z", 1500.0, "ok", null,
+            List.of(new JobProfileReport.PhaseTiming("fetch", 0.5, 1400.0)),
+            List.of(new JobProfileReport.FileTiming("src/Main.java", 42, 1.0, 120.0, 0.0, 121.0, 0, "ok")),
+            List.of(new JobProfileReport.FileTiming("src/Main.java", 42, 1.0, 120.0, 0.0, 121.0, 0, "ok")));
+
+    @BeforeEach
+    void setUp() {
+        jobProfiler = mock(JobProfiler.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ProfileController(jobProfiler))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should list recent job ids for GET /api/profiles")
+    void shouldListJobIds() throws Exception {
+        when(jobProfiler.reports()).thenReturn(List.of(report));
+
+        mockMvc.perform(get("/api/profiles"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value("github-single-file-1-1"));
+    }
+
+    @Test
+    @DisplayName("Should return report or 404 for GET /api/profiles/{jobId}")
+    void shouldReturnReport() throws Exception {
+        when(jobProfiler.report("github-single-file-1-1")).thenReturn(Optional.of(report));
+        when(jobProfiler.report("unknown")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/profiles/github-single-file-1-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.phases[0].name").value("fetch"))
+                .andExpect(jsonPath("$.slowest[0].path").value("src/Main.java"))
+                .andExpect(jsonPath("$.slowest[0].networkMs").value(120.0));
+        mockMvc.perform(get("/api/profiles/unknown"))
+                .andExpect(status().isNotFound());
+    }
+}
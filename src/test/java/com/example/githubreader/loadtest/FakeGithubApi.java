@@ -0,0 +1,343 @@
+package com.example.githubreader.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Встроенная заглушка GitHub REST API для нагрузочных тестов без обращения к github.com.
+ * <p>
+ * Отдает синтетические репозитории (любые {@code owner/repo}, создаются при первом обращении) через:
+ * <ul>
+ *     <li>{@code GET /repos/{o}/{r}/commits/{ref}} — SHA коммита ({@code application/vnd.github.sha});</li>
+ *     <li>{@code GET /repos/{o}/{r}/contents/{path}?ref=} — листинг директории или содержимое файла;</li>
+ *     <li>{@code GET /repos/{o}/{r}/git/trees/{sha}?recursive=1} — полное дерево;</li>
+ *     <li>{@code GET /raw/{o}/{r}/{sha}/{path}} — содержимое файла по {@code download_url}.</li>
+ * </ul>
+ * Каждый ответ задерживается на {@code latency ± jitter}, с вероятностью {@code errorRate} возвращает 500
+ * и содержит заголовки {@code X-RateLimit-*}; после исчерпания лимита до конца окна возвращается 403.
+ */
+public class FakeGithubApi implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, SyntheticRepository> repositories = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rawFilesServed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final Object rateLimitLock = new Object();
+    private long windowResetMillis;
+    private int windowUsed;
+
+    /**
+     * Настройки заглушки: форма репозиториев и поведение сети.
+     */
+    @Data
+    public static class Options {
+        /** Глубина дерева директорий. */
+        private int depth = 2;
+        /** Число поддиректорий в каждой директории. */
+        private int dirsPerDir = 3;
+        /** Число файлов в каждой директории. */
+        private int filesPerDir = 10;
+        /** Размер каждого файла (байт). */
+        private int fileBytes = 2048;
+        /** Базовая задержка ответа. */
+        private Duration latency = Duration.ofMillis(20);
+        /** Случайное отклонение задержки (равномерно в пределах ± jitter). */
+        private Duration jitter = Duration.ofMillis(10);
+        /** Доля ответов с ошибкой 500 (0..1), кроме разрешения ref. */
+        private double errorRate = 0;
+        /** Лимит запросов на окно (как X-RateLimit-Limit). */
+        private int rateLimit = 5000;
+        /** Длина окна лимита. */
+        private Duration rateLimitWindow = Duration.ofHours(1);
+    }
+
+    public FakeGithubApi(Options options) throws IOException {
+        this.options = options;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.windowResetMillis = System.currentTimeMillis() + options.getRateLimitWindow().toMillis();
+        this.server.start();
+    }
+
+    /**
+     * @return Базовый URL API для {@code github.apiUrl}.
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /** @return Общее число обработанных запросов. */
+    public long requests() {
+        return requests.get();
+    }
+
+    /** @return Число успешно отданных файлов (по download_url). */
+    public long rawFilesServed() {
+        return rawFilesServed.get();
+    }
+
+    /** @return Число внедренных ошибок 500. */
+    public long errors() {
+        return errors.get();
+    }
+
+    /** @return Число ответов 403 из-за исчерпания лимита. */
+    public long throttled() {
+        return throttled.get();
+    }
+
+    /**
+     * @param owner Владелец.
+     * @param repo Репозиторий.
+     * @return Число файлов в синтетическом репозитории.
+     */
+    public int fileCount(String owner, String repo) {
+        return repository(owner, repo).files.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            delay();
+            URI uri = exchange.getRequestURI();
+            String[] parts = uri.getRawPath().substring(1).split("/", 5);
+
+            RateLimitState rateLimit = consumeRateLimit();
+            exchange.getResponseHeaders().set("X-RateLimit-Limit", String.valueOf(options.getRateLimit()));
+            exchange.getResponseHeaders().set("X-RateLimit-Remaining", String.valueOf(rateLimit.remaining()));
+            exchange.getResponseHeaders().set("X-RateLimit-Used", String.valueOf(rateLimit.used()));
+            exchange.getResponseHeaders().set("X-RateLimit-Reset", String.valueOf(rateLimit.resetEpochSeconds()));
+            exchange.getResponseHeaders().set("X-RateLimit-Resource", "core");
+            if (rateLimit.exceeded()) {
+                throttled.incrementAndGet();
+                send(exchange, 403, "application/json", "{\"message\":\"API rate limit exceeded\"}");
+                return;
+            }
+
+            if (parts.length >= 4 && "repos".equals(parts[0]) && "commits".equals(parts[3])) {
+                SyntheticRepository repository = repository(parts[1], parts[2]);
+                send(exchange, 200, "application/vnd.github.sha", repository.commitSha);
+                return;
+            }
+            if (injectError()) {
+                errors.incrementAndGet();
+                send(exchange, 500, "application/json", "{\"message\":\"Injected failure\"}");
+                return;
+            }
+            if (parts.length >= 4 && "repos".equals(parts[0]) && "contents".equals(parts[3])) {
+                handleContents(exchange, repository(parts[1], parts[2]), parts.length > 4 ? decode(parts[4]) : "");
+            } else if (parts.length == 5 && "repos".equals(parts[0]) && "git".equals(parts[3])
+                    && parts[4].startsWith("trees/")) {
+                handleTree(exchange, repository(parts[1], parts[2]));
+            } else if (parts.length == 5 && "raw".equals(parts[0])) {
+                String path = decode(parts[4].substring(parts[4].indexOf('/') + 1));
+                String content = repository(parts[1], parts[2]).files.get(path);
+                if (content == null) {
+                    send(exchange, 404, "application/json", "{\"message\":\"Not Found\"}");
+                } else {
+                    rawFilesServed.incrementAndGet();
+                    send(exchange, 200, "text/plain", content);
+                }
+            } else {
+                send(exchange, 404, "application/json", "{\"message\":\"Not Found\"}");
+            }
+        }
+    }
+
+    private void handleContents(HttpExchange exchange, SyntheticRepository repository, String path) throws IOException {
+        String content = repository.files.get(path);
+        if (content != null) {
+            rawFilesServed.incrementAndGet();
+            send(exchange, 200, "text/plain", content);
+            return;
+        }
+        List<Map<String, Object>> entries = repository.directories.get(path);
+        if (entries == null) {
+            send(exchange, 404, "application/json", "{\"message\":\"Not Found\"}");
+            return;
+        }
+        send(exchange, 200, "application/json", JSON.writeValueAsString(entries));
+    }
+
+    private void handleTree(HttpExchange exchange, SyntheticRepository repository) throws IOException {
+        List<Map<String, Object>> tree = new ArrayList<>();
+        repository.directories.keySet().stream().filter(dir -> !dir.isEmpty()).forEach(dir ->
+                tree.add(Map.of("path", dir, "mode", "040000", "type", "tree", "sha", sha1("tree " + dir))));
+        repository.files.forEach((path, content) ->
+                tree.add(Map.of("path", path, "mode", "100644", "type", "blob", "sha", blobSha(content),
+                        "size", content.length())));
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("sha", repository.commitSha);
+        body.put("tree", tree);
+        body.put("truncated", false);
+        send(exchange, 200, "application/json", JSON.writeValueAsString(body));
+    }
+
+    private SyntheticRepository repository(String owner, String repo) {
+        return repositories.computeIfAbsent(owner + "/" + repo, key -> new SyntheticRepository(owner, repo));
+    }
+
+    private RateLimitState consumeRateLimit() {
+        synchronized (rateLimitLock) {
+            long now = System.currentTimeMillis();
+            if (now >= windowResetMillis) {
+                windowResetMillis = now + options.getRateLimitWindow().toMillis();
+                windowUsed = 0;
+            }
+            boolean exceeded = windowUsed >= options.getRateLimit();
+            if (!exceeded) {
+                windowUsed++;
+            }
+            return new RateLimitState(options.getRateLimit() - windowUsed, windowUsed,
+                    windowResetMillis / 1000, exceeded);
+        }
+    }
+
+    private void delay() {
+        long latency = options.getLatency().toMillis();
+        long jitter = options.getJitter().toMillis();
+        long millis = latency + (jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter + 1) : 0);
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean injectError() {
+        return options.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < options.getErrorRate();
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String blobSha(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return sha1("blob " + bytes.length + "\0" + content);
+    }
+
+    private static String sha1(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record RateLimitState(int remaining, int used, long resetEpochSeconds, boolean exceeded) {
+    }
+
+    /**
+     * Синтетический репозиторий: листинги директорий в формате Contents API и содержимое файлов.
+     * Содержимое включает имя репозитория, чтобы SHA файлов разных репозиториев не совпадали.
+     */
+    private final class SyntheticRepository {
+
+        private static final String[] EXTENSIONS = {".java", ".java", ".xml", ".yml", ".md", ".txt"};
+
+        private final String commitSha;
+        private final Map<String, List<Map<String, Object>>> directories = new TreeMap<>();
+        private final Map<String, String> files = new TreeMap<>();
+        private final String apiBase;
+        private final String rawBase;
+
+        private SyntheticRepository(String owner, String repo) {
+            this.commitSha = sha1("commit " + owner + "/" + repo);
+            this.apiBase = baseUrl() + "/repos/" + owner + "/" + repo + "/contents/";
+            this.rawBase = baseUrl() + "/raw/" + owner + "/" + repo + "/" + commitSha + "/";
+            build(owner + "/" + repo, "", options.getDepth());
+        }
+
+        private void build(String repoName, String dir, int depth) {
+            List<Map<String, Object>> entries = new ArrayList<>();
+            directories.put(dir, entries);
+            String prefix = dir.isEmpty() ? "" : dir + "/";
+            for (int i = 0; i < options.getFilesPerDir(); i++) {
+                String name = "File" + i + EXTENSIONS[i % EXTENSIONS.length];
+                String path = prefix + name;
+                String content = content(repoName, path);
+                files.put(path, content);
+                entries.add(entry(name, path, "file", blobSha(content), content.length()));
+            }
+            if (depth > 0) {
+                for (int i = 0; i < options.getDirsPerDir(); i++) {
+                    String name = "dir" + i;
+                    String path = prefix + name;
+                    entries.add(entry(name, path, "dir", sha1("tree " + path), 0));
+                    build(repoName, path, depth - 1);
+                }
+            }
+        }
+
+        private Map<String, Object> entry(String name, String path, String type, String sha, int size) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", name);
+            entry.put("path", path);
+            entry.put("sha", sha);
+            entry.put("size", size);
+            entry.put("type", type);
+            entry.put("url", apiBase + path + "?ref=" + commitSha);
+            entry.put("download_url", "file".equals(type) ? rawBase + path : null);
+            return entry;
+        }
+
+        private String content(String repoName, String path) {
+            StringBuilder content = new StringBuilder(options.getFileBytes());
+            content.append("// ").append(repoName).append('/').append(path).append('\n');
+            while (content.length() < options.getFileBytes()) {
+                content.append("    private final String value = \"synthetic\";\n");
+            }
+            content.setLength(Math.max(options.getFileBytes(), 1));
+            return content.toString();
+        }
+    }
+}
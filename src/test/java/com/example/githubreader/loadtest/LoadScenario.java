@@ -0,0 +1,220 @@
+package com.example.githubreader.loadtest;
+
+import com.example.githubreader.config.AdmissionConfig;
+import com.example.githubreader.config.BatchConfig;
+import com.example.githubreader.config.GithubConfig;
+import com.example.githubreader.config.GithubRateLimitInterceptor;
+import com.example.githubreader.config.ProfilingConfig;
+import com.example.githubreader.controller.GithubController;
+import com.example.githubreader.service.AdmissionController;
+import com.example.githubreader.service.FetchBudget;
+import com.example.githubreader.service.FetchMetrics;
+import com.example.githubreader.service.GithubCache;
+import com.example.githubreader.service.GithubContentService;
+import com.example.githubreader.service.GithubTokenPool;
+import com.example.githubreader.service.JobProfiler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.Data;
+import lombok.Value;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.RestTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Нагрузочный сценарий: {@code jobs} задач (по {@code concurrency} одновременно) вызывают {@link GithubController}
+ * против {@link FakeGithubApi}; в отчете — файлы в секунду, p50/p99 длительности задачи и пиковый объем heap.
+ * <p>
+ * Запуск без сети: {@code mvn -Ploadtest verify -DskipTests -Dloadtest.args="jobs=32 concurrency=8 latencyMs=50"}.
+ */
+public final class LoadScenario {
+
+    /**
+     * Параметры сценария.
+     */
+    @Data
+    public static class Settings {
+        /** Число задач. */
+        private int jobs = 16;
+        /** Число одновременно выполняемых задач. */
+        private int concurrency = 4;
+        /** Операция контроллера: single-file или listing. */
+        private String operation = "single-file";
+        /** Каждая задача обрабатывает свой репозиторий (иначе все — один, и работают кэши). */
+        private boolean distinctRepos = true;
+        /** Общий лимит одновременных запросов сервиса (batch.maxConcurrency). */
+        private int maxConcurrency = 32;
+        /** Настройки заглушки API. */
+        private FakeGithubApi.Options api = new FakeGithubApi.Options();
+    }
+
+    /**
+     * Результат сценария.
+     */
+    @Value
+    public static class Report {
+        int jobs;
+        int failedJobs;
+        long files;
+        long requests;
+        long injectedErrors;
+        long throttled;
+        long parkedTokens;
+        long durationMs;
+        double filesPerSecond;
+        long p50JobMs;
+        long p99JobMs;
+        long peakHeapBytes;
+
+        @Override
+        public String toString() {
+            return String.format("jobs=%d failed=%d files=%d requests=%d errors=%d throttled=%d parked=%d duration=%dms "
+                            + "files/sec=%.1f p50=%dms p99=%dms peakHeap=%.1fMB",
+                    jobs, failedJobs, files, requests, injectedErrors, throttled, parkedTokens, durationMs,
+                    filesPerSecond, p50JobMs, p99JobMs, peakHeapBytes / 1024.0 / 1024.0);
+        }
+    }
+
+    private LoadScenario() {
+    }
+
+    /**
+     * Запускает сценарий.
+     *
+     * @param settings Параметры сценария.
+     * @return Отчет.
+     */
+    public static Report run(Settings settings) throws Exception {
+        Path output = Files.createTempFile("load-scenario", ".txt");
+        ExecutorService jobsExecutor = Executors.newFixedThreadPool(settings.getConcurrency());
+        try (FakeGithubApi api = new FakeGithubApi(settings.getApi())) {
+            GithubConfig githubConfig = new GithubConfig();
+            githubConfig.setApiUrl(api.baseUrl());
+            githubConfig.setToken("load-test");
+            githubConfig.setIncludePatterns(List.of("**/*.java", "*.java", "**/*.xml", "*.xml", "**/*.yml", "*.yml"));
+            githubConfig.setExcludePatterns(List.of("target/**"));
+            githubConfig.setSingleFilePath(output.toString());
+            BatchConfig batchConfig = new BatchConfig();
+            batchConfig.setMaxConcurrency(settings.getMaxConcurrency());
+
+            FetchBudget fetchBudget = new FetchBudget(batchConfig);
+            FetchMetrics fetchMetrics = new FetchMetrics(new SimpleMeterRegistry(), fetchBudget);
+            SimpleMeterRegistry tokenRegistry = new SimpleMeterRegistry();
+            RestTemplate restTemplate = new RestTemplate();
+            restTemplate.getInterceptors().add(new GithubRateLimitInterceptor(fetchMetrics,
+                    new GithubTokenPool(githubConfig, tokenRegistry)));
+            GithubContentService service = new GithubContentService(restTemplate, githubConfig, fetchBudget,
+                    new GithubCache(githubConfig), fetchMetrics, new JobProfiler(new ProfilingConfig()),
+                    new AdmissionController(new AdmissionConfig(), new SimpleMeterRegistry()));
+            MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new GithubController(service)).build();
+
+            List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP)
+                    .toList();
+            System.gc();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+            AtomicInteger failed = new AtomicInteger();
+            List<Long> durations = Collections.synchronizedList(new ArrayList<>());
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < settings.getJobs(); i++) {
+                String repoUrl = "https://github.com/load/" + (settings.isDistinctRepos() ? "repo" + i : "repo");
+                futures.add(jobsExecutor.submit(() -> {
+                    long jobStart = System.nanoTime();
+                    try {
+                        int status = ("listing".equals(settings.getOperation())
+                                ? mockMvc.perform(get("/api/github/repo-contents").param("repoUrl", repoUrl))
+                                : mockMvc.perform(post("/api/github/save-all-to-single-file").param("repoUrl", repoUrl)))
+                                .andReturn().getResponse().getStatus();
+                        if (status != 200) {
+                            failed.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    }
+                    durations.add(Duration.ofNanos(System.nanoTime() - jobStart).toMillis());
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long durationMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+            long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+            long parkedTokens = (long) tokenRegistry.find("github.token.parked").gauges().stream()
+                    .mapToDouble(Gauge::value).sum();
+            service.shutdown();
+
+            List<Long> sorted = new ArrayList<>(durations);
+            Collections.sort(sorted);
+            long files = api.rawFilesServed();
+            return new Report(settings.getJobs(), failed.get(), files, api.requests(), api.errors(), api.throttled(),
+                    parkedTokens, durationMs, durationMs > 0 ? files * 1000.0 / durationMs : 0,
+                    percentile(sorted, 50), percentile(sorted, 99), peakHeap);
+        } finally {
+            jobsExecutor.shutdownNow();
+            Files.deleteIfExists(output);
+        }
+    }
+
+    /**
+     * Запуск из командной строки; аргументы в виде {@code key=value}: jobs, concurrency, operation, distinctRepos,
+     * maxConcurrency, depth, dirsPerDir, filesPerDir, fileBytes, latencyMs, jitterMs, errorRate, rateLimit,
+     * rateLimitWindowSec.
+     */
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        FakeGithubApi.Options api = settings.getApi();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            String value = keyValue[1];
+            switch (keyValue[0]) {
+                case "jobs" -> settings.setJobs(Integer.parseInt(value));
+                case "concurrency" -> settings.setConcurrency(Integer.parseInt(value));
+                case "operation" -> settings.setOperation(value);
+                case "distinctRepos" -> settings.setDistinctRepos(Boolean.parseBoolean(value));
+                case "maxConcurrency" -> settings.setMaxConcurrency(Integer.parseInt(value));
+                case "depth" -> api.setDepth(Integer.parseInt(value));
+                case "dirsPerDir" -> api.setDirsPerDir(Integer.parseInt(value));
+                case "filesPerDir" -> api.setFilesPerDir(Integer.parseInt(value));
+                case "fileBytes" -> api.setFileBytes(Integer.parseInt(value));
+                case "latencyMs" -> api.setLatency(Duration.ofMillis(Long.parseLong(value)));
+                case "jitterMs" -> api.setJitter(Duration.ofMillis(Long.parseLong(value)));
+                case "errorRate" -> api.setErrorRate(Double.parseDouble(value));
+                case "rateLimit" -> api.setRateLimit(Integer.parseInt(value));
+                case "rateLimitWindowSec" -> api.setRateLimitWindow(Duration.ofSeconds(Long.parseLong(value)));
+                default -> throw new IllegalArgumentException("Unknown setting: " + keyValue[0]);
+            }
+        }
+        System.out.println(settings);
+        System.out.println(run(settings));
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
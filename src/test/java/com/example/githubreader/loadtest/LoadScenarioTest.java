@@ -0,0 +1,51 @@
+package com.example.githubreader.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadScenarioTest {
+
+    @Test
+    void shouldFetchEveryMatchingFileOfEveryJob() throws Exception {
+        LoadScenario.Settings settings = smallScenario();
+
+        LoadScenario.Report report = LoadScenario.run(settings);
+
+        // 3 директории по 6 файлов, из них 4 подходят под шаблоны (.java, .java, .xml, .yml)
+        assertEquals(0, report.getFailedJobs());
+        assertEquals(4 * 3 * 4, report.getFiles());
+        assertTrue(report.getFilesPerSecond() > 0);
+        assertTrue(report.getP99JobMs() >= report.getP50JobMs());
+        assertTrue(report.getPeakHeapBytes() > 0);
+    }
+
+    @Test
+    void shouldFailJobsOnceRateLimitIsExhausted() throws Exception {
+        LoadScenario.Settings settings = smallScenario();
+        settings.getApi().setRateLimit(10);
+
+        LoadScenario.Report report = LoadScenario.run(settings);
+
+        // Исчерпанный токен паркуется до сброса лимита: 403 получают только запросы, отправленные до последнего ответа
+        assertTrue(report.getFailedJobs() > 0);
+        assertTrue(report.getThrottled() > 0, "Throttled requests: " + report.getThrottled());
+        assertTrue(report.getThrottled() <= settings.getMaxConcurrency(), "Throttled requests: " + report.getThrottled());
+        assertEquals(1, report.getParkedTokens());
+    }
+
+    private static LoadScenario.Settings smallScenario() {
+        LoadScenario.Settings settings = new LoadScenario.Settings();
+        settings.setJobs(4);
+        settings.setConcurrency(2);
+        settings.getApi().setDepth(1);
+        settings.getApi().setDirsPerDir(2);
+        settings.getApi().setFilesPerDir(6);
+        settings.getApi().setFileBytes(256);
+        settings.getApi().setLatency(Duration.ofMillis(2));
+        settings.getApi().setJitter(Duration.ofMillis(1));
+        return settings;
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.githubreader.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.Data;
+import lombok.Value;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Повторяемый замер холодного старта веб-сервера: для каждого варианта запуска (без оптимизаций, с архивом CDS,
+ * с AOT и CDS) приложение {@code runs} раз запускается отдельным процессом против {@link FakeGithubApi}.
+ * Замеряются время от запуска процесса до готовности ({@code /actuator/health} отвечает 200) и задержка первого
+ * запроса к {@code /api/github/repo-contents}.
+ * <p>
+ * Запуск: {@code mvn -Paot-cds,startup verify -DskipTests}; результат — {@code target/startup-result.json}.
+ */
+public final class StartupBenchmark {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(120);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    /**
+     * Параметры замера.
+     */
+    @Data
+    public static class Settings {
+        /** Распакованный jar приложения (java -Djarmode=tools -jar app.jar extract). */
+        private Path jar = Paths.get("target/server/github-reader-0.0.1-SNAPSHOT.jar");
+        /** Архив CDS, полученный обучающим запуском. */
+        private Path archive = Paths.get("target/server/app.jsa");
+        /** Варианты запуска: baseline, cds, aot, aot-cds. */
+        private List<String> variants = List.of("baseline", "cds", "aot-cds");
+        /** Число запусков каждого варианта. */
+        private int runs = 5;
+        /** Файл для JSON-результата. */
+        private Path resultFile = Paths.get("target/startup-result.json");
+    }
+
+    /**
+     * Результат одного варианта.
+     */
+    @Value
+    public static class VariantReport {
+        String variant;
+        List<String> jvmArgs;
+        int runs;
+        long minReadyMs;
+        long medianReadyMs;
+        long maxReadyMs;
+        long medianFirstRequestMs;
+        long maxFirstRequestMs;
+
+        @Override
+        public String toString() {
+            return String.format("%-9s ready: min=%dms median=%dms max=%dms  first request: median=%dms max=%dms",
+                    variant, minReadyMs, medianReadyMs, maxReadyMs, medianFirstRequestMs, maxFirstRequestMs);
+        }
+    }
+
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Выполняет замер всех вариантов.
+     *
+     * @param settings Параметры замера.
+     * @return Результаты по вариантам.
+     */
+    public static List<VariantReport> run(Settings settings) throws Exception {
+        if (!Files.isRegularFile(settings.getJar())) {
+            throw new IllegalStateException("Extracted jar not found: " + settings.getJar()
+                    + " (build it with mvn -Paot-cds package -DskipTests)");
+        }
+        FakeGithubApi.Options apiOptions = new FakeGithubApi.Options();
+        apiOptions.setLatency(Duration.ZERO);
+        apiOptions.setJitter(Duration.ZERO);
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+        List<VariantReport> reports = new ArrayList<>();
+        try (FakeGithubApi api = new FakeGithubApi(apiOptions)) {
+            for (String variant : settings.getVariants()) {
+                List<String> jvmArgs = jvmArgs(variant, settings);
+                List<Long> ready = new ArrayList<>();
+                List<Long> firstRequest = new ArrayList<>();
+                for (int i = 0; i < settings.getRuns(); i++) {
+                    long[] timings = measure(settings.getJar(), jvmArgs, api, client);
+                    ready.add(timings[0]);
+                    firstRequest.add(timings[1]);
+                }
+                Collections.sort(ready);
+                Collections.sort(firstRequest);
+                VariantReport report = new VariantReport(variant, jvmArgs, settings.getRuns(),
+                        ready.get(0), median(ready), ready.get(ready.size() - 1),
+                        median(firstRequest), firstRequest.get(firstRequest.size() - 1));
+                System.out.println(report);
+                reports.add(report);
+            }
+        }
+        if (settings.getResultFile() != null) {
+            JSON.writeValue(settings.getResultFile().toFile(), reports);
+        }
+        return reports;
+    }
+
+    /**
+     * Запускает приложение и замеряет время до готовности и задержку первого запроса.
+     *
+     * @return {готовность (мс), первый запрос (мс)}.
+     */
+    private static long[] measure(Path jar, List<String> jvmArgs, FakeGithubApi api, HttpClient client)
+            throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-jar", jar.toString(),
+                "--server.port=" + port,
+                "--github.apiUrl=" + api.baseUrl(),
+                "--github.token=startup-benchmark",
+                "--logging.level.root=WARN"));
+        Path log = Files.createTempFile("startup-benchmark", ".log");
+        String baseUrl = "http://127.0.0.1:" + port;
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long deadline = start + READY_TIMEOUT.toNanos();
+            while (status(client, baseUrl + "/actuator/health") != 200) {
+                if (!process.isAlive() || System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Application did not become ready, see " + log);
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            long readyMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+            long requestStart = System.nanoTime();
+            int status = status(client, baseUrl + "/api/github/repo-contents?repoUrl=https://github.com/bench/repo");
+            long firstRequestMs = Duration.ofNanos(System.nanoTime() - requestStart).toMillis();
+            if (status != 200) {
+                throw new IllegalStateException("First request failed with HTTP " + status + ", see " + log);
+            }
+            Files.deleteIfExists(log);
+            return new long[]{readyMs, firstRequestMs};
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static List<String> jvmArgs(String variant, Settings settings) {
+        String cds = "-XX:SharedArchiveFile=" + settings.getArchive();
+        String aot = "-Dspring.aot.enabled=true";
+        return switch (variant) {
+            case "baseline" -> List.of();
+            case "cds" -> List.of(cds);
+            case "aot" -> List.of(aot);
+            case "aot-cds" -> List.of(cds, aot);
+            default -> throw new IllegalArgumentException("Unknown variant: " + variant);
+        };
+    }
+
+    private static int status(HttpClient client, String url) throws InterruptedException {
+        try {
+            return client.send(HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(List<Long> sorted) {
+        return sorted.get((sorted.size() - 1) / 2);
+    }
+
+    /**
+     * Запуск из командной строки; аргументы в виде {@code key=value}: jar, archive, variants (через запятую),
+     * runs, resultFile.
+     */
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            String value = keyValue[1];
+            switch (keyValue[0]) {
+                case "jar" -> settings.setJar(Paths.get(value));
+                case "archive" -> settings.setArchive(Paths.get(value));
+                case "variants" -> settings.setVariants(List.of(value.split(",")));
+                case "runs" -> settings.setRuns(Integer.parseInt(value));
+                case "resultFile" -> settings.setResultFile(Paths.get(value));
+                default -> throw new IllegalArgumentException("Unknown setting: " + keyValue[0]);
+            }
+        }
+        run(settings);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.AdmissionConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControllerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldAdmitEveryJobWhenDisabled() {
+        AdmissionController controller = new AdmissionController(new AdmissionConfig(), registry);
+
+        try (AdmissionController.Permit ignored = controller.admit("github", "huge", Long.MAX_VALUE)) {
+            assertEquals(0, controller.reservedBytes());
+        }
+    }
+
+    @Test
+    void shouldNeverExceedBudget() throws Exception {
+        AdmissionController controller = new AdmissionController(config(100, 16, Duration.ofSeconds(10)), registry);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                try (AdmissionController.Permit ignored = controller.admit("github", "job", 40)) {
+                    peak.accumulateAndGet(reserved.addAndGet(40), Math::max);
+                    sleep(5);
+                    reserved.addAndGet(-40);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(peak.get() <= 100, "Peak reservation was " + peak.get());
+        assertEquals(0, controller.reservedBytes());
+        assertEquals(0, controller.queued());
+        assertEquals(10, registry.get("admission.wait").tag("source", "github").timer().count());
+    }
+
+    @Test
+    void shouldNotLetSmallJobOvertakeQueuedLargeJob() throws Exception {
+        AdmissionController controller = new AdmissionController(config(100, 16, Duration.ofSeconds(10)), registry);
+
+        AdmissionController.Permit blocker = controller.admit("github", "blocker", 90);
+        Thread large = Thread.ofVirtual().start(() -> controller.admit("github", "large", 80).close());
+        awaitQueued(controller, 1);
+        // Небольшая задача поместилась бы в остаток бюджета, но встает в очередь за большой
+        Thread small = Thread.ofVirtual().start(() -> controller.admit("github", "small", 5).close());
+        awaitQueued(controller, 2);
+        sleep(50);
+        assertEquals(2, controller.queued());
+        assertEquals(90, controller.reservedBytes());
+        assertEquals(2.0, registry.get("admission.queued").gauge().value());
+
+        blocker.close();
+        large.join();
+        small.join();
+
+        assertEquals(0, controller.queued());
+        assertEquals(0, controller.reservedBytes());
+    }
+
+    @Test
+    void shouldRejectJobLargerThanBudget() {
+        AdmissionController controller = new AdmissionController(config(100, 16, Duration.ofSeconds(10)), registry);
+
+        assertThrows(AdmissionController.RejectedException.class, () -> controller.admit("directory", "huge", 101));
+        assertEquals(1.0, registry.get("admission.rejected").tag("reason", "too_large").counter().count());
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFull() throws Exception {
+        AdmissionController controller = new AdmissionController(config(100, 1, Duration.ofSeconds(10)), registry);
+
+        AdmissionController.Permit blocker = controller.admit("github", "blocker", 100);
+        Thread queued = Thread.ofVirtual().start(() -> controller.admit("github", "queued", 50).close());
+        awaitQueued(controller, 1);
+
+        assertThrows(AdmissionController.RejectedException.class, () -> controller.admit("github", "overflow", 50));
+        assertEquals(1.0, registry.get("admission.rejected").tag("reason", "queue_full").counter().count());
+
+        blocker.close();
+        queued.join();
+        assertEquals(0, controller.reservedBytes());
+    }
+
+    @Test
+    void shouldRejectAfterMaxWait() {
+        AdmissionController controller = new AdmissionController(config(100, 16, Duration.ofMillis(50)), registry);
+
+        try (AdmissionController.Permit ignored = controller.admit("github", "blocker", 100)) {
+            assertThrows(AdmissionController.RejectedException.class, () -> controller.admit("github", "late", 1));
+        }
+
+        assertEquals(0, controller.queued());
+        assertEquals(1.0, registry.get("admission.rejected").tag("reason", "timeout").counter().count());
+    }
+
+    private static AdmissionConfig config(long budgetBytes, int maxQueued, Duration maxWait) {
+        AdmissionConfig config = new AdmissionConfig();
+        config.setEnabled(true);
+        config.setBudgetBytes(budgetBytes);
+        config.setMaxQueued(maxQueued);
+        config.setMaxWait(maxWait);
+        return config;
+    }
+
+    private static void awaitQueued(AdmissionController controller, int expected) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (controller.queued() < expected) {
+            assertTrue(System.currentTimeMillis() < deadline, "Jobs were not queued");
+            sleep(5);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
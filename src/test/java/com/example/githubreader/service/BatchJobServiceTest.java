@@ -0,0 +1,83 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.AdmissionConfig;
+import com.example.githubreader.config.BatchConfig;
+import com.example.githubreader.model.BatchReport;
+import com.example.githubreader.model.ContentSourceRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+class BatchJobServiceTest {
+
+    @Test
+    void shouldWaitInBatchInsteadOfOverflowingAdmissionQueue() {
+        AdmissionConfig config = new AdmissionConfig();
+        config.setEnabled(true);
+        config.setBudgetBytes(100);
+        config.setMaxQueued(2);
+        config.setMaxWait(Duration.ofSeconds(10));
+        AdmissionController admissionController = new AdmissionController(config, new SimpleMeterRegistry());
+        DirectoryContentService directoryContentService = mock(DirectoryContentService.class);
+        // Каждая задача занимает почти весь бюджет: одновременно допускается только одна
+        doAnswer(invocation -> {
+            try (AdmissionController.Permit ignored = admissionController.admit("directory", invocation.getArgument(0), 90)) {
+                Thread.sleep(10);
+            }
+            return null;
+        }).when(directoryContentService).saveAllContentsToFile(anyString(), any(Path.class));
+        BatchConfig batchConfig = new BatchConfig();
+        BatchJobService service = new BatchJobService(mock(GithubContentService.class), directoryContentService,
+                mock(GitRepositoryContentService.class), new FetchBudget(batchConfig), batchConfig, admissionController);
+
+        List<ContentSourceRequest> sources = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ContentSourceRequest source = new ContentSourceRequest();
+            source.setSourceType("directory");
+            source.setPath("/tmp/source" + i);
+            sources.add(source);
+        }
+        BatchReport report = service.runBatch(sources);
+        service.shutdown();
+
+        assertEquals(0, report.getFailedJobs(), () -> report.getJobs().toString());
+        assertEquals(0, admissionController.queued());
+    }
+
+    @Test
+    void shouldUseDistinctJobKeysAcrossBatches() {
+        BatchConfig batchConfig = new BatchConfig();
+        FetchBudget fetchBudget = spy(new FetchBudget(batchConfig));
+        Set<String> jobKeys = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            jobKeys.add(invocation.getArgument(0));
+            return invocation.callRealMethod();
+        }).when(fetchBudget).openJob(anyString());
+        BatchJobService service = new BatchJobService(mock(GithubContentService.class), mock(DirectoryContentService.class),
+                mock(GitRepositoryContentService.class), fetchBudget, batchConfig,
+                new AdmissionController(new AdmissionConfig(), new SimpleMeterRegistry()));
+
+        ContentSourceRequest source = new ContentSourceRequest();
+        source.setSourceType("directory");
+        source.setPath("/tmp/same");
+        service.runBatch(List.of(source));
+        service.runBatch(List.of(source));
+        service.shutdown();
+
+        // Один и тот же источник в разных пакетах не должен делить счетчики бюджета
+        assertEquals(2, jobKeys.size(), jobKeys::toString);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.githubreader.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentSinkTest {
+
+    @Test
+    void shouldPlaceBackReferenceAfterAcceptedCopy() {
+        ContentSink.Aggregate aggregate = new ContentSink.Aggregate(new ContentDeduplicator());
+
+        assertTrue(aggregate.needsContent("src/A.java", "s1"));
+        // Дубликат регистрируется раньше, чем первая копия скачана
+        assertFalse(aggregate.needsContent("src/copy/A.java", "s1"));
+        assertTrue(aggregate.needsContent("src/B.java", "s2"));
+        aggregate.accept("src/B.java", "s2", "class B {}");
+        aggregate.accept("src/A.java", "s1", "class A {}");
+
+        assertEquals("File: src/B.java \nclass B {}\n\n"
+                + "File: src/A.java \nclass A {}\n\n"
+                + "File: src/copy/A.java \n[duplicate of src/A.java]\n", aggregate.result());
+    }
+
+    @Test
+    void shouldReportDuplicatesAsMissingWhenFirstCopyFails() {
+        ContentSink.Aggregate aggregate = new ContentSink.Aggregate(new ContentDeduplicator());
+
+        assertTrue(aggregate.needsContent("src/A.java", "s1"));
+        assertFalse(aggregate.needsContent("src/copy/A.java", "s1"));
+        aggregate.failed("src/A.java", "s1");
+        aggregate.incomplete(List.of("src/A.java"));
+
+        // Ссылки на неполученную копию нет: оба пути перечислены как пропущенные
+        assertEquals("Missing paths (2):\nsrc/A.java\nsrc/copy/A.java\n", aggregate.result());
+    }
+
+    @Test
+    void shouldResolveDuplicateToLaterCopyAfterFirstFails() {
+        ContentSink.Aggregate aggregate = new ContentSink.Aggregate(new ContentDeduplicator());
+
+        assertTrue(aggregate.needsContent("a/A.java", "s1"));
+        assertFalse(aggregate.needsContent("b/A.java", "s1"));
+        aggregate.failed("a/A.java", "s1");
+        // После неудачи первой копии следующая с тем же SHA скачивается
+        assertTrue(aggregate.needsContent("c/A.java", "s1"));
+        aggregate.accept("c/A.java", "s1", "class A {}");
+        aggregate.incomplete(List.of("a/A.java"));
+
+        assertEquals("File: c/A.java \nclass A {}\n\n"
+                + "File: b/A.java \n[duplicate of c/A.java]\n\n"
+                + "Missing paths (1):\na/A.java\n", aggregate.result());
+    }
+}
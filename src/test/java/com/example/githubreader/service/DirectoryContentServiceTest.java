@@ -1,21 +1,31 @@
 package com.example.githubreader.service;
 
+import com.example.githubreader.config.AdmissionConfig;
+import com.example.githubreader.config.BatchConfig;
 import com.example.githubreader.config.DirectoryConfig;
 import com.example.githubreader.config.GithubConfig;
+import com.example.githubreader.config.ProfilingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +37,18 @@ class DirectoryContentServiceTest {
     @Mock
     private GithubConfig githubConfig;
 
+    @Spy
+    private FetchBudget fetchBudget = new FetchBudget(new BatchConfig());
+
+    @Spy
+    private FetchMetrics fetchMetrics = new FetchMetrics(new SimpleMeterRegistry(), fetchBudget);
+
+    @Spy
+    private JobProfiler jobProfiler = new JobProfiler(new ProfilingConfig());
+
+    @Spy
+    private AdmissionController admissionController = new AdmissionController(new AdmissionConfig(), new SimpleMeterRegistry());
+
     @InjectMocks
     private DirectoryContentService directoryContentService;
 
@@ -69,6 +91,212 @@ class DirectoryContentServiceTest {
         assertFalse(content.contains("file3.bin"), "Should exclude file3.bin");
     }
 
+    @Test
+    void shouldWriteDuplicateFilesOnlyOnceWhenDeduplicationEnabled() throws IOException {
+        // Arrange
+        when(directoryConfig.getDefaultPath()).thenReturn(tempDir.toString());
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.txt"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList(".git/**"));
+        when(githubConfig.isDeduplicate()).thenReturn(true);
+
+        Files.createDirectories(tempDir.resolve("a"));
+        Files.createDirectories(tempDir.resolve("b"));
+        Files.writeString(tempDir.resolve("a/LICENSE.txt"), "Same license text");
+        Files.writeString(tempDir.resolve("b/LICENSE.txt"), "Same license text");
+        Files.writeString(tempDir.resolve("b/notes.txt"), "Unique notes");
+
+        // Act
+        directoryContentService.saveAllContentsToFile(null);
+
+        // Assert
+        Path outputFile = Paths.get("output", "all_contents_from_" + tempDir.getFileName() + ".txt");
+        String content = Files.readString(outputFile);
+        assertEquals(1, content.split("Same license text", -1).length - 1, "Duplicate body should be written once");
+        assertTrue(content.contains("[duplicate of "), "Duplicate should reference the first path");
+        assertTrue(content.contains("Unique notes"), "Unique file should be written in full");
+    }
+
+    @Test
+    void shouldReferenceOnlyWrittenBlocksWhenDeduplicating() throws IOException {
+        // Arrange
+        when(directoryConfig.getDefaultPath()).thenReturn(tempDir.toString());
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.txt"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        when(githubConfig.isDeduplicate()).thenReturn(true);
+
+        byte[] notUtf8 = {(byte) 0xC3, (byte) 0x28};
+        for (String dir : List.of("a", "b", "c")) {
+            Files.createDirectories(tempDir.resolve(dir));
+            Files.write(tempDir.resolve(dir + "/broken.txt"), notUtf8);
+            Files.writeString(tempDir.resolve(dir + "/same.txt"), "Same text");
+        }
+
+        // Act
+        directoryContentService.saveAllContentsToFile(null);
+
+        // Assert
+        Path outputFile = Paths.get("output", "all_contents_from_" + tempDir.getFileName() + ".txt");
+        String content = Files.readString(outputFile);
+        // Нераскодированный файл не регистрируется: на него нет ссылок
+        assertFalse(content.contains("broken.txt"), content);
+        int body = content.indexOf("Same text");
+        int reference = content.indexOf("[duplicate of ");
+        assertEquals(2, content.split("\\[duplicate of ", -1).length - 1, content);
+        assertTrue(body >= 0 && reference > body, "Reference must follow the block it points to");
+    }
+
+    @Test
+    void shouldWalkOnlyRequestedSubtrees() throws IOException {
+        // Arrange
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+
+        Files.createDirectories(tempDir.resolve("app/src/main"));
+        Files.createDirectories(tempDir.resolve("app/src/test"));
+        Files.createDirectories(tempDir.resolve("lib"));
+        Files.writeString(tempDir.resolve("app/src/main/App.java"), "class App {}");
+        Files.writeString(tempDir.resolve("app/src/test/AppTest.java"), "class AppTest {}");
+        Files.writeString(tempDir.resolve("lib/Lib.java"), "class Lib {}");
+        Path outputFile = Files.createTempDirectory("test-output").resolve("subtree.txt");
+
+        // Act
+        directoryContentService.saveAllContentsToFile(tempDir.toString(),
+                Arrays.asList("app/src/main/", "lib", "app/src/main/nested"), outputFile);
+
+        // Assert
+        String content = Files.readString(outputFile);
+        assertTrue(content.contains("File: " + Paths.get("app/src/main/App.java") + "\nclass App {}\n"));
+        assertTrue(content.contains("File: " + Paths.get("lib/Lib.java")));
+        assertFalse(content.contains("AppTest"), "Files outside the prefixes are not walked");
+        assertThrows(IllegalArgumentException.class, () ->
+                directoryContentService.saveAllContentsToFile(tempDir.toString(), Arrays.asList("../etc"), outputFile));
+    }
+
+    @Test
+    void shouldHonourGitignoreWhenEnabled() throws IOException {
+        // Arrange
+        when(directoryConfig.isRespectGitignore()).thenReturn(true);
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+
+        Files.createDirectories(tempDir.resolve(".git"));
+        Files.writeString(tempDir.resolve(".gitignore"), "build/\n");
+        Files.createDirectories(tempDir.resolve("build/generated"));
+        Files.writeString(tempDir.resolve("build/generated/Gen.java"), "class Gen {}");
+        Files.writeString(tempDir.resolve("App.java"), "class App {}");
+        Path outputFile = Files.createTempDirectory("test-output").resolve("gitignore.txt");
+
+        // Act
+        directoryContentService.saveAllContentsToFile(tempDir.toString(), List.of(), outputFile);
+
+        // Assert
+        String content = Files.readString(outputFile);
+        assertTrue(content.contains("File: App.java\nclass App {}\n"));
+        assertFalse(content.contains("Gen.java"), "Ignored directories are not walked");
+    }
+
+    @Test
+    void shouldReplaceOutputInsideWalkedDirectoryAtomically() throws IOException {
+        // Arrange
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.txt"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        Files.createDirectories(tempDir.resolve("docs"));
+        Files.writeString(tempDir.resolve("docs/a.txt"), "alpha");
+        Path outputFile = tempDir.resolve("docs/all.txt");
+        Files.writeString(outputFile, "previous run");
+
+        // Act
+        directoryContentService.saveAllContentsToFile(tempDir.toString(), List.of(), outputFile);
+
+        // Assert
+        String content = Files.readString(outputFile);
+        assertTrue(content.contains("File: docs/a.txt\nalpha\n"));
+        assertFalse(content.contains("previous run"), "Output file is not read as input");
+        try (Stream<Path> files = Files.list(tempDir.resolve("docs"))) {
+            assertEquals(List.of("a.txt", "all.txt"), files.map(file -> file.getFileName().toString()).sorted().toList(),
+                    "Temporary file is moved over the output");
+        }
+    }
+
+    @Test
+    void shouldRejectDirectoryThatExceedsHeapBudget() throws IOException {
+        // Arrange
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.txt"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        AdmissionConfig admissionConfig = new AdmissionConfig();
+        admissionConfig.setEnabled(true);
+        admissionConfig.setBudgetBytes(4096);
+        AdmissionController admission = new AdmissionController(admissionConfig, new SimpleMeterRegistry());
+        DirectoryContentService service = new DirectoryContentService(directoryConfig, githubConfig, fetchBudget,
+                fetchMetrics, jobProfiler, admission);
+
+        Files.createDirectories(tempDir.resolve("docs"));
+        Files.writeString(tempDir.resolve("docs/big.txt"), "x".repeat(2048));
+        Path outputFile = Files.createTempDirectory("test-output").resolve("rejected.txt");
+
+        // Act & Assert
+        assertThrows(AdmissionController.RejectedException.class,
+                () -> service.saveAllContentsToFile(tempDir.toString(), outputFile));
+        assertFalse(Files.exists(outputFile), "Rejected job should not create the output file");
+        assertEquals(0, admission.reservedBytes());
+        service.shutdown();
+    }
+
+    @Test
+    void shouldCountFilesOnceWhenAdmissionEstimatesMemory() throws IOException {
+        // Arrange
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.txt"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        AdmissionConfig admissionConfig = new AdmissionConfig();
+        admissionConfig.setEnabled(true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FetchMetrics metrics = new FetchMetrics(registry, fetchBudget);
+        DirectoryContentService service = new DirectoryContentService(directoryConfig, githubConfig, fetchBudget,
+                metrics, jobProfiler, new AdmissionController(admissionConfig, new SimpleMeterRegistry()));
+
+        Files.createDirectories(tempDir.resolve("docs"));
+        Files.writeString(tempDir.resolve("docs/a.txt"), "alpha");
+        Files.writeString(tempDir.resolve("docs/b.txt"), "beta");
+        Files.writeString(tempDir.resolve("docs/c.bin"), "skip");
+        Path outputFile = Files.createTempDirectory("test-output").resolve("admitted.txt");
+
+        // Act
+        service.saveAllContentsToFile(tempDir.toString(), outputFile);
+
+        // Assert
+        assertTrue(Files.readString(outputFile).contains("File: docs/b.txt\nbeta\n"));
+        // Оценка памяти не учитывается в метриках: каждый файл посчитан один раз
+        assertEquals(2.0, registry.get("fetch.files").tag("result", "matched").counter().count());
+        assertEquals(1.0, registry.get("fetch.files").tag("result", "excluded").counter().count());
+        service.shutdown();
+    }
+
+    @Test
+    void shouldListUnreadableSubdirectoryAsMissingInBestEffort() throws IOException {
+        // Arrange
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.txt"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        Files.createDirectories(tempDir.resolve("docs/locked"));
+        Files.writeString(tempDir.resolve("docs/a.txt"), "alpha");
+        Files.writeString(tempDir.resolve("docs/locked/b.txt"), "beta");
+        Path outputFile = Files.createTempDirectory("test-output").resolve("partial.txt");
+        Files.setPosixFilePermissions(tempDir.resolve("docs/locked"), Set.of());
+        try {
+            // Суперпользователь читает директорию без прав, проверить ошибку чтения так не получится
+            assumeFalse(Files.isReadable(tempDir.resolve("docs/locked")), "Directory permissions are not enforced");
+
+            // Act
+            directoryContentService.saveAllContentsToFile(tempDir.toString(), List.of(), outputFile);
+
+            // Assert
+            String content = Files.readString(outputFile);
+            assertTrue(content.contains("File: docs/a.txt\nalpha\n"));
+            assertTrue(content.endsWith("Missing paths (1):\ndocs/locked/\n"), content);
+        } finally {
+            Files.setPosixFilePermissions(tempDir.resolve("docs/locked"), PosixFilePermissions.fromString("rwx------"));
+        }
+    }
+
     @Test
     void shouldThrowExceptionForInvalidDirectory() {
         // Arrange
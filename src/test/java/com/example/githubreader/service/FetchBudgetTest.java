@@ -0,0 +1,85 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.BatchConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FetchBudgetTest {
+
+    @Test
+    void shouldNeverExceedMaxConcurrency() throws Exception {
+        BatchConfig config = new BatchConfig();
+        config.setMaxConcurrency(3);
+        FetchBudget budget = new FetchBudget(config);
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                try (FetchBudget.Permit ignored = budget.acquire()) {
+                    peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+                    sleep(5);
+                    current.decrementAndGet();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(peak.get() <= 3, "Peak concurrency was " + peak.get());
+        assertEquals(0, budget.inFlight());
+    }
+
+    @Test
+    void shouldShareFreedPermitsFairlyBetweenJobs() throws Exception {
+        BatchConfig config = new BatchConfig();
+        config.setMaxConcurrency(1);
+        FetchBudget budget = new FetchBudget(config);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        // Занимаем единственное разрешение, пока обе задачи выстраиваются в очередь
+        FetchBudget.Permit blocker = budget.acquire();
+        List<Thread> threads = new ArrayList<>(startJob(budget, "huge", 10, order));
+        sleep(100);
+        threads.addAll(startJob(budget, "small", 2, order));
+        sleep(100);
+        blocker.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Небольшая задача должна завершиться в первых раундах, а не после всех запросов большой
+        int lastSmall = order.lastIndexOf("small");
+        assertTrue(lastSmall <= 3, "Small job finished at position " + lastSmall + " in " + order);
+    }
+
+    private static List<Thread> startJob(FetchBudget budget, String jobKey, int requests, List<String> order) {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                try (FetchBudget.JobScope ignored = budget.openJob(jobKey);
+                     FetchBudget.Permit permit = budget.acquire()) {
+                    order.add(jobKey);
+                    sleep(2);
+                }
+            }));
+        }
+        return threads;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
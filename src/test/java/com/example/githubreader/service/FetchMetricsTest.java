@@ -0,0 +1,63 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.AdmissionConfig;
+import com.example.githubreader.config.BatchConfig;
+import com.example.githubreader.config.DirectoryConfig;
+import com.example.githubreader.config.GithubConfig;
+import com.example.githubreader.config.ProfilingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FetchMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRecordDirectoryStagesAndCounters() throws Exception {
+        Files.writeString(tempDir.resolve("Main.java"), "class Main {}");
+        Files.writeString(tempDir.resolve("notes.md"), "# notes");
+
+        GithubConfig githubConfig = new GithubConfig();
+        githubConfig.setIncludePatterns(List.of("**/*.java", "*.java"));
+        githubConfig.setExcludePatterns(List.of());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FetchBudget fetchBudget = new FetchBudget(new BatchConfig());
+        FetchMetrics fetchMetrics = new FetchMetrics(registry, fetchBudget);
+        DirectoryContentService service =
+                new DirectoryContentService(new DirectoryConfig(), githubConfig, fetchBudget, fetchMetrics,
+                        new JobProfiler(new ProfilingConfig()),
+                        new AdmissionController(new AdmissionConfig(), new SimpleMeterRegistry()));
+
+        service.saveAllContentsToFile(tempDir.toString(), tempDir.resolve("out.txt"));
+
+        assertEquals(1, registry.get("fetch.files").tags("source", "directory", "result", "matched").counter().count());
+        assertEquals(1, registry.get("fetch.files").tags("source", "directory", "result", "excluded").counter().count());
+        assertEquals(13, registry.get("fetch.bytes").tags("source", "directory", "direction", "in").counter().count());
+        assertTrue(registry.get("fetch.bytes").tags("source", "directory", "direction", "out").counter().count() > 0);
+        assertEquals(1, registry.get("fetch.download").tag("source", "directory").timer().count());
+        assertEquals(1, registry.get("fetch.job").tags("source", "directory", "operation", "single-file").timer().count());
+        assertEquals(0, registry.get("fetch.requests.in_flight").gauge().value());
+        for (String stage : List.of("list", "filter", "fetch", "format", "write")) {
+            assertEquals(0, registry.get("pipeline.stage.queued").tags("source", "directory", "stage", stage).gauge().value());
+            assertEquals(0, registry.get("pipeline.stage.active").tags("source", "directory", "stage", stage).gauge().value());
+        }
+    }
+
+    @Test
+    void shouldExposeLastSeenRateLimit() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FetchMetrics fetchMetrics = new FetchMetrics(registry, new FetchBudget(new BatchConfig()));
+
+        assertEquals(-1, registry.get("github.ratelimit.remaining").gauge().value());
+        fetchMetrics.rateLimitRemaining(4999);
+        assertEquals(4999, registry.get("github.ratelimit.remaining").gauge().value());
+    }
+}
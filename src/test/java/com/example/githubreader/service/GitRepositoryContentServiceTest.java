@@ -0,0 +1,141 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.BatchConfig;
+import com.example.githubreader.config.GithubConfig;
+import com.example.githubreader.config.ProfilingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitRepositoryContentServiceTest {
+
+    private Path workTree;
+    private Path outputFile;
+    private GithubConfig githubConfig;
+    private GitRepositoryContentService gitRepositoryContentService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        workTree = Files.createTempDirectory("git-source");
+        outputFile = Files.createTempDirectory("git-output").resolve("all_contents.txt");
+
+        githubConfig = new GithubConfig();
+        githubConfig.setIncludePatterns(List.of("**/*.java", "*.md"));
+        githubConfig.setExcludePatterns(List.of("target/**"));
+        FetchBudget fetchBudget = new FetchBudget(new BatchConfig());
+        gitRepositoryContentService = new GitRepositoryContentService(githubConfig, fetchBudget,
+                new FetchMetrics(new SimpleMeterRegistry(), fetchBudget), new JobProfiler(new ProfilingConfig()));
+    }
+
+    @Test
+    void shouldReadCommittedTreeAtRequestedRef() throws Exception {
+        RevCommit first;
+        try (Git git = Git.init().setDirectory(workTree.toFile()).call()) {
+            write("src/main/App.java", "class App { int v = 1; }");
+            write("README.md", "readme");
+            write("target/Gen.java", "class Gen {}");
+            git.add().addFilepattern(".").call();
+            first = git.commit().setMessage("first").setSign(false).call();
+
+            write("src/main/App.java", "class App { int v = 2; }");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("second").setSign(false).call();
+        }
+        // Незакоммиченные изменения рабочей копии не должны попасть в результат
+        write("src/main/App.java", "class App { int v = 3; }");
+
+        gitRepositoryContentService.saveAllContentsToFile(workTree.toString(), first.name(), outputFile);
+        String pinned = Files.readString(outputFile);
+        assertTrue(pinned.contains("File: src/main/App.java\nclass App { int v = 1; }\n"));
+        assertTrue(pinned.contains("File: README.md\nreadme\n"));
+        assertFalse(pinned.contains("Gen.java"), "Excluded by pattern");
+
+        gitRepositoryContentService.saveAllContentsToFile(workTree.resolve(".git").toString(), null, outputFile);
+        assertTrue(Files.readString(outputFile).contains("class App { int v = 2; }"), "HEAD is the second commit");
+    }
+
+    @Test
+    void shouldReadBareRepositoryWithPackfiles() throws Exception {
+        try (Git git = Git.init().setDirectory(workTree.toFile()).call()) {
+            write("src/Lib.java", "class Lib {}");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("lib").setSign(false).call();
+        }
+        Path bare = Files.createTempDirectory("git-bare").resolve("lib.git");
+        try (Git clone = Git.cloneRepository().setURI(workTree.toUri().toString())
+                .setDirectory(bare.toFile()).setBare(true).call()) {
+            clone.gc().call(); // Упаковываем объекты в packfile
+        }
+
+        gitRepositoryContentService.saveAllContentsToFile(bare.toString(), "master", outputFile);
+
+        assertTrue(Files.readString(outputFile).contains("File: src/Lib.java\nclass Lib {}\n"));
+    }
+
+    @Test
+    void shouldReferenceOnlyWrittenBlocksInTreeOrder() throws Exception {
+        githubConfig.setDeduplicate(true);
+        byte[] notUtf8 = {(byte) 0xC3, (byte) 0x28, 0, 1};
+        try (Git git = Git.init().setDirectory(workTree.toFile()).call()) {
+            write("a/Same.java", "class Same {}");
+            write("b/Same.java", "class Same {}");
+            Files.createDirectories(workTree.resolve("bin"));
+            Files.write(workTree.resolve("bin/First.java"), notUtf8);
+            Files.write(workTree.resolve("bin/Second.java"), notUtf8);
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("dups").setSign(false).call();
+        }
+
+        gitRepositoryContentService.saveAllContentsToFile(workTree.toString(), null, outputFile);
+
+        // Ссылка идет после блока, на который указывает; у нечитаемого как текст blob-объекта нет ни блока, ни ссылок
+        assertEquals("File: a/Same.java\nclass Same {}\n\n"
+                + "File: b/Same.java\n[duplicate of a/Same.java]\n", Files.readString(outputFile));
+    }
+
+    @Test
+    void shouldMirrorBinaryBlobsByteForByte() throws Exception {
+        String dir = "mirror-" + UUID.randomUUID();
+        byte[] binary = {(byte) 0xC3, (byte) 0x28, 0, (byte) 0xFF};
+        try (Git git = Git.init().setDirectory(workTree.toFile()).call()) {
+            Files.createDirectories(workTree.resolve(dir));
+            Files.write(workTree.resolve(dir + "/Data.java"), binary);
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("binary").setSign(false).call();
+        }
+        Path mirrored = Paths.get(ContentWriter.OUTPUT_DIR, dir, "Data.java");
+        try {
+            gitRepositoryContentService.saveRepositoryContents(workTree.toString(), null);
+
+            assertArrayEquals(binary, Files.readAllBytes(mirrored));
+        } finally {
+            Files.deleteIfExists(mirrored);
+            Files.deleteIfExists(mirrored.getParent());
+        }
+    }
+
+    @Test
+    void shouldRejectPathThatIsNotRepository() {
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> gitRepositoryContentService.saveAllContentsToFile(workTree.toString(), null, outputFile));
+        assertEquals("Failed to save git repository contents to file", exception.getMessage());
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
+    private void write(String path, String content) throws IOException {
+        Path file = workTree.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
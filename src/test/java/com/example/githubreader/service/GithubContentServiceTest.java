@@ -1,6 +1,14 @@
 package com.example.githubreader.service;
 
+import com.example.githubreader.config.AdmissionConfig;
+import com.example.githubreader.config.BatchConfig;
 import com.example.githubreader.config.GithubConfig;
+import com.example.githubreader.config.JobSettings;
+import com.example.githubreader.config.PipelineSettings;
+import com.example.githubreader.config.ProfilingConfig;
+import com.example.githubreader.model.RepositoryStats;
+import com.example.githubreader.model.TreePage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,15 +18,27 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -36,6 +56,8 @@ class GithubContentServiceTest {
     @InjectMocks
     private GithubContentService githubContentService;
 
+    private static final String COMMIT_SHA = "0123456789abcdef0123456789abcdef01234567";
+
     private HttpEntity<String> httpEntity;
 
     private ExecutorService executorService;
@@ -50,11 +72,25 @@ class GithubContentServiceTest {
         httpEntity = new HttpEntity<>(headers);
 
         executorService = Executors.newVirtualThreadPerTaskExecutor();
-        githubContentService = new GithubContentService(restTemplate, githubConfig);
+        FetchBudget fetchBudget = new FetchBudget(new BatchConfig());
+        githubContentService = new GithubContentService(restTemplate, githubConfig, fetchBudget,
+                new GithubCache(new GithubConfig()), new FetchMetrics(new SimpleMeterRegistry(), fetchBudget),
+                new JobProfiler(new ProfilingConfig()),
+                new AdmissionController(new AdmissionConfig(), new SimpleMeterRegistry()));
+    }
+
+    private void stubHeadResolution() {
+        when(restTemplate.exchange(
+                eq("https://api.github.com/repos/user/repo/commits/HEAD"),
+                eq(HttpMethod.GET),
+                any(HttpEntity.class),
+                eq(String.class)
+        )).thenReturn(ResponseEntity.ok(COMMIT_SHA));
     }
 
     @Test
     void shouldReturnRepositoryContentsWhenFilesMatchPatterns() throws Exception {
+        stubHeadResolution();
         when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
         when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList("target/**"));
 
@@ -67,7 +103,7 @@ class GithubContentServiceTest {
                         "download_url", "https://raw.githubusercontent.com/user/repo/main/src/main/java/Another.java")
         );
         when(restTemplate.exchange(
-                eq("https://api.github.com/repos/user/repo/contents"),
+                eq("https://api.github.com/repos/user/repo/contents?ref=" + COMMIT_SHA),
                 eq(HttpMethod.GET),
                 eq(httpEntity),
                 eq(List.class)
@@ -110,6 +146,7 @@ class GithubContentServiceTest {
 
     @Test
     void shouldHandleDirectoryContentsInParallel() throws Exception {
+        stubHeadResolution();
         when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
         when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList("target/**"));
 
@@ -119,7 +156,7 @@ class GithubContentServiceTest {
                 Map.of("type", "dir", "path", "src", "url", "https://api.github.com/repos/user/repo/contents/src")
         );
         when(restTemplate.exchange(
-                eq("https://api.github.com/repos/user/repo/contents"),
+                eq("https://api.github.com/repos/user/repo/contents?ref=" + COMMIT_SHA),
                 eq(HttpMethod.GET),
                 eq(httpEntity),
                 eq(List.class)
@@ -163,12 +200,493 @@ class GithubContentServiceTest {
         assertTrue(result.get(0).contains("public class Main {}"));
     }
 
+    @Test
+    void shouldSkipDownloadOfFilesWithKnownShaWhenDeduplicationEnabled() throws Exception {
+        stubHeadResolution();
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList("target/**"));
+        when(githubConfig.isDeduplicate()).thenReturn(true);
+        Path outputFile = Files.createTempFile("all-contents", ".txt");
+        when(githubConfig.getSingleFilePath()).thenReturn(outputFile.toString());
+
+        List<Map<String, Object>> mockFiles = Arrays.asList(
+                Map.of("type", "file", "path", "a/gen/Proto.java", "sha", "abc123",
+                        "download_url", "https://raw.githubusercontent.com/user/repo/main/a/gen/Proto.java"),
+                Map.of("type", "file", "path", "b/gen/Proto.java", "sha", "abc123",
+                        "download_url", "https://raw.githubusercontent.com/user/repo/main/b/gen/Proto.java")
+        );
+        when(restTemplate.exchange(
+                eq("https://api.github.com/repos/user/repo/contents?ref=" + COMMIT_SHA),
+                eq(HttpMethod.GET),
+                eq(httpEntity),
+                eq(List.class)
+        )).thenReturn(ResponseEntity.ok(mockFiles));
+        when(restTemplate.exchange(
+                startsWith("https://raw.githubusercontent.com/user/repo/main/"),
+                eq(HttpMethod.GET),
+                any(HttpEntity.class),
+                eq(String.class)
+        )).thenReturn(ResponseEntity.ok("class Proto {}"));
+
+        githubContentService.saveAllContentsToSingleFile("https://github.com/user/repo");
+
+        verify(restTemplate, times(1)).exchange(
+                startsWith("https://raw.githubusercontent.com/user/repo/main/"),
+                eq(HttpMethod.GET),
+                any(HttpEntity.class),
+                eq(String.class));
+        String content = Files.readString(outputFile);
+        assertEquals(1, content.split("class Proto \\{}", -1).length - 1, "Duplicate body should be written once");
+        assertTrue(content.contains("[duplicate of "));
+    }
+
+    @Test
+    void shouldServePinnedCommitFromCacheWithoutApiCalls() throws Exception {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList("target/**"));
+
+        List<Map<String, Object>> mockFiles = Arrays.asList(
+                Map.of("type", "file", "path", "src/main/App.java", "sha", "fedcba",
+                        "download_url", "https://raw.githubusercontent.com/user/repo/" + COMMIT_SHA + "/src/main/App.java")
+        );
+        when(restTemplate.exchange(
+                eq("https://api.github.com/repos/user/repo/contents?ref=" + COMMIT_SHA),
+                eq(HttpMethod.GET),
+                eq(httpEntity),
+                eq(List.class)
+        )).thenReturn(ResponseEntity.ok(mockFiles));
+        when(restTemplate.exchange(
+                startsWith("https://raw.githubusercontent.com/user/repo/"),
+                eq(HttpMethod.GET),
+                any(HttpEntity.class),
+                eq(String.class)
+        )).thenReturn(ResponseEntity.ok("class App {}"));
+
+        List<String> first = githubContentService.getRepositoryContents("https://github.com/user/repo", COMMIT_SHA);
+        List<String> second = githubContentService.getRepositoryContents("https://github.com/user/repo", COMMIT_SHA);
+
+        assertEquals(first, second);
+        assertTrue(first.get(0).contains("https://github.com/user/repo/blob/" + COMMIT_SHA + "/src/main/App.java"));
+        // Полный SHA не разрешается через API, а повторный запрос полностью обслуживается из кэша
+        verify(restTemplate, times(2)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), any(Class.class));
+    }
+
+    @Test
+    void shouldDownloadEachFileOnceForSeveralOutputs() throws Exception {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList("target/**"));
+        Path outputFile = Files.createTempFile("all-contents", ".txt");
+
+        List<Map<String, Object>> rootFiles = Arrays.asList(
+                Map.of("type", "file", "path", "src/App.java", "sha", "a1",
+                        "download_url", "https://raw.githubusercontent.com/user/repo/" + COMMIT_SHA + "/src/App.java"),
+                Map.of("type", "dir", "path", "lib", "url", "https://api.github.com/repos/user/repo/contents/lib?ref=" + COMMIT_SHA)
+        );
+        List<Map<String, Object>> libFiles = Arrays.asList(
+                Map.of("type", "file", "path", "lib/Util.java", "sha", "b2",
+                        "download_url", "https://raw.githubusercontent.com/user/repo/" + COMMIT_SHA + "/lib/Util.java")
+        );
+        when(restTemplate.exchange(
+                eq("https://api.github.com/repos/user/repo/contents?ref=" + COMMIT_SHA),
+                eq(HttpMethod.GET),
+                eq(httpEntity),
+                eq(List.class)
+        )).thenReturn(ResponseEntity.ok(rootFiles));
+        when(restTemplate.exchange(
+                eq("https://api.github.com/repos/user/repo/contents/lib?ref=" + COMMIT_SHA),
+                eq(HttpMethod.GET),
+                eq(httpEntity),
+                eq(List.class)
+        )).thenReturn(ResponseEntity.ok(libFiles));
+        when(restTemplate.exchange(
+                startsWith("https://raw.githubusercontent.com/user/repo/"),
+                eq(HttpMethod.GET),
+                any(HttpEntity.class),
+                eq(String.class)
+        )).thenAnswer(invocation -> ResponseEntity.ok("// " + invocation.getArgument(0)));
+
+        List<String> listing = githubContentService.exportRepositoryContents("https://github.com/user/repo", COMMIT_SHA,
+                EnumSet.of(GithubContentService.Output.LISTING, GithubContentService.Output.SINGLE_FILE), outputFile);
+
+        assertEquals(2, listing.size());
+        String allContent = Files.readString(outputFile);
+        assertTrue(allContent.contains("File: src/App.java"));
+        assertTrue(allContent.contains("File: lib/Util.java"));
+        verify(restTemplate, times(2)).exchange(
+                startsWith("https://raw.githubusercontent.com/user/repo/"),
+                eq(HttpMethod.GET),
+                any(HttpEntity.class),
+                eq(String.class));
+
+        // Листинг, собранный в том же проходе, уже в кэше
+        assertEquals(listing, githubContentService.getRepositoryContents("https://github.com/user/repo", COMMIT_SHA));
+        verify(restTemplate, times(4)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), any(Class.class));
+    }
+
+    @Test
+    void shouldStreamMirrorFilesToDiskWithoutDecodingThem() throws Exception {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.png"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        String dir = "mirror-test-" + System.nanoTime();
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', 0, (byte) 0xFF, (byte) 0xFE};
+        String downloadUrl = "https://raw.githubusercontent.com/user/repo/" + COMMIT_SHA + "/" + dir + "/logo.png";
+        when(restTemplate.exchange(
+                eq("https://api.github.com/repos/user/repo/contents?ref=" + COMMIT_SHA),
+                eq(HttpMethod.GET),
+                eq(httpEntity),
+                eq(List.class)
+        )).thenReturn(ResponseEntity.ok(List.of(
+                Map.of("type", "file", "path", dir + "/logo.png", "sha", "c3", "download_url", downloadUrl))));
+        when(restTemplate.execute(eq(downloadUrl), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> {
+                    ResponseExtractor<?> extractor = invocation.getArgument(3);
+                    return extractor.extractData(new MockClientHttpResponse(png, HttpStatus.OK));
+                });
+
+        Path mirrored = Path.of(ContentWriter.OUTPUT_DIR, dir, "logo.png");
+        try {
+            githubContentService.saveRepositoryContents("https://github.com/user/repo", COMMIT_SHA);
+
+            assertArrayEquals(png, Files.readAllBytes(mirrored));
+            try (Stream<Path> files = Files.list(mirrored.getParent())) {
+                assertEquals(List.of(mirrored), files.toList(), "no temporary files are left behind");
+            }
+            verify(restTemplate, never()).exchange(eq(downloadUrl), any(HttpMethod.class), any(HttpEntity.class), eq(String.class));
+        } finally {
+            Files.deleteIfExists(mirrored);
+            Files.deleteIfExists(mirrored.getParent());
+        }
+    }
+
+    @Test
+    void shouldListOnlyRequestedSubtrees() throws Exception {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        String mainUrl = "https://api.github.com/repos/user/repo/contents/app/src/main?ref=" + COMMIT_SHA;
+        when(restTemplate.exchange(eq(mainUrl), eq(HttpMethod.GET), eq(httpEntity), eq(List.class)))
+                .thenReturn(ResponseEntity.ok(List.of(
+                        Map.of("type", "file", "path", "app/src/main/App.java", "sha", "d4",
+                                "download_url", "https://raw.githubusercontent.com/user/repo/app/src/main/App.java"))));
+        when(restTemplate.exchange(
+                eq("https://raw.githubusercontent.com/user/repo/app/src/main/App.java"),
+                eq(HttpMethod.GET),
+                any(HttpEntity.class),
+                eq(String.class)
+        )).thenReturn(ResponseEntity.ok("class App {}"));
+
+        List<String> listing = githubContentService.getRepositoryContents("https://github.com/user/repo", COMMIT_SHA,
+                List.of("/app/src/main/", "app/src/main/java"));
+
+        assertEquals(1, listing.size());
+        assertTrue(listing.get(0).contains("app/src/main/App.java"));
+        // Корень и другие поддеревья не запрашиваются: один листинг и одно скачивание
+        verify(restTemplate, times(2)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), any(Class.class));
+        assertThrows(IllegalArgumentException.class, () -> githubContentService.getRepositoryContents(
+                "https://github.com/user/repo", COMMIT_SHA, List.of("app/../../secrets")));
+    }
+
+    @Test
+    void shouldComputeStatsFromTreeMetadataWithoutDownloads() {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java", "**/*.md"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        String treeUrl = "https://api.github.com/repos/user/repo/git/trees/" + COMMIT_SHA + "?recursive=1";
+        when(restTemplate.exchange(eq(treeUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Map.class)))
+                .thenReturn(ResponseEntity.ok(Map.of("truncated", false, "tree", List.of(
+                        Map.of("type", "tree", "path", "src"),
+                        Map.of("type", "blob", "path", "src/App.java", "size", 300),
+                        Map.of("type", "blob", "path", "src/Util.java", "size", 100),
+                        Map.of("type", "blob", "path", "src/README.md", "size", 50),
+                        Map.of("type", "blob", "path", "src/logo.png", "size", 9000),
+                        Map.of("type", "blob", "path", "docs/Guide.md", "size", 700)))));
+
+        RepositoryStats stats = githubContentService.getRepositoryStats("https://github.com/user/repo", COMMIT_SHA,
+                List.of("src"), 2);
+
+        assertEquals("tree", stats.getSource());
+        assertEquals(3, stats.getFileCount());
+        assertEquals(450, stats.getTotalBytes());
+        assertEquals(1, stats.getExcludedCount());
+        assertEquals(List.of(new RepositoryStats.ExtensionStats("java", 2, 400),
+                new RepositoryStats.ExtensionStats("md", 1, 50)), stats.getExtensions());
+        assertEquals(List.of(new RepositoryStats.FileSize("src/App.java", 300),
+                new RepositoryStats.FileSize("src/Util.java", 100)), stats.getLargestFiles());
+        assertEquals(List.of(), stats.getMissing());
+
+        // Повторный запрос по тому же SHA отдается из кэша; содержимое файлов не скачивается
+        assertSame(stats, githubContentService.getRepositoryStats("https://github.com/user/repo", COMMIT_SHA,
+                List.of("src/"), 2));
+        verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), any(Class.class));
+    }
+
+    @Test
+    void shouldReportMissingDirectoriesAndNotCacheIncompleteStats() {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        String treeUrl = "https://api.github.com/repos/user/repo/git/trees/" + COMMIT_SHA + "?recursive=1";
+        String rootUrl = "https://api.github.com/repos/user/repo/contents?ref=" + COMMIT_SHA;
+        String brokenUrl = "https://api.github.com/repos/user/repo/contents/broken";
+        when(restTemplate.exchange(eq(treeUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Map.class)))
+                .thenReturn(ResponseEntity.ok(Map.of("truncated", true, "tree", List.of())));
+        when(restTemplate.exchange(eq(rootUrl), eq(HttpMethod.GET), eq(httpEntity), eq(List.class)))
+                .thenReturn(ResponseEntity.ok(List.of(
+                        Map.of("type", "file", "path", "src/A.java", "size", 10),
+                        Map.of("type", "dir", "path", "broken", "url", brokenUrl))));
+        when(restTemplate.exchange(eq(brokenUrl), eq(HttpMethod.GET), eq(httpEntity), eq(List.class)))
+                .thenThrow(new RuntimeException("HTTP 502"));
+
+        RepositoryStats stats = githubContentService.getRepositoryStats("https://github.com/user/repo", COMMIT_SHA,
+                List.of(), 1);
+
+        assertEquals("contents", stats.getSource());
+        assertEquals(1, stats.getFileCount());
+        assertEquals(List.of("broken/"), stats.getMissing());
+        // Неполная статистика не кэшируется: повторный запрос снова пробует прочитать директорию
+        assertNotSame(stats, githubContentService.getRepositoryStats("https://github.com/user/repo", COMMIT_SHA,
+                List.of(), 1));
+        verify(restTemplate, times(2)).exchange(eq(brokenUrl), eq(HttpMethod.GET), eq(httpEntity), eq(List.class));
+    }
+
+    @Test
+    void shouldAdmitJobWhenMemoryEstimateFails() throws Exception {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        String treeUrl = "https://api.github.com/repos/user/repo/git/trees/" + COMMIT_SHA + "?recursive=1";
+        when(restTemplate.exchange(eq(treeUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Map.class)))
+                .thenThrow(HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "Bad Gateway", HttpHeaders.EMPTY, null, null));
+        String rawUrl = "https://raw.githubusercontent.com/user/repo/" + COMMIT_SHA + "/src/App.java";
+        when(restTemplate.exchange(eq("https://api.github.com/repos/user/repo/contents?ref=" + COMMIT_SHA),
+                eq(HttpMethod.GET), eq(httpEntity), eq(List.class)))
+                .thenReturn(ResponseEntity.ok(List.of(Map.of("type", "file", "path", "src/App.java", "download_url", rawUrl))));
+        when(restTemplate.exchange(eq(rawUrl), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(ResponseEntity.ok("class App {}"));
+        AdmissionConfig admissionConfig = new AdmissionConfig();
+        admissionConfig.setEnabled(true);
+        admissionConfig.setBudgetBytes(1000);
+        FetchBudget fetchBudget = new FetchBudget(new BatchConfig());
+        GithubContentService service = new GithubContentService(restTemplate, githubConfig, fetchBudget,
+                new GithubCache(new GithubConfig()), new FetchMetrics(new SimpleMeterRegistry(), fetchBudget),
+                new JobProfiler(new ProfilingConfig()),
+                new AdmissionController(admissionConfig, new SimpleMeterRegistry()));
+        Path outputFile = Files.createTempDirectory("admission").resolve("estimate-failed.txt");
+
+        // Ошибка Trees API при оценке памяти не срывает задачу
+        service.saveAllContentsToSingleFile("https://github.com/user/repo", COMMIT_SHA, outputFile);
+
+        assertEquals("File: src/App.java \nclass App {}\n", Files.readString(outputFile));
+        service.shutdown();
+    }
+
+    @Test
+    void shouldRejectSingleFileThatExceedsHeapBudgetBeforeDownloads() throws Exception {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        String treeUrl = "https://api.github.com/repos/user/repo/git/trees/" + COMMIT_SHA + "?recursive=1";
+        when(restTemplate.exchange(eq(treeUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Map.class)))
+                .thenReturn(ResponseEntity.ok(Map.of("truncated", false, "tree", List.of(
+                        Map.of("type", "blob", "path", "src/App.java", "size", 600),
+                        Map.of("type", "blob", "path", "src/logo.png", "size", 90000)))));
+        AdmissionConfig admissionConfig = new AdmissionConfig();
+        admissionConfig.setEnabled(true);
+        admissionConfig.setBudgetBytes(1000);
+        FetchBudget fetchBudget = new FetchBudget(new BatchConfig());
+        GithubContentService service = new GithubContentService(restTemplate, githubConfig, fetchBudget,
+                new GithubCache(new GithubConfig()), new FetchMetrics(new SimpleMeterRegistry(), fetchBudget),
+                new JobProfiler(new ProfilingConfig()),
+                new AdmissionController(admissionConfig, new SimpleMeterRegistry()));
+        Path outputFile = Files.createTempDirectory("admission").resolve("rejected.txt");
+
+        // 600 байт исходников * memoryFactor 3 не помещаются в бюджет 1000 байт; png не проходит шаблоны
+        assertThrows(AdmissionController.RejectedException.class, () -> service.saveAllContentsToSingleFile(
+                "https://github.com/user/repo", COMMIT_SHA, outputFile));
+
+        assertFalse(Files.exists(outputFile));
+        // Оценка берется из общей статистики коммита: повторный запрос статистики с тем же top отдается из кэша
+        PipelineSettings pipeline = new PipelineSettings();
+        int inFlight = pipeline.getFetch().getParallelism() + pipeline.getWrite().getParallelism()
+                + pipeline.getWrite().getQueueCapacity();
+        RepositoryStats stats = service.getRepositoryStats("https://github.com/user/repo", COMMIT_SHA, List.of(), inFlight);
+        assertEquals("https://github.com/user/repo", stats.getRepoUrl());
+        assertEquals(600, stats.getTotalBytes());
+        verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), any(Class.class));
+        service.shutdown();
+    }
+
+    @Test
+    void shouldFetchOnlyChangedFilesBetweenRefs() {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        String baseSha = "fedcba9876543210fedcba9876543210fedcba98";
+        String compareUrl = "https://api.github.com/repos/user/repo/compare/" + baseSha + "..." + COMMIT_SHA;
+        when(restTemplate.exchange(eq(compareUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Map.class)))
+                .thenReturn(ResponseEntity.ok(Map.of("files", List.of(
+                        Map.of("filename", "src/B.java", "status", "modified", "sha", "b2",
+                                "raw_url", "https://github.com/user/repo/raw/" + COMMIT_SHA + "/src/B.java"),
+                        Map.of("filename", "src/A.java", "status", "renamed", "sha", "a1",
+                                "previous_filename", "src/Old.java",
+                                "raw_url", "https://github.com/user/repo/raw/" + COMMIT_SHA + "/src/A.java"),
+                        Map.of("filename", "src/Gone.java", "status", "removed", "sha", "c3"),
+                        Map.of("filename", "docs/notes.txt", "status", "added", "sha", "d4",
+                                "raw_url", "https://github.com/user/repo/raw/" + COMMIT_SHA + "/docs/notes.txt")))));
+        when(restTemplate.exchange(eq("https://github.com/user/repo/raw/" + COMMIT_SHA + "/src/B.java"),
+                eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class))).thenReturn(ResponseEntity.ok("class B {}"));
+        when(restTemplate.exchange(eq("https://github.com/user/repo/raw/" + COMMIT_SHA + "/src/A.java"),
+                eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class))).thenReturn(ResponseEntity.ok("class A {}"));
+
+        String delta = githubContentService.getDeltaContents("https://github.com/user/repo", baseSha, COMMIT_SHA);
+
+        assertEquals("File: src/A.java (renamed from src/Old.java) \nclass A {}\n\n"
+                + "File: src/B.java (modified) \nclass B {}\n\n"
+                + "File: src/Gone.java (removed) \n\n", delta);
+        // Один запрос сравнения и два скачивания: удаленный и исключенный шаблонами файлы не скачиваются
+        verify(restTemplate, times(3)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), any(Class.class));
+        assertSame(delta, githubContentService.getDeltaContents("https://github.com/user/repo", baseSha, COMMIT_SHA));
+    }
+
+    @Test
+    void shouldListFailedDeltaDownloadsAndNotCacheIncompleteDelta() {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        String baseSha = "fedcba9876543210fedcba9876543210fedcba98";
+        String compareUrl = "https://api.github.com/repos/user/repo/compare/" + baseSha + "..." + COMMIT_SHA;
+        String rawUrl = "https://github.com/user/repo/raw/" + COMMIT_SHA + "/src/B.java";
+        when(restTemplate.exchange(eq(compareUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Map.class)))
+                .thenReturn(ResponseEntity.ok(Map.of("files", List.of(
+                        Map.of("filename", "src/B.java", "status", "modified", "sha", "b2", "raw_url", rawUrl)))));
+        when(restTemplate.exchange(eq(rawUrl), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new RuntimeException("boom"));
+
+        String delta = githubContentService.getDeltaContents("https://github.com/user/repo", baseSha, COMMIT_SHA);
+
+        assertEquals("Missing paths (1):\nsrc/B.java\n", delta);
+        // Неполный результат не кэшируется: повторный запрос снова обращается к API
+        githubContentService.getDeltaContents("https://github.com/user/repo", baseSha, COMMIT_SHA);
+        verify(restTemplate, times(2)).exchange(eq(compareUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Map.class));
+    }
+
+    @Test
+    void shouldMarkDeltaTruncatedAtCompareLimit() {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        String baseSha = "fedcba9876543210fedcba9876543210fedcba98";
+        String compareUrl = "https://api.github.com/repos/user/repo/compare/" + baseSha + "..." + COMMIT_SHA;
+        List<Map<String, Object>> files = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            files.add(Map.of("filename", "src/F" + i + ".java", "status", "removed", "sha", "s" + i));
+        }
+        when(restTemplate.exchange(eq(compareUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Map.class)))
+                .thenReturn(ResponseEntity.ok(Map.of("files", files)));
+
+        String delta = githubContentService.getDeltaContents("https://github.com/user/repo", baseSha, COMMIT_SHA);
+
+        assertTrue(delta.endsWith("Truncated: GitHub lists at most 300 changed files, further changes are not included\n"));
+        githubContentService.getDeltaContents("https://github.com/user/repo", baseSha, COMMIT_SHA);
+        verify(restTemplate, times(2)).exchange(eq(compareUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Map.class));
+
+        JobSettings failFast = new JobSettings();
+        failFast.setFailureMode(JobSettings.FailureMode.FAIL_FAST);
+        when(githubConfig.getJob()).thenReturn(failFast);
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> githubContentService.getDeltaContents("https://github.com/user/repo", baseSha, COMMIT_SHA));
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    void shouldBrowseOneLevelWithCursorFromSingleCachedListing() {
+        String listingUrl = "https://api.github.com/repos/user/repo/contents/src?ref=" + COMMIT_SHA;
+        when(restTemplate.exchange(eq(listingUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Object.class)))
+                .thenReturn(ResponseEntity.ok(List.of(
+                        Map.of("type", "file", "name", "b.txt", "path", "src/b.txt", "size", 20, "sha", "s2"),
+                        Map.of("type", "dir", "name", "main", "path", "src/main", "size", 0, "sha", "s3"),
+                        Map.of("type", "file", "name", "a.txt", "path", "src/a.txt", "size", 10, "sha", "s1"))));
+
+        TreePage first = githubContentService.browseTree("https://github.com/user/repo", COMMIT_SHA, "/src/", null, 2);
+        assertEquals("src", first.getPath());
+        assertEquals(List.of(new TreePage.TreeEntry("main", "src/main", "dir", 0, "s3"),
+                new TreePage.TreeEntry("a.txt", "src/a.txt", "file", 10, "s1")), first.getEntries());
+        assertNotNull(first.getNextCursor());
+
+        TreePage second = githubContentService.browseTree("https://github.com/user/repo", COMMIT_SHA, "src",
+                first.getNextCursor(), 2);
+        assertEquals(List.of(new TreePage.TreeEntry("b.txt", "src/b.txt", "file", 20, "s2")), second.getEntries());
+        assertNull(second.getNextCursor());
+
+        // Следующая страница и повторный обзор берутся из кэша; курсор другой директории отклоняется
+        verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), any(Class.class));
+        assertThrows(IllegalArgumentException.class, () -> githubContentService.browseTree(
+                "https://github.com/user/repo", COMMIT_SHA, "docs", first.getNextCursor(), 2));
+    }
+
+    @Test
+    void shouldRejectBrowsingFileOrMissingPath() {
+        String fileUrl = "https://api.github.com/repos/user/repo/contents/README.md?ref=" + COMMIT_SHA;
+        String missingUrl = "https://api.github.com/repos/user/repo/contents/nope?ref=" + COMMIT_SHA;
+        when(restTemplate.exchange(eq(fileUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Object.class)))
+                .thenReturn(ResponseEntity.ok(Map.of("type", "file", "name", "README.md", "path", "README.md")));
+        when(restTemplate.exchange(eq(missingUrl), eq(HttpMethod.GET), eq(httpEntity), eq(Object.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+
+        ResponseStatusException file = assertThrows(ResponseStatusException.class, () -> githubContentService
+                .browseTree("https://github.com/user/repo", COMMIT_SHA, "README.md", null, 10));
+        assertEquals(HttpStatus.BAD_REQUEST, file.getStatusCode());
+        ResponseStatusException missing = assertThrows(ResponseStatusException.class, () -> githubContentService
+                .browseTree("https://github.com/user/repo", COMMIT_SHA, "nope", null, 10));
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+    }
+
+    @Test
+    void shouldReportMissingPathsInBestEffortAndFailFastOnFirstError() {
+        when(githubConfig.getIncludePatterns()).thenReturn(Arrays.asList("**/*.java"));
+        when(githubConfig.getExcludePatterns()).thenReturn(Arrays.asList());
+        String rootUrl = "https://api.github.com/repos/user/repo/contents?ref=" + COMMIT_SHA;
+        when(restTemplate.exchange(eq(rootUrl), eq(HttpMethod.GET), eq(httpEntity), eq(List.class)))
+                .thenReturn(ResponseEntity.ok(List.of(
+                        Map.of("type", "file", "path", "src/A.java", "download_url", "https://raw.example/A.java"),
+                        Map.of("type", "file", "path", "src/B.java", "download_url", "https://raw.example/B.java"),
+                        Map.of("type", "dir", "path", "broken", "url", "https://api.github.com/repos/user/repo/contents/broken"))));
+        when(restTemplate.exchange(eq("https://api.github.com/repos/user/repo/contents/broken"), eq(HttpMethod.GET),
+                eq(httpEntity), eq(List.class))).thenThrow(new RuntimeException("HTTP 502"));
+        when(restTemplate.exchange(eq("https://raw.example/A.java"), eq(HttpMethod.GET), any(HttpEntity.class),
+                eq(String.class))).thenReturn(ResponseEntity.ok("class A {}"));
+        when(restTemplate.exchange(eq("https://raw.example/B.java"), eq(HttpMethod.GET), any(HttpEntity.class),
+                eq(String.class))).thenThrow(new RuntimeException("HTTP 500"));
+
+        List<String> listing = githubContentService.getRepositoryContents("https://github.com/user/repo", COMMIT_SHA);
+
+        assertEquals(2, listing.size());
+        assertTrue(listing.get(0).contains("A.java"));
+        assertEquals("Missing paths (2):\nbroken/\nsrc/B.java\n", listing.get(1));
+        // Неполный результат не кэшируется: повторный запрос снова пробует скачать пропущенный файл
+        githubContentService.getRepositoryContents("https://github.com/user/repo", COMMIT_SHA);
+        verify(restTemplate, times(2)).exchange(eq("https://raw.example/B.java"), eq(HttpMethod.GET),
+                any(HttpEntity.class), eq(String.class));
+
+        JobSettings failFast = new JobSettings();
+        failFast.setFailureMode(JobSettings.FailureMode.FAIL_FAST);
+        when(githubConfig.getJob()).thenReturn(failFast);
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> githubContentService.getRepositoryContents("https://github.com/user/repo", COMMIT_SHA));
+        assertInstanceOf(JobControl.PathFailedException.class, e.getCause());
+    }
+
+    @Test
+    void shouldResolveBranchToCommitSha() {
+        when(restTemplate.exchange(
+                eq("https://api.github.com/repos/user/repo/commits/master"),
+                eq(HttpMethod.GET),
+                any(HttpEntity.class),
+                eq(String.class)
+        )).thenReturn(ResponseEntity.ok(COMMIT_SHA + "\n"));
+
+        assertEquals(COMMIT_SHA, githubContentService.resolveCommitSha("https://api.github.com/repos/user/repo", "master"));
+    }
+
     @Test
     void shouldThrowExceptionWhenApiCallFails() {
         String repoUrl = "https://github.com/user/repo";
+        stubHeadResolution();
 
         when(restTemplate.exchange(
-                eq("https://api.github.com/repos/user/repo/contents"),
+                eq("https://api.github.com/repos/user/repo/contents?ref=" + COMMIT_SHA),
                 eq(HttpMethod.GET),
                 eq(httpEntity),
                 eq(List.class)
@@ -0,0 +1,127 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.GithubConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GithubTokenPoolTest {
+
+    private static final long NOW = 1_767_225_600_000L;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong(NOW);
+
+    @Test
+    void shouldBeEmptyWithoutTokens() {
+        GithubTokenPool pool = new GithubTokenPool(new GithubConfig(), registry, clock::get);
+
+        assertEquals(0, pool.size());
+        assertNull(pool.acquire("core"));
+    }
+
+    @Test
+    void shouldRouteRequestsToTokenWithMostHeadroom() {
+        GithubTokenPool pool = new GithubTokenPool(config("a", List.of("b", "a")), registry, clock::get);
+        assertEquals(2, pool.size());
+
+        pool.acquire("core").complete(200, rateLimit(100, 5000, 3600));
+        pool.acquire("core").complete(200, rateLimit(4000, 5000, 3600));
+
+        // У токена b запас больше, пока одновременные запросы не съедят разницу
+        assertEquals("b", pool.acquire("core").token());
+        assertEquals(2.0, registry.get("github.token.requests").tag("token", "2").counter().count());
+        assertEquals(4000.0, registry.get("github.token.remaining").tag("token", "2").tag("resource", "core")
+                .gauge().value());
+    }
+
+    @Test
+    void shouldParkExhaustedTokenUntilReset() {
+        GithubTokenPool pool = new GithubTokenPool(config("a", List.of("b")), registry, clock::get);
+
+        GithubTokenPool.Lease first = pool.acquire("core");
+        assertEquals("a", first.token());
+        assertTrue(first.complete(403, rateLimit(0, 5000, 60)), "Rate limited response should be retried");
+
+        for (int i = 0; i < 3; i++) {
+            GithubTokenPool.Lease lease = pool.acquire("core");
+            assertEquals("b", lease.token());
+            lease.release();
+        }
+        assertEquals(1.0, registry.get("github.token.parked").tag("token", "1").gauge().value());
+        assertEquals(1.0, registry.get("github.token.rate_limited").tag("token", "1").counter().count());
+
+        // Лимиты ресурсов независимы: graphql этого токена не исчерпан
+        assertTrue(pool.hasAvailable("graphql"));
+
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(61));
+        assertEquals(0.0, registry.get("github.token.parked").tag("token", "1").gauge().value());
+        assertEquals("a", pool.acquire("core").token());
+    }
+
+    @Test
+    void shouldFailWhenAllTokensStayParkedLongerThanWait() {
+        GithubConfig config = config("a", null);
+        config.setRateLimitWait(Duration.ofSeconds(30));
+        GithubTokenPool pool = new GithubTokenPool(config, registry, clock::get);
+
+        pool.acquire("core").complete(200, rateLimit(0, 5000, 3600));
+
+        assertFalse(pool.hasAvailable("core"));
+        assertThrows(IllegalStateException.class, () -> pool.acquire("core"));
+    }
+
+    @Test
+    void shouldParkTokenForRetryAfterOfSecondaryLimit() {
+        GithubTokenPool pool = new GithubTokenPool(config("a", null), registry, clock::get);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "30");
+
+        assertTrue(pool.acquire("core").complete(429, headers));
+
+        assertFalse(pool.hasAvailable("core"));
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(30));
+        assertTrue(pool.hasAvailable("core"));
+    }
+
+    @Test
+    void shouldResolveResourceFromUrl() {
+        assertEquals("graphql", GithubTokenPool.resourceOf(URI.create("https://api.github.com/graphql")));
+        assertEquals("search", GithubTokenPool.resourceOf(URI.create("https://api.github.com/search/code?q=x")));
+        assertEquals("core", GithubTokenPool.resourceOf(URI.create("https://api.github.com/repos/user/repo/contents")));
+    }
+
+    @Test
+    void shouldTrackOnlyApiHosts() {
+        GithubTokenPool pool = new GithubTokenPool(config("a", null), registry, clock::get);
+
+        assertTrue(pool.isApiRequest(URI.create("https://api.github.com/repos/user/repo/contents")));
+        assertTrue(pool.isApiRequest(URI.create("https://API.github.com:443/graphql")));
+        assertFalse(pool.isApiRequest(URI.create("https://raw.githubusercontent.com/user/repo/sha/A.java")));
+        assertFalse(pool.isApiRequest(URI.create("https://github.com/user/repo")));
+        assertFalse(pool.isApiRequest(URI.create("http://api.github.com/repos/user/repo")));
+    }
+
+    private static GithubConfig config(String token, List<String> tokens) {
+        GithubConfig config = new GithubConfig();
+        config.setToken(token);
+        config.setTokens(tokens);
+        return config;
+    }
+
+    private HttpHeaders rateLimit(long remaining, long limit, long resetInSeconds) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-RateLimit-Remaining", String.valueOf(remaining));
+        headers.set("X-RateLimit-Limit", String.valueOf(limit));
+        headers.set("X-RateLimit-Reset", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(clock.get()) + resetInSeconds));
+        return headers;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.BatchConfig;
+import com.example.githubreader.config.GithubConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверяет пакетное скачивание на локальной заглушке GraphQL API.
+ */
+class GraphqlBlobFetcherTest {
+
+    private static final Pattern OBJECT_ALIAS = Pattern.compile("(f\\d+): object\\(expression: \\\\\"[0-9a-f]+:([^\\\\]+)\\\\\"\\)");
+    private static final String COMMIT_SHA = "0123456789abcdef0123456789abcdef01234567";
+
+    private HttpServer server;
+    private final AtomicInteger graphqlRequests = new AtomicInteger();
+    private final List<String> restFallbacks = Collections.synchronizedList(new ArrayList<>());
+    private ExecutorService executorService;
+    private GithubConfig githubConfig;
+    private GraphqlBlobFetcher fetcher;
+    private volatile CountDownLatch requestArrived;
+    private volatile CountDownLatch releaseRequests;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/graphql", exchange -> {
+            graphqlRequests.incrementAndGet();
+            if (releaseRequests != null) {
+                requestArrived.countDown();
+                try {
+                    releaseRequests.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String query = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            StringBuilder json = new StringBuilder("{\"data\":{\"repository\":{");
+            Matcher matcher = OBJECT_ALIAS.matcher(query);
+            boolean first = true;
+            while (matcher.find()) {
+                String path = matcher.group(2);
+                json.append(first ? "" : ",").append('"').append(matcher.group(1)).append("\":");
+                json.append(path.endsWith(".bin")
+                        ? "{\"text\":null,\"byteSize\":4,\"isBinary\":true,\"isTruncated\":false}"
+                        : "{\"text\":\"content of " + path + "\",\"byteSize\":10,\"isBinary\":false,\"isTruncated\":false}");
+                first = false;
+            }
+            byte[] body = json.append("}}}").toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        githubConfig = new GithubConfig();
+        githubConfig.setToken("test-token");
+        githubConfig.getGraphql().setUrl("http://localhost:" + server.getAddress().getPort() + "/graphql");
+        githubConfig.getGraphql().setMaxBatchFiles(2);
+        githubConfig.getGraphql().setMaxBlobBytes(1000);
+        executorService = Executors.newVirtualThreadPerTaskExecutor();
+        fetcher = new GraphqlBlobFetcher(new RestTemplate(), githubConfig, new FetchBudget(new BatchConfig()), executorService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executorService.shutdown();
+    }
+
+    @Test
+    void shouldFetchFilesInBatchesAndFallBackToRestForOversizedAndBinary() throws Exception {
+        List<Map<String, Object>> files = List.of(
+                file("src/A.java", 10),
+                file("src/B.java", 10),
+                file("src/C.java", 10),
+                file("src/D.java", 10),
+                file("src/E.java", 10),
+                file("big/Huge.java", 5000),
+                file("img/logo.bin", 4)
+        );
+
+        Map<String, String> contents = fetch(files, file -> {
+            restFallbacks.add((String) file.get("path"));
+            return "rest " + file.get("path");
+        });
+
+        assertEquals(7, contents.size());
+        assertEquals("content of src/C.java", contents.get("src/C.java"));
+        assertEquals("rest big/Huge.java", contents.get("big/Huge.java"));
+        assertEquals("rest img/logo.bin", contents.get("img/logo.bin"));
+        assertEquals(3, graphqlRequests.get(), "6 small files with at most 2 per batch");
+        assertEquals(2, restFallbacks.size());
+    }
+
+    @Test
+    void shouldCancelQueuedBatchesWhenInterrupted() throws Exception {
+        githubConfig.getGraphql().setConcurrentBatches(1);
+        requestArrived = new CountDownLatch(1);
+        releaseRequests = new CountDownLatch(1);
+        List<Map<String, Object>> files = List.of(file("src/A.java", 10), file("src/B.java", 10),
+                file("src/C.java", 10), file("src/D.java", 10), file("src/E.java", 10), file("src/F.java", 10));
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                fetch(files, file -> "rest");
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        caller.start();
+        assertTrue(requestArrived.await(5, TimeUnit.SECONDS));
+
+        // Прерывание (срок задачи) сразу завершает ожидание, а пакеты в очереди за разрешением отменяются
+        caller.interrupt();
+        caller.join(5000);
+        assertFalse(caller.isAlive());
+        assertInstanceOf(InterruptedException.class, failure.get());
+        releaseRequests.countDown();
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, graphqlRequests.get(), "Queued batches must not be sent after cancellation");
+    }
+
+    @Test
+    void shouldSendFullBatchBeforeListingEnds() throws Exception {
+        requestArrived = new CountDownLatch(1);
+        releaseRequests = new CountDownLatch(1);
+        Map<String, String> contents = new ConcurrentHashMap<>();
+        try (GraphqlBlobFetcher.Batches batches = fetcher.open("https://api.github.com/repos/user/repo", COMMIT_SHA,
+                (file, content) -> contents.put((String) file.get("path"), content))) {
+            batches.add(file("src/A.java", 10));
+            batches.add(file("src/B.java", 10));
+            batches.add(file("src/C.java", 10));
+
+            // Заполненный пакет отправлен, хотя обход еще не завершен
+            assertTrue(requestArrived.await(5, TimeUnit.SECONDS));
+            releaseRequests.countDown();
+            assertEquals(List.of(), batches.await());
+        }
+        assertEquals(3, contents.size());
+        assertEquals(2, graphqlRequests.get());
+    }
+
+    @Test
+    void shouldEscapeQuotesAndBackslashesInExpressions() {
+        assertEquals("\"a\\\"b\\\\c\"", GraphqlBlobFetcher.quote("a\"b\\c"));
+    }
+
+    private Map<String, String> fetch(List<Map<String, Object>> files,
+                                      Function<Map<String, Object>, String> restFallback) throws Exception {
+        Map<String, String> contents = new ConcurrentHashMap<>();
+        try (GraphqlBlobFetcher.Batches batches = fetcher.open("https://api.github.com/repos/user/repo", COMMIT_SHA,
+                (file, content) -> contents.put((String) file.get("path"), content))) {
+            files.forEach(batches::add);
+            batches.fetchViaRest(batches.await(), restFallback, (file, content) -> {
+                if (content != null) {
+                    contents.put((String) file.get("path"), content);
+                }
+            });
+        }
+        return contents;
+    }
+
+    private static Map<String, Object> file(String path, int size) {
+        return Map.of("type", "file", "path", path, "size", size,
+                "download_url", "https://raw.githubusercontent.com/user/repo/" + COMMIT_SHA + "/" + path);
+    }
+}
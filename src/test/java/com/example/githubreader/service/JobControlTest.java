@@ -0,0 +1,61 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.JobSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobControlTest {
+
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void shouldInterruptTraversalAfterDeadlineAndWaitForIt() {
+        JobSettings settings = new JobSettings();
+        settings.setTimeout(Duration.ofMillis(100));
+        JobControl control = new JobControl(settings);
+        AtomicBoolean finished = new AtomicBoolean();
+
+        TimeoutException e = assertThrows(TimeoutException.class, () -> control.run(executorService, () -> {
+            try {
+                Thread.sleep(60_000);
+            } finally {
+                finished.set(true);
+            }
+            return null;
+        }));
+
+        assertTrue(e.getMessage().contains("PT0.1S"));
+        assertTrue(finished.get(), "run() must return only after the traversal has stopped");
+    }
+
+    @Test
+    void shouldCollectMissingPathsInBestEffortAndThrowInFailFast() throws Exception {
+        JobControl bestEffort = new JobControl(null);
+        assertEquals("done", bestEffort.run(executorService, () -> "done"));
+        bestEffort.failed("src/b.txt", "HTTP 500");
+        bestEffort.failed("docs/", "HTTP 502");
+        assertEquals(List.of("docs/", "src/b.txt"), bestEffort.missing());
+
+        JobSettings settings = new JobSettings();
+        settings.setFailureMode(JobSettings.FailureMode.FAIL_FAST);
+        JobControl failFast = new JobControl(settings);
+        JobControl.PathFailedException e = assertThrows(JobControl.PathFailedException.class,
+                () -> failFast.failed("src/b.txt", "HTTP 500"));
+        assertEquals("Failed to fetch src/b.txt: HTTP 500", e.getMessage());
+        assertTrue(failFast.missing().isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.AdmissionConfig;
+import com.example.githubreader.config.BatchConfig;
+import com.example.githubreader.config.DirectoryConfig;
+import com.example.githubreader.config.GithubConfig;
+import com.example.githubreader.config.ProfilingConfig;
+import com.example.githubreader.model.JobProfileReport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobProfilerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JobProfiler jobProfiler;
+    private DirectoryContentService directoryContentService;
+
+    @BeforeEach
+    void setUp() {
+        ProfilingConfig profilingConfig = new ProfilingConfig();
+        profilingConfig.setEnabled(true);
+        profilingConfig.setTopN(1);
+        jobProfiler = new JobProfiler(profilingConfig);
+
+        GithubConfig githubConfig = new GithubConfig();
+        githubConfig.setIncludePatterns(List.of("**/*.java", "*.java"));
+        githubConfig.setExcludePatterns(List.of());
+        FetchBudget fetchBudget = new FetchBudget(new BatchConfig());
+        directoryContentService = new DirectoryContentService(new DirectoryConfig(), githubConfig, fetchBudget,
+                new FetchMetrics(new SimpleMeterRegistry(), fetchBudget), jobProfiler,
+                new AdmissionController(new AdmissionConfig(), new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void shouldWriteReportNextToOutputWithPhasesAndPerFileTimings() throws Exception {
+        Path source = Files.createDirectories(tempDir.resolve("source"));
+        Files.writeString(source.resolve("Main.java"), "class Main {}");
+        Files.writeString(source.resolve("Util.java"), "class Util { void run() {} }");
+        Path output = tempDir.resolve("out").resolve("all.txt");
+
+        directoryContentService.saveAllContentsToFile(source.toString(), output);
+
+        Path reportFile = tempDir.resolve("out").resolve("all.profile.json");
+        assertTrue(Files.exists(reportFile));
+        JsonNode json = new ObjectMapper().readTree(reportFile.toFile());
+        assertEquals("ok", json.get("status").asText());
+        assertEquals(output.toString(), json.get("outputFile").asText());
+
+        JobProfileReport report = jobProfiler.reports().get(0);
+        assertEquals(json.get("jobId").asText(), report.getJobId());
+        assertEquals(List.of("pipeline"),
+                report.getPhases().stream().map(JobProfileReport.PhaseTiming::getName).toList());
+        assertEquals(2, report.getFiles().size());
+        JobProfileReport.FileTiming main = report.getFiles().get(0);
+        assertEquals("Main.java", main.getPath());
+        assertEquals(13, main.getBytes());
+        assertEquals("ok", main.getStatus());
+        assertTrue(main.getTotalMs() >= main.getNetworkMs());
+        assertEquals(1, report.getSlowest().size());
+        assertEquals(report, jobProfiler.report(report.getJobId()).orElseThrow());
+    }
+
+    @Test
+    void shouldRecordFailedJob() {
+        assertThrows(RuntimeException.class, () ->
+                directoryContentService.saveAllContentsToFile(tempDir.resolve("missing").toString(), tempDir.resolve("all.txt")));
+
+        JobProfileReport report = jobProfiler.reports().get(0);
+        assertEquals("failed", report.getStatus());
+        assertEquals("Failed to save directory contents to file", report.getError());
+        assertTrue(report.getFiles().isEmpty());
+    }
+
+    @Test
+    void shouldNotRecordAnythingWhenDisabled() throws Exception {
+        JobProfiler disabled = new JobProfiler(new ProfilingConfig());
+
+        disabled.run("directory", "single-file", "target", profile -> {
+            profile.outputFile(tempDir.resolve("all.txt"));
+            try (JobProfiler.Scope file = disabled.file("Main.java")) {
+                disabled.network(1_000, 10);
+            }
+        });
+
+        assertTrue(disabled.reports().isEmpty());
+        assertFalse(Files.exists(tempDir.resolve("all.profile.json")));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.GithubConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntriesByWeight() {
+        LruCache<String, String> cache = new LruCache<>(10, LruCache::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.get("a");
+
+        cache.put("c", "cccc");
+
+        // Вытесняется только давно не читанная запись b, суммарный вес не превышает бюджет
+        assertNull(cache.get("b"));
+        assertEquals("aaaa", cache.get("a"));
+        assertEquals("cccc", cache.get("c"));
+        assertEquals(8, cache.weight());
+    }
+
+    @Test
+    void shouldNotCacheEntryHeavierThanBudget() {
+        LruCache<String, String> cache = new LruCache<>(4, LruCache::length);
+        cache.put("a", "aa");
+
+        cache.put("big", "bbbbb");
+
+        assertNull(cache.get("big"));
+        assertEquals("aa", cache.get("a"));
+    }
+
+    @Test
+    void shouldReplaceWeightOfUpdatedEntry() {
+        LruCache<String, List<String>> cache = new LruCache<>(100, LruCache::totalLength);
+        cache.put("a", List.of("12345", "67890"));
+        cache.put("a", List.of("1"));
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.weight());
+    }
+
+    @Test
+    void shouldKeepSeparateBudgetPerResultKind() {
+        GithubConfig githubConfig = new GithubConfig();
+        githubConfig.getCache().setMaxResultBytes(10);
+        GithubCache githubCache = new GithubCache(githubConfig);
+
+        githubCache.singleFiles().put("single", "0123456789");
+        for (int i = 0; i < 20; i++) {
+            githubCache.files().put("file-" + i, "x");
+        }
+
+        // Мелкие отдельные файлы не вытесняют единый файл
+        assertEquals("0123456789", githubCache.singleFiles().get("single"));
+        assertEquals(10, githubCache.files().size());
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.githubreader.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MirrorWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldWriteBytesAtomicallyAndRecreateDeletedDirectories() throws Exception {
+        MirrorWriter writer = new MirrorWriter(tempDir);
+        byte[] binary = {0, (byte) 0xC3, (byte) 0x28, (byte) 0xFF, 10};
+
+        assertEquals(5, writer.write("assets/img/logo.bin", new ByteArrayInputStream(binary)));
+        assertArrayEquals(binary, Files.readAllBytes(tempDir.resolve("assets/img/logo.bin")));
+
+        // Повторная запись заменяет файл целиком и не оставляет временных файлов
+        writer.write("assets/img/logo.bin", "v2".getBytes());
+        try (Stream<Path> files = Files.list(tempDir.resolve("assets/img"))) {
+            assertEquals(List.of(tempDir.resolve("assets/img/logo.bin")), files.toList());
+        }
+        assertEquals("v2", Files.readString(tempDir.resolve("assets/img/logo.bin")));
+
+        // Директория из кэша удалена снаружи
+        Files.delete(tempDir.resolve("assets/img/logo.bin"));
+        Files.delete(tempDir.resolve("assets/img"));
+        writer.write("assets/img/icon.bin", binary);
+        assertArrayEquals(binary, Files.readAllBytes(tempDir.resolve("assets/img/icon.bin")));
+    }
+
+    @Test
+    void shouldRejectPathsOutsideMirror() {
+        MirrorWriter writer = new MirrorWriter(tempDir.resolve("output"));
+
+        assertThrows(IllegalArgumentException.class, () -> writer.write("../escape.txt", new byte[0]));
+        assertFalse(Files.exists(tempDir.resolve("escape.txt")));
+    }
+}
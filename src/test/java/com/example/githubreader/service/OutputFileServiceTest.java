@@ -0,0 +1,49 @@
+package com.example.githubreader.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputFileServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldPickFreshPrecompressedVariantAcceptedByClient() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("all.txt"), "content");
+        Files.writeString(tempDir.resolve("all.txt.gz"), "gzipped");
+        Path brotli = Files.writeString(tempDir.resolve("all.txt.br"), "brotli");
+        // Вариант br старше исходного файла и не используется
+        Files.setLastModifiedTime(brotli, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 60_000));
+        OutputFileService service = new OutputFileService(tempDir);
+
+        OutputFileService.OutputFile gzip = service.find("all.txt", "br, gzip;q=0.8").orElseThrow();
+        assertEquals("gzip", gzip.getEncoding());
+        assertEquals(tempDir.resolve("all.txt.gz").toFile(), gzip.getResource().getFile());
+        assertEquals("text/plain;charset=UTF-8", gzip.getMediaType().toString());
+        assertTrue(gzip.isHasVariants());
+
+        OutputFileService.OutputFile identity = service.find("all.txt", "gzip;q=0").orElseThrow();
+        assertNull(identity.getEncoding());
+        assertEquals(file.toFile(), identity.getResource().getFile());
+        assertNotEquals(gzip.getEtag(), identity.getEtag());
+    }
+
+    @Test
+    void shouldRejectMissingHiddenAndEscapingPaths() throws Exception {
+        Files.writeString(tempDir.resolve(".all.txt123.part"), "partial");
+        Files.createDirectories(tempDir.resolve("mirror"));
+        OutputFileService service = new OutputFileService(tempDir.resolve("mirror"));
+
+        assertTrue(service.find("missing.txt", null).isEmpty());
+        assertTrue(service.find("../.all.txt123.part", null).isEmpty());
+        assertTrue(service.find("", null).isEmpty());
+        assertTrue(new OutputFileService(tempDir).find(".all.txt123.part", null).isEmpty());
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.githubreader.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class ParallelFileWalkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ParallelFileWalker walker = new ParallelFileWalker(4);
+
+    @AfterEach
+    void tearDown() {
+        walker.shutdown();
+    }
+
+    @Test
+    void shouldVisitSameFilesAsFilesWalkInCallerThread() throws Exception {
+        for (int a = 0; a < 5; a++) {
+            for (int b = 0; b < 5; b++) {
+                Path dir = Files.createDirectories(tempDir.resolve("d" + a).resolve("d" + b));
+                for (int f = 0; f < 200; f++) {
+                    Files.writeString(dir.resolve("f" + f + ".txt"), "x");
+                }
+            }
+        }
+        Files.writeString(tempDir.resolve("root.txt"), "x");
+
+        Thread caller = Thread.currentThread();
+        Set<Path> visited = new HashSet<>();
+        walker.walk(tempDir, file -> {
+            assertSame(caller, Thread.currentThread());
+            assertTrue(visited.add(file), "File visited twice: " + file);
+        });
+
+        Set<Path> expected;
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            expected = paths.filter(Files::isRegularFile).collect(Collectors.toSet());
+        }
+        assertEquals(5001, expected.size());
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    void shouldSkipGitignoredFilesAndNeverEnterIgnoredDirectories() throws Exception {
+        Files.createDirectories(tempDir.resolve(".git/info"));
+        Files.writeString(tempDir.resolve(".git/info/exclude"), "*.local\n");
+        Files.writeString(tempDir.resolve(".git/HEAD"), "ref: refs/heads/main\n");
+        Files.writeString(tempDir.resolve(".gitignore"), "*.log\ntarget/\n/generated\n");
+        Files.createDirectories(tempDir.resolve("target/classes"));
+        Files.writeString(tempDir.resolve("target/classes/App.class"), "x");
+        // Правила внутри игнорируемой директории не читаются: файл не возвращается отрицанием
+        Files.writeString(tempDir.resolve("target/.gitignore"), "!keep.txt\n");
+        Files.writeString(tempDir.resolve("target/keep.txt"), "x");
+        Files.createDirectories(tempDir.resolve("generated"));
+        Files.writeString(tempDir.resolve("generated/Gen.java"), "x");
+        Files.createDirectories(tempDir.resolve("src/generated"));
+        Files.writeString(tempDir.resolve("src/generated/Kept.java"), "x");
+        Files.writeString(tempDir.resolve("src/.gitignore"), "!important.log\n*.tmp\n");
+        Files.writeString(tempDir.resolve("src/important.log"), "x");
+        Files.writeString(tempDir.resolve("src/debug.log"), "x");
+        Files.writeString(tempDir.resolve("src/cache.tmp"), "x");
+        Files.writeString(tempDir.resolve("src/App.java"), "x");
+        Files.writeString(tempDir.resolve("settings.local"), "x");
+        Files.writeString(tempDir.resolve("root.tmp"), "x");
+
+        Set<Path> visited = new HashSet<>();
+        walker.walk(tempDir, GitignoreMatcher.above(tempDir), visited::add);
+
+        assertEquals(Set.of(".gitignore", "root.tmp", "src/.gitignore", "src/App.java", "src/important.log",
+                        "src/generated/Kept.java"),
+                visited.stream().map(file -> tempDir.relativize(file).toString().replace('\\', '/')).collect(Collectors.toSet()));
+
+        // Обход поддерева учитывает правила директорий выше него и .git/info/exclude
+        Files.writeString(tempDir.resolve("src/notes.local"), "x");
+        Set<Path> subtree = new HashSet<>();
+        walker.walk(tempDir.resolve("src"), GitignoreMatcher.above(tempDir.resolve("src")), subtree::add);
+        assertEquals(Set.of(".gitignore", "App.java", "important.log", "generated/Kept.java"),
+                subtree.stream().map(file -> tempDir.resolve("src").relativize(file).toString().replace('\\', '/'))
+                        .collect(Collectors.toSet()));
+    }
+
+    @Test
+    void shouldFailForMissingDirectory() {
+        assertThrows(IOException.class, () -> walker.walk(tempDir.resolve("missing"), file -> {
+        }));
+    }
+
+    @Test
+    void shouldReportUnreadableSubdirectoryAndContinue() throws Exception {
+        Path locked = Files.createDirectories(tempDir.resolve("locked"));
+        Files.writeString(locked.resolve("secret.txt"), "x");
+        Files.writeString(tempDir.resolve("open.txt"), "x");
+        Files.setPosixFilePermissions(locked, Set.of());
+        try {
+            // Суперпользователь читает директорию без прав, проверить ошибку чтения так не получится
+            assumeFalse(Files.isReadable(locked), "Directory permissions are not enforced");
+
+            Thread caller = Thread.currentThread();
+            Set<Path> visited = new HashSet<>();
+            List<Path> failed = new ArrayList<>();
+            walker.walk(tempDir, null, visited::add, (directory, e) -> {
+                assertSame(caller, Thread.currentThread());
+                failed.add(directory);
+            });
+
+            assertEquals(Set.of(tempDir.resolve("open.txt")), visited);
+            assertEquals(List.of(locked), failed);
+            // Без обработчика ошибок обход прерывается, как раньше
+            assertThrows(IOException.class, () -> walker.walk(tempDir, file -> {
+            }));
+        } finally {
+            Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("rwx------"));
+        }
+    }
+}
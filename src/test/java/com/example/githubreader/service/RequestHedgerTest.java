@@ -0,0 +1,92 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.GithubConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestHedgerTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldHedgeSlowAttemptAndCancelLoser() throws Exception {
+        RequestHedger hedger = new RequestHedger(hedge(1.0), executor);
+        warmUp(hedger);
+
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger hedges = new AtomicInteger();
+        AtomicInteger hedgesWon = new AtomicInteger();
+        CountDownLatch slowInterrupted = new CountDownLatch(1);
+
+        long started = System.nanoTime();
+        String result = hedger.call(() -> {
+            if (attempts.getAndIncrement() == 0) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    slowInterrupted.countDown();
+                    throw e;
+                }
+                return "slow";
+            }
+            return "fast";
+        }, hedges::incrementAndGet, hedgesWon::incrementAndGet);
+
+        assertEquals("fast", result);
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, hedges.get());
+        assertEquals(1, hedgesWon.get());
+        assertTrue(slowInterrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldNotHedgeWithoutBudget() throws Exception {
+        RequestHedger hedger = new RequestHedger(hedge(0), executor);
+        warmUp(hedger);
+
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger hedges = new AtomicInteger();
+
+        String result = hedger.call(() -> {
+            attempts.incrementAndGet();
+            Thread.sleep(100);
+            return "slow";
+        }, hedges::incrementAndGet, () -> {
+        });
+
+        assertEquals("slow", result);
+        assertEquals(1, attempts.get());
+        assertEquals(0, hedges.get());
+    }
+
+    private static GithubConfig.Hedge hedge(double maxHedgeRatio) {
+        GithubConfig.Hedge config = new GithubConfig.Hedge();
+        config.setEnabled(true);
+        config.setMinSamples(5);
+        config.setMinDelayMs(10);
+        config.setMaxHedgeRatio(maxHedgeRatio);
+        return config;
+    }
+
+    private static void warmUp(RequestHedger hedger) throws Exception {
+        for (int i = 0; i < 5; i++) {
+            hedger.call(() -> "warm", () -> {
+            }, () -> {
+            });
+        }
+        assertTrue(hedger.hedgeDelayNanos() >= 0);
+    }
+}
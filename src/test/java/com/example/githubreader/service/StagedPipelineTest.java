@@ -0,0 +1,134 @@
+package com.example.githubreader.service;
+
+import com.example.githubreader.config.BatchConfig;
+import com.example.githubreader.config.PipelineSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StagedPipelineTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FetchMetrics fetchMetrics = new FetchMetrics(registry, new FetchBudget(new BatchConfig()));
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void shouldPassEveryItemThroughAllStagesWithBoundedInFlightItems() throws Exception {
+        Set<Integer> written = ConcurrentHashMap.newKeySet();
+        AtomicInteger produced = new AtomicInteger();
+        AtomicInteger dropped = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+
+        StagedPipeline.<Integer>from("test", executorService, fetchMetrics, "list", emit -> {
+                    for (int i = 0; i < 500; i++) {
+                        produced.incrementAndGet();
+                        emit.emit(i);
+                    }
+                })
+                .<Integer>then("filter", new PipelineSettings.Stage(2, 4), (item, emit) -> {
+                    if (item % 5 != 0) {
+                        emit.emit(item);
+                    } else {
+                        dropped.incrementAndGet();
+                    }
+                })
+                .<String>then("fetch", new PipelineSettings.Stage(4, 4), (item, emit) -> emit.emit("item-" + item))
+                .then("write", new PipelineSettings.Stage(1, 4), (item, emit) -> {
+                    // Медленный этап записи: производитель не должен уйти вперед дальше суммы очередей и обработчиков
+                    maxAhead.accumulateAndGet(produced.get() - dropped.get() - written.size(), Math::max);
+                    Thread.sleep(1);
+                    written.add(Integer.parseInt(item.substring("item-".length())));
+                })
+                .build()
+                .run();
+
+        Set<Integer> expected = IntStream.range(0, 500).filter(i -> i % 5 != 0).boxed().collect(Collectors.toSet());
+        assertEquals(expected, written);
+        // Производитель (1) + очередь и обработчики filter (4 + 2), fetch (4 + 4), write (4 + 1)
+        assertTrue(maxAhead.get() <= 20, "producer ran ahead by " + maxAhead.get());
+        assertTrue(registry.get("pipeline.stage.blocked").tags("source", "test", "stage", "write").timer().count() > 0);
+        assertEquals(0, registry.get("pipeline.stage.queued").tags("source", "test", "stage", "write").gauge().value());
+        assertEquals(0, registry.get("pipeline.stage.active").tags("source", "test", "stage", "fetch").gauge().value());
+    }
+
+    @Test
+    void shouldStopAllStagesAndRethrowFirstFailure() {
+        AtomicInteger produced = new AtomicInteger();
+
+        StagedPipeline pipeline = StagedPipeline.<Integer>from("test", executorService, fetchMetrics, "list", emit -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        produced.incrementAndGet();
+                        emit.emit(i);
+                    }
+                })
+                .<Integer>then("fetch", new PipelineSettings.Stage(2, 8), (item, emit) -> {
+                    if (item == 10) {
+                        throw new IOException("disk full");
+                    }
+                    emit.emit(item);
+                })
+                .then("write", new PipelineSettings.Stage(1, 8), (item, emit) -> {
+                })
+                .build();
+
+        IOException e = assertThrows(IOException.class, pipeline::run);
+        assertEquals("disk full", e.getMessage());
+        assertTrue(produced.get() < 100_000);
+        assertEquals(0, registry.get("pipeline.stage.queued").tags("source", "test", "stage", "fetch").gauge().value());
+    }
+
+    @Test
+    void shouldInterruptInFlightWorkersOnFailureAndWaitForThem() {
+        AtomicInteger interrupted = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+
+        StagedPipeline pipeline = StagedPipeline.<Integer>from("test", executorService, fetchMetrics, "list", emit -> {
+                    for (int i = 0; i < 4; i++) {
+                        emit.emit(i);
+                    }
+                })
+                .<Integer>then("fetch", new PipelineSettings.Stage(4, 4), (item, emit) -> {
+                    if (item == 3) {
+                        Thread.sleep(50);
+                        throw new IOException("HTTP 500");
+                    }
+                    running.incrementAndGet();
+                    try {
+                        // Медленный "запрос", который должен быть оборван
+                        Thread.sleep(60_000);
+                    } catch (InterruptedException e) {
+                        interrupted.incrementAndGet();
+                        throw e;
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                })
+                .then("write", new PipelineSettings.Stage(1, 4), (item, emit) -> {
+                })
+                .build();
+
+        long started = System.nanoTime();
+        IOException e = assertThrows(IOException.class, pipeline::run);
+        assertEquals("HTTP 500", e.getMessage());
+        assertTrue(System.nanoTime() - started < 10_000_000_000L, "in-flight workers were not interrupted");
+        assertEquals(3, interrupted.get());
+        // run() возвращается только после завершения всех обработчиков
+        assertEquals(0, running.get());
+    }
+}